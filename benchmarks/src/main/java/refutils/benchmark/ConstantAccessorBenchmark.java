@@ -0,0 +1,74 @@
+package refutils.benchmark;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import refutils.ReflectionHelper;
+import refutils.util.FieldAccessor;
+
+/**
+ * Field access through prepared accessors that are held in static final fields, where the JIT
+ * treats them as constants. The accessor is compared with its own getter handle, with a method
+ * handle from the JDK and with a direct field read.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConstantAccessorBenchmark {
+  private static final FieldAccessor<Object> ACCESSOR =
+      ReflectionHelper.forClass(ShallowTarget.class).field("value");
+  private static final MethodHandle ACCESSOR_GETTER = ACCESSOR.getterHandle();
+  private static final MethodHandle JDK_GETTER = jdkGetter();
+
+  private ShallowTarget target;
+
+  @Setup
+  public void setup() {
+    target = new ShallowTarget();
+    target.setValue(new Payload(42));
+  }
+
+  @Benchmark
+  public Object directGet() {
+    return target.getValue();
+  }
+
+  @Benchmark
+  public Object accessorGet() {
+    return ACCESSOR.get(target);
+  }
+
+  @Benchmark
+  public Object accessorGetterHandle() throws Throwable {
+    return (Payload) ACCESSOR_GETTER.invokeExact((Object) target);
+  }
+
+  @Benchmark
+  public Object jdkGetterHandle() throws Throwable {
+    return (Payload) JDK_GETTER.invokeExact(target);
+  }
+
+  private static MethodHandle jdkGetter() {
+    try {
+      Field field = ShallowTarget.class.getDeclaredField("value");
+      field.setAccessible(true);
+      return MethodHandles.lookup().unreflectGetter(field);
+    } catch (ReflectiveOperationException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+}
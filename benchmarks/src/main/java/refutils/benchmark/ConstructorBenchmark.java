@@ -0,0 +1,58 @@
+package refutils.benchmark;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import refutils.ReflectionHelper;
+
+/**
+ * Benchmarks for instantiating classes with private constructors. Calling new and a plain
+ * accessible java.lang.reflect.Constructor are used as baselines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConstructorBenchmark {
+  private Constructor<PrivateConstructorTarget> constructor;
+  private Supplier<PrivateConstructorTarget> factory;
+
+  @Setup
+  public void setup() throws Exception {
+    constructor = PrivateConstructorTarget.class.getDeclaredConstructor();
+    constructor.setAccessible(true);
+    factory = ReflectionHelper.privateConstructorFactory(PrivateConstructorTarget.class);
+  }
+
+  @Benchmark
+  public Object baselineNew() {
+    return PrivateConstructorTarget.create();
+  }
+
+  @Benchmark
+  public Object baselineConstructorNewInstance() throws Exception {
+    return constructor.newInstance();
+  }
+
+  @Benchmark
+  public Object instantiatePrivateConstructor() {
+    return ReflectionHelper.instantiatePrivateConstructor(PrivateConstructorTarget.class);
+  }
+
+  @Benchmark
+  public Object privateConstructorFactory() {
+    return factory.get();
+  }
+}
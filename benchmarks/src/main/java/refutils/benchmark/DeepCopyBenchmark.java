@@ -0,0 +1,91 @@
+package refutils.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import refutils.ReflectionHelper;
+
+/**
+ * Deep copies a snapshot of 100 order lines with ReflectionHelper.deepCopy, and with a Java
+ * serialization round trip as baseline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DeepCopyBenchmark {
+  private Snapshot snapshot;
+
+  @Setup
+  public void setup() {
+    snapshot = new Snapshot();
+    for (int i = 0; i < 100; i++) {
+      Line line =
+          new Line("item-" + i, new BigDecimal(i).movePointLeft(2), LocalDate.of(2020, 1, 1));
+      line.counts = new int[] {i, i + 1, i + 2};
+      line.previous = snapshot.lines.isEmpty() ? null : snapshot.lines.get(i - 1);
+      snapshot.lines.add(line);
+      snapshot.linesByName.put(line.name, line);
+    }
+  }
+
+  @Benchmark
+  public Object deepCopy() {
+    return ReflectionHelper.deepCopy(snapshot);
+  }
+
+  @Benchmark
+  public Object serializationRoundTrip() throws IOException, ClassNotFoundException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(snapshot);
+    }
+    try (ObjectInputStream in =
+        new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      return in.readObject();
+    }
+  }
+
+  static final class Snapshot implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final List<Line> lines = new ArrayList<>();
+    private final Map<String, Line> linesByName = new HashMap<>();
+  }
+
+  static final class Line implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final String name;
+    private final BigDecimal price;
+    private final LocalDate date;
+    private int[] counts;
+    private Line previous;
+
+    Line(String name, BigDecimal price, LocalDate date) {
+      this.name = name;
+      this.price = price;
+      this.date = date;
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package refutils.benchmark;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import refutils.ReflectionHelper;
+
+/**
+ * Compares a snapshot of 100 order lines with an equal copy, and with a copy whose first line has a
+ * different count, which the comparison finds among the primitive fields.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DeepEqualsBenchmark {
+  private Snapshot snapshot;
+  private Snapshot equalCopy;
+  private Snapshot changedCopy;
+
+  @Setup
+  public void setup() {
+    snapshot = snapshot(0);
+    equalCopy = snapshot(0);
+    changedCopy = snapshot(1);
+  }
+
+  @Benchmark
+  public boolean deepEqualsEqual() {
+    return ReflectionHelper.deepEquals(snapshot, equalCopy);
+  }
+
+  @Benchmark
+  public boolean deepEqualsChanged() {
+    return ReflectionHelper.deepEquals(snapshot, changedCopy);
+  }
+
+  @Benchmark
+  public int deepHashCode() {
+    return ReflectionHelper.deepHashCode(snapshot);
+  }
+
+  private static Snapshot snapshot(int firstCount) {
+    Snapshot snapshot = new Snapshot();
+    for (int i = 0; i < 100; i++) {
+      Line line =
+          new Line("item-" + i, new BigDecimal(i).movePointLeft(2), LocalDate.of(2020, 1, 1));
+      line.count = i == 0 ? firstCount : i;
+      snapshot.lines.add(line);
+      snapshot.linesByName.put(line.name, line);
+    }
+    return snapshot;
+  }
+
+  static final class Snapshot {
+    private final List<Line> lines = new ArrayList<>();
+    private final Map<String, Line> linesByName = new HashMap<>();
+  }
+
+  static final class Line {
+    private final String name;
+    private final BigDecimal price;
+    private final LocalDate date;
+    private int count;
+
+    Line(String name, BigDecimal price, LocalDate date) {
+      this.name = name;
+      this.price = price;
+      this.date = date;
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package refutils.benchmark;
+
+/**
+ * Target where the benchmarked field is declared as private in the top superclass, five levels up
+ * in the class hierarchy. Every level has some fields that must be scanned.
+ */
+@SuppressWarnings("unused")
+public class DeepTarget extends DeepLevel4 {
+  private String name;
+  private int count;
+}
+
+@SuppressWarnings("unused")
+class DeepLevel1 implements Target {
+  private String level1Name;
+  protected int level1Count;
+  private Payload value;
+
+  @Override
+  public Payload getValue() {
+    return value;
+  }
+
+  @Override
+  public void setValue(Payload value) {
+    this.value = value;
+  }
+}
+
+@SuppressWarnings("unused")
+class DeepLevel2 extends DeepLevel1 {
+  private String level2Name;
+  protected int level2Count;
+}
+
+@SuppressWarnings("unused")
+class DeepLevel3 extends DeepLevel2 {
+  private String level3Name;
+  protected int level3Count;
+}
+
+@SuppressWarnings("unused")
+class DeepLevel4 extends DeepLevel3 {
+  private String level4Name;
+  protected int level4Count;
+}
@@ -0,0 +1,14 @@
+package refutils.benchmark;
+
+/** Value that is stored in the benchmark targets. The type only exists once per target. */
+public final class Payload {
+  private final int id;
+
+  public Payload(int id) {
+    this.id = id;
+  }
+
+  public int getId() {
+    return id;
+  }
+}
@@ -0,0 +1,19 @@
+package refutils.benchmark;
+
+/** Value class that can only be created with a private constructor. */
+public final class PrivateConstructorTarget {
+  private final long created;
+
+  private PrivateConstructorTarget() {
+    created = 42;
+  }
+
+  /** Same work as the private constructor, used as baseline. */
+  public static PrivateConstructorTarget create() {
+    return new PrivateConstructorTarget();
+  }
+
+  public long getCreated() {
+    return created;
+  }
+}
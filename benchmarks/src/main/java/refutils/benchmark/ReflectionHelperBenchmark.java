@@ -0,0 +1,100 @@
+package refutils.benchmark;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import refutils.ReflectionHelper;
+import refutils.util.FieldAccessor;
+
+/**
+ * Benchmarks for getting and setting fields with the ReflectionHelper. The field is either declared
+ * in the class itself (shallow) or as a private field five levels up in the hierarchy (deep).
+ * Direct access and a plain accessible java.lang.reflect.Field are used as baselines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReflectionHelperBenchmark {
+  @Param({"shallow", "deep"})
+  public String hierarchy;
+
+  private Target target;
+  private Payload payload;
+  private Field field;
+  private FieldAccessor<Object> accessor;
+
+  @Setup
+  public void setup() throws Exception {
+    target = "shallow".equals(hierarchy) ? new ShallowTarget() : new DeepTarget();
+    payload = new Payload(42);
+    target.setValue(payload);
+
+    Class<?> declaringClass = "shallow".equals(hierarchy) ? ShallowTarget.class : DeepLevel1.class;
+    field = declaringClass.getDeclaredField("value");
+    field.setAccessible(true);
+    accessor = ReflectionHelper.forClass(target.getClass()).field("value");
+  }
+
+  @Benchmark
+  public Object baselineDirectGet() {
+    return target.getValue();
+  }
+
+  @Benchmark
+  public void baselineDirectSet() {
+    target.setValue(payload);
+  }
+
+  @Benchmark
+  public Object baselineFieldGet() throws IllegalAccessException {
+    return field.get(target);
+  }
+
+  @Benchmark
+  public void baselineFieldSet() throws IllegalAccessException {
+    field.set(target, payload);
+  }
+
+  @Benchmark
+  public Object getFieldByName() {
+    return new ReflectionHelper(target).getField("value");
+  }
+
+  @Benchmark
+  public Object getFieldByClass() {
+    return new ReflectionHelper(target).getField(Payload.class);
+  }
+
+  @Benchmark
+  public void setFieldByName() {
+    new ReflectionHelper(target).setField("value", payload);
+  }
+
+  @Benchmark
+  public void setFieldByType() {
+    new ReflectionHelper(target).setField(payload);
+  }
+
+  @Benchmark
+  public Object preparedFieldGet() {
+    return accessor.get(target);
+  }
+
+  @Benchmark
+  public void preparedFieldSet() {
+    accessor.set(target, payload);
+  }
+}
@@ -0,0 +1,20 @@
+package refutils.benchmark;
+
+/** Target where the benchmarked field is declared in the class itself. */
+@SuppressWarnings("unused")
+public class ShallowTarget implements Target {
+  private String name;
+  private int count;
+  private long total;
+  private Payload value;
+
+  @Override
+  public Payload getValue() {
+    return value;
+  }
+
+  @Override
+  public void setValue(Payload value) {
+    this.value = value;
+  }
+}
@@ -0,0 +1,88 @@
+package refutils.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import refutils.ReflectionHelper;
+import refutils.util.FieldAccessor;
+
+/**
+ * Repeated get and set, with a reused ReflectionHelper and with a new ReflectionHelper per call.
+ * After warmup none of these operations should allocate, which is verified by the AllocationTest.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SteadyStateBenchmark {
+  private DeepTarget target;
+  private ReflectionHelper reflectionHelper;
+  private FieldAccessor<Object> accessor;
+  private Payload payload;
+  private long counter;
+
+  @Setup
+  public void setup() {
+    target = new DeepTarget();
+    reflectionHelper = new ReflectionHelper(target);
+    accessor = ReflectionHelper.forClass(DeepTarget.class).field("value");
+    payload = new Payload(42);
+    reflectionHelper.setField(payload);
+  }
+
+  @Benchmark
+  public Object getFieldByName() {
+    return reflectionHelper.getField("value");
+  }
+
+  @Benchmark
+  public Object getFieldByClass() {
+    return reflectionHelper.getField(Payload.class);
+  }
+
+  @Benchmark
+  public void setFieldByName() {
+    reflectionHelper.setField("value", payload);
+  }
+
+  @Benchmark
+  public void setFieldByType() {
+    reflectionHelper.setField(payload);
+  }
+
+  @Benchmark
+  public long getAndSetPrimitive() {
+    reflectionHelper.setInt("level1Count", (int) ++counter);
+    return reflectionHelper.getInt("level1Count");
+  }
+
+  @Benchmark
+  public Object newHelperGetFieldByName() {
+    return new ReflectionHelper(target).getField("value");
+  }
+
+  @Benchmark
+  public void newHelperSetPrimitive() {
+    new ReflectionHelper(target).setInt("level1Count", (int) ++counter);
+  }
+
+  @Benchmark
+  public Object preparedFieldGet() {
+    return accessor.get(target);
+  }
+
+  @Benchmark
+  public boolean probeMissingField() {
+    return reflectionHelper.hasField("missing");
+  }
+}
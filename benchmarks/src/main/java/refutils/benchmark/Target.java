@@ -0,0 +1,8 @@
+package refutils.benchmark;
+
+/** Direct access to the benchmarked field, used as baseline. */
+public interface Target {
+  Payload getValue();
+
+  void setValue(Payload value);
+}
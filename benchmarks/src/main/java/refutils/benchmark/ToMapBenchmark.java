@@ -0,0 +1,100 @@
+package refutils.benchmark;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import refutils.ReflectionHelper;
+
+/**
+ * Flattens an order line with eight fields to a map with ReflectionHelper.toMap, with the streaming
+ * visitor, and with one getField call per field as baseline, and fills a line from a map.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ToMapBenchmark {
+  private static final String[] FIELD_NAMES = {
+    "count", "date", "discount", "name", "price", "quantity", "shipped", "warehouse"
+  };
+
+  private Line line;
+  private Map<String, Object> fieldValues;
+
+  @Setup
+  public void setup() {
+    line = new Line();
+    line.name = "item-1";
+    line.price = new BigDecimal("9.99");
+    line.date = LocalDate.of(2020, 1, 1);
+    line.count = 3;
+    line.quantity = 5L;
+    line.discount = 0.1;
+    line.shipped = true;
+    line.warehouse = "north";
+    fieldValues = ReflectionHelper.toMap(line);
+  }
+
+  @Benchmark
+  public Map<String, Object> toMap() {
+    return ReflectionHelper.toMap(line);
+  }
+
+  @Benchmark
+  public void visitFields(Blackhole blackhole) {
+    ReflectionHelper.visitFields(line, (name, value) -> blackhole.consume(value));
+  }
+
+  @Benchmark
+  public Map<String, Object> getFieldPerField() {
+    ReflectionHelper helper = new ReflectionHelper(line);
+    Map<String, Object> map = new LinkedHashMap<>();
+    for (String fieldName : FIELD_NAMES) {
+      map.put(fieldName, helper.getField(fieldName));
+    }
+    return map;
+  }
+
+  @Benchmark
+  public Object populate() {
+    Line target = new Line();
+    ReflectionHelper.populate(target, fieldValues);
+    return target;
+  }
+
+  @Benchmark
+  public Object setFieldPerField() {
+    Line target = new Line();
+    ReflectionHelper helper = new ReflectionHelper(target);
+    for (Map.Entry<String, Object> fieldValue : fieldValues.entrySet()) {
+      helper.setField(fieldValue.getKey(), fieldValue.getValue());
+    }
+    return target;
+  }
+
+  static final class Line {
+    private String name;
+    private BigDecimal price;
+    private LocalDate date;
+    private int count;
+    private long quantity;
+    private double discount;
+    private boolean shipped;
+    private String warehouse;
+  }
+}
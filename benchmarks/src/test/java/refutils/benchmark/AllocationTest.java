@@ -0,0 +1,47 @@
+package refutils.benchmark;
+
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collection;
+import org.junit.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs the SteadyStateBenchmark with the GC profiler and fails if any operation allocates memory.
+ * Objects allocated per operation are at least 16 bytes, so anything above a fraction of a byte is
+ * a real allocation and not measurement noise.
+ */
+public class AllocationTest {
+  private static final double MAX_BYTES_PER_OPERATION = 1.0;
+
+  @Test
+  public void steadyStateGetAndSetShouldNotAllocate() throws Exception {
+    Options options =
+        new OptionsBuilder()
+            .include(SteadyStateBenchmark.class.getName())
+            .addProfiler(GCProfiler.class)
+            .warmupIterations(3)
+            .warmupTime(TimeValue.milliseconds(500))
+            .measurementIterations(3)
+            .measurementTime(TimeValue.milliseconds(500))
+            .forks(1)
+            .build();
+
+    Collection<RunResult> runResults = new Runner(options).run();
+
+    for (RunResult runResult : runResults) {
+      Result<?> allocation = runResult.getSecondaryResults().get("gc.alloc.rate.norm");
+      assertThat(
+          runResult.getParams().getBenchmark() + " allocates bytes per operation",
+          allocation.getScore(),
+          lessThan(MAX_BYTES_PER_OPERATION));
+    }
+  }
+}
@@ -0,0 +1,52 @@
+package refutils.util;
+
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.openjdk.jol.info.GraphLayout;
+import refutils.benchmark.DeepTarget;
+import refutils.benchmark.ShallowTarget;
+
+/**
+ * Measures the heap retained by the field metadata of one class with JOL, and fails if it grows
+ * beyond a few hundred bytes. The classes and field names are shared with the JVM and are not
+ * counted, and neither are the accessors, which are created per field on first use.
+ */
+public class FootprintTest {
+  private static final long MAX_BYTES_SHALLOW_CLASS = 512;
+  private static final long MAX_BYTES_DEEP_CLASS = 768;
+
+  @Test
+  public void metadataOfClassShouldBeCompact() {
+    assertThat(footprint(ShallowTarget.class), lessThan(MAX_BYTES_SHALLOW_CLASS));
+  }
+
+  @Test
+  public void metadataOfClassWithDeepHierarchyShouldBeCompact() {
+    assertThat(footprint(DeepTarget.class), lessThan(MAX_BYTES_DEEP_CLASS));
+  }
+
+  /** Footprint after a name lookup, which creates the name index but no accessor. */
+  private static long footprint(Class<?> type) {
+    ClassFields classFields = new ClassFields(type);
+    classFields.getAccessorByName("missing");
+
+    List<Object> shared = new ArrayList<>();
+    for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+      shared.add(current);
+      for (Field field : current.getDeclaredFields()) {
+        shared.add(field.getType());
+        shared.add(field.getName());
+      }
+    }
+    GraphLayout layout =
+        GraphLayout.parseInstance(classFields)
+            .subtract(GraphLayout.parseInstance(shared.toArray()));
+    System.out.println(type.getSimpleName() + " " + layout.toFootprint());
+    return layout.totalSize();
+  }
+}
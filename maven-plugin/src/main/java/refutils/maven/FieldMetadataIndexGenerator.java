@@ -0,0 +1,103 @@
+package refutils.maven;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Writes the field metadata index for all classes in a directory of compiled classes. The classes
+ * are loaded, but not initialized, in a class loader of their own.
+ */
+final class FieldMetadataIndexGenerator {
+  private static final String CLASS_SUFFIX = ".class";
+
+  private final File classesDirectory;
+  private final List<URL> classpath;
+  private final List<String> skippedClassNames = new ArrayList<>();
+
+  /**
+   * Creates a generator.
+   *
+   * @param classesDirectory the compiled classes, the index is written to this directory
+   * @param classpath the dependencies that are needed to load the classes
+   */
+  FieldMetadataIndexGenerator(File classesDirectory, List<URL> classpath) {
+    this.classesDirectory = classesDirectory;
+    this.classpath = classpath;
+  }
+
+  /**
+   * Scans the classes and writes the index.
+   *
+   * @return the index file
+   * @throws IOException if the index cannot be written
+   */
+  File generate() throws IOException {
+    FieldMetadataIndexWriter writer = new FieldMetadataIndexWriter();
+    List<URL> urls = new ArrayList<>();
+    urls.add(classesDirectory.toURI().toURL());
+    urls.addAll(classpath);
+    // The parent sees the platform classes, but not the classes of the build
+    try (URLClassLoader classLoader =
+        new URLClassLoader(
+            urls.toArray(new URL[0]), ClassLoader.getSystemClassLoader().getParent())) {
+      for (String className : findClassNames()) {
+        try {
+          writer.add(Class.forName(className, false, classLoader), readClassFile(className));
+        } catch (ClassNotFoundException | LinkageError ex) {
+          skippedClassNames.add(className);
+        }
+      }
+    }
+
+    File indexFile = new File(classesDirectory, FieldMetadataIndexWriter.RESOURCE_NAME);
+    if (!indexFile.getParentFile().isDirectory() && !indexFile.getParentFile().mkdirs()) {
+      throw new IOException(String.format("Cannot create directory %s", indexFile.getParent()));
+    }
+    try (OutputStream out = new FileOutputStream(indexFile)) {
+      writer.writeTo(out);
+    }
+    return indexFile;
+  }
+
+  /** Returns the classes that could not be loaded, and that are missing from the index. */
+  List<String> getSkippedClassNames() {
+    return skippedClassNames;
+  }
+
+  private byte[] readClassFile(String className) throws IOException {
+    return Files.readAllBytes(
+        new File(classesDirectory, className.replace('.', '/') + CLASS_SUFFIX).toPath());
+  }
+
+  private Set<String> findClassNames() {
+    Set<String> classNames = new TreeSet<>();
+    addClassNames(classesDirectory, "", classNames);
+    return classNames;
+  }
+
+  private static void addClassNames(File directory, String packagePrefix, Set<String> classNames) {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      String name = file.getName();
+      if (file.isDirectory()) {
+        addClassNames(file, packagePrefix + name + '.', classNames);
+      } else if (name.endsWith(CLASS_SUFFIX)
+          && !name.equals("module-info.class")
+          && !name.equals("package-info.class")) {
+        classNames.add(packagePrefix + name.substring(0, name.length() - CLASS_SUFFIX.length()));
+      }
+    }
+  }
+}
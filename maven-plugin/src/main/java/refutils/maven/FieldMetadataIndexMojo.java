@@ -0,0 +1,74 @@
+package refutils.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+/**
+ * Writes the field metadata index of the compiled classes to META-INF/refutils. At runtime the
+ * ReflectionHelper reads the declared fields of the indexed classes from the index, instead of
+ * calling getDeclaredFields on each class in the hierarchy. Superclasses from dependencies are read
+ * from their own index, or scanned.
+ */
+@Mojo(
+    name = "index",
+    defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+    requiresDependencyResolution = ResolutionScope.COMPILE,
+    threadSafe = true)
+public class FieldMetadataIndexMojo extends AbstractMojo {
+  /** The compiled classes to index, the index is written to the same directory. */
+  @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+  private File classesDirectory;
+
+  @Parameter(defaultValue = "${project.compileClasspathElements}", readonly = true, required = true)
+  private List<String> classpathElements;
+
+  /** Set to true to not write the index. */
+  @Parameter(property = "refutils.index.skip", defaultValue = "false")
+  private boolean skip;
+
+  @Override
+  public void execute() throws MojoExecutionException {
+    if (skip) {
+      getLog().info("Skipping the field metadata index");
+      return;
+    }
+    if (!classesDirectory.isDirectory()) {
+      getLog().info("No compiled classes, skipping the field metadata index");
+      return;
+    }
+
+    FieldMetadataIndexGenerator generator =
+        new FieldMetadataIndexGenerator(classesDirectory, toUrls(classpathElements));
+    try {
+      File indexFile = generator.generate();
+      for (String className : generator.getSkippedClassNames()) {
+        getLog().warn(String.format("Cannot load %s, it is not indexed", className));
+      }
+      getLog().info(String.format("Wrote the field metadata index to %s", indexFile));
+    } catch (IOException ex) {
+      throw new MojoExecutionException("Cannot write the field metadata index", ex);
+    }
+  }
+
+  private static List<URL> toUrls(List<String> paths) throws MojoExecutionException {
+    List<URL> urls = new ArrayList<>();
+    for (String path : paths) {
+      try {
+        urls.add(new File(path).toURI().toURL());
+      } catch (MalformedURLException ex) {
+        throw new MojoExecutionException(String.format("Invalid class path element %s", path), ex);
+      }
+    }
+    return urls;
+  }
+}
@@ -0,0 +1,80 @@
+package refutils.maven;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Writes the field metadata index, a binary file that lists the fields that each class declares.
+ * The index is read by the field metadata cache of reflection-utils, MetadataIndex, which puts the
+ * visible fields of a class together from the entries of the class and its superclasses.
+ *
+ * <p>The file starts with a magic number, a format version and the number of classes. Each class
+ * has its name, the CRC-32 checksum of its class file and the byte length of its entry, followed by
+ * the number of declared fields and, for each field, the name, the type name and the modifiers. The
+ * checksum is the fingerprint that tells MetadataIndex whether the class has been recompiled since
+ * the index was written.
+ */
+final class FieldMetadataIndexWriter {
+  /** Location of the index, relative to the class path root. Must match MetadataIndex. */
+  static final String RESOURCE_NAME = "META-INF/refutils/field-metadata.idx";
+
+  /** Must match MetadataIndex, which skips files with another magic number or version. */
+  static final int MAGIC = 0x52554649;
+
+  static final int VERSION = 3;
+
+  private final Map<String, byte[]> entries = new TreeMap<>();
+  private final Map<String, Integer> checksums = new TreeMap<>();
+
+  /**
+   * Adds the declared fields of a class to the index.
+   *
+   * @param type the class to scan for fields
+   * @param classFile the content of the class file that the class was loaded from
+   */
+  void add(Class<?> type, byte[] classFile) {
+    Field[] fields = type.getDeclaredFields();
+    ByteArrayOutputStream entry = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(entry)) {
+      out.writeShort(fields.length);
+      for (Field field : fields) {
+        out.writeUTF(field.getName());
+        out.writeUTF(field.getType().getName());
+        out.writeInt(field.getModifiers());
+      }
+    } catch (IOException ex) {
+      throw new IllegalStateException(
+          "This should never happen, the entry is written to memory", ex);
+    }
+    CRC32 checksum = new CRC32();
+    checksum.update(classFile, 0, classFile.length);
+    entries.put(type.getName(), entry.toByteArray());
+    checksums.put(type.getName(), (int) checksum.getValue());
+  }
+
+  /**
+   * Writes the index, the classes are sorted on name so that the same classes give the same file.
+   *
+   * @param outputStream where the index is written, it is not closed
+   * @throws IOException if the index cannot be written
+   */
+  void writeTo(OutputStream outputStream) throws IOException {
+    DataOutputStream out = new DataOutputStream(outputStream);
+    out.writeInt(MAGIC);
+    out.writeShort(VERSION);
+    out.writeInt(entries.size());
+    for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+      out.writeUTF(entry.getKey());
+      out.writeInt(checksums.get(entry.getKey()));
+      out.writeInt(entry.getValue().length);
+      out.write(entry.getValue());
+    }
+    out.flush();
+  }
+}
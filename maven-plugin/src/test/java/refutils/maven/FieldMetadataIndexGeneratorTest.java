@@ -0,0 +1,206 @@
+package refutils.maven;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import refutils.ReflectionHelper;
+import refutils.ReflectionHelperException;
+
+public class FieldMetadataIndexGeneratorTest {
+  private static final Pattern CLASS_NAME = Pattern.compile("public class (\\w+)");
+  private static final String BASE =
+      "package sample;\n"
+          + "public class Base {\n"
+          + "  private String secret;\n"
+          + "  protected int count;\n"
+          + "}\n";
+  private static final String SAMPLE =
+      "package sample;\n"
+          + "public class Sample extends Base {\n"
+          + "  String name;\n"
+          + "  static class Nested {\n"
+          + "    double value;\n"
+          + "  }\n"
+          + "}\n";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void indexShouldListAllCompiledClasses() throws Exception {
+    File classesDirectory = compile(BASE, SAMPLE);
+
+    File indexFile =
+        new FieldMetadataIndexGenerator(classesDirectory, Collections.emptyList()).generate();
+
+    assertThat(indexFile, is(new File(classesDirectory, FieldMetadataIndexWriter.RESOURCE_NAME)));
+    assertThat(
+        readClassNames(indexFile),
+        is(Arrays.asList("sample.Base", "sample.Sample", "sample.Sample$Nested")));
+  }
+
+  @Test
+  public void indexShouldOnlyListDeclaredFields() throws Exception {
+    File classesDirectory = compile(BASE, SAMPLE);
+
+    File indexFile =
+        new FieldMetadataIndexGenerator(classesDirectory, Collections.emptyList()).generate();
+
+    assertThat(readFieldNames(indexFile, "sample.Base"), is(Arrays.asList("secret", "count")));
+    assertThat(readFieldNames(indexFile, "sample.Sample"), is(Arrays.asList("name")));
+  }
+
+  @Test
+  public void reflectionHelperShouldReadIndexedClasses() throws Exception {
+    File classesDirectory = compile(BASE, SAMPLE);
+    new FieldMetadataIndexGenerator(classesDirectory, Collections.emptyList()).generate();
+    ClassLoader classLoader =
+        new URLClassLoader(
+            new URL[] {classesDirectory.toURI().toURL()}, getClass().getClassLoader());
+    Object instance = classLoader.loadClass("sample.Sample").getConstructor().newInstance();
+
+    new ReflectionHelper(instance).setField("name", "Gurka");
+    new ReflectionHelper(instance).setField("count", 42);
+
+    assertThat(new ReflectionHelper(instance).getField("name"), is("Gurka"));
+    assertThat(new ReflectionHelper(instance).getField("count"), is(42));
+  }
+
+  @Test
+  public void classesRecompiledAfterTheIndexShouldBeScanned() throws Exception {
+    File classesDirectory = compile(BASE, SAMPLE);
+    new FieldMetadataIndexGenerator(classesDirectory, Collections.emptyList()).generate();
+    // As an IDE does, without writing the index again
+    compile(
+        classesDirectory,
+        "package sample;\n"
+            + "public class Base {\n"
+            + "  private String secret;\n"
+            + "  protected long added;\n"
+            + "}\n");
+    ClassLoader classLoader =
+        new URLClassLoader(
+            new URL[] {classesDirectory.toURI().toURL()}, getClass().getClassLoader());
+    Object instance = classLoader.loadClass("sample.Sample").getConstructor().newInstance();
+
+    new ReflectionHelper(instance).setField("added", 42L);
+
+    assertThat(new ReflectionHelper(instance).getField("added"), is(42L));
+    ReflectionHelperException exception =
+        assertThrows(
+            ReflectionHelperException.class,
+            () -> new ReflectionHelper(instance).getField("count"));
+    assertThat(exception.getCause(), instanceOf(NoSuchFieldException.class));
+  }
+
+  @Test
+  public void classesThatCannotBeLoadedShouldBeSkipped() throws Exception {
+    File classesDirectory =
+        compile(
+            "package sample;\npublic class Missing {}\n",
+            "package sample;\npublic class Broken {\n  Missing missing;\n}\n");
+    Files.delete(new File(classesDirectory, "sample/Missing.class").toPath());
+    FieldMetadataIndexGenerator generator =
+        new FieldMetadataIndexGenerator(classesDirectory, Collections.emptyList());
+
+    File indexFile = generator.generate();
+
+    assertThat(generator.getSkippedClassNames(), is(Collections.singletonList("sample.Broken")));
+    assertThat(readClassNames(indexFile), is(Collections.<String>emptyList()));
+  }
+
+  private static List<String> readClassNames(File indexFile) throws IOException {
+    List<String> classNames = new ArrayList<>();
+    try (DataInputStream in = new DataInputStream(new FileInputStream(indexFile))) {
+      in.readInt();
+      in.readShort();
+      int classCount = in.readInt();
+      for (int i = 0; i < classCount; i++) {
+        classNames.add(in.readUTF());
+        in.readInt();
+        in.skipBytes(in.readInt());
+      }
+    }
+    return classNames;
+  }
+
+  private static List<String> readFieldNames(File indexFile, String className) throws IOException {
+    try (DataInputStream in = new DataInputStream(new FileInputStream(indexFile))) {
+      assertThat(in.readInt(), is(FieldMetadataIndexWriter.MAGIC));
+      assertThat((int) in.readShort(), is(FieldMetadataIndexWriter.VERSION));
+      int classCount = in.readInt();
+      for (int i = 0; i < classCount; i++) {
+        String entryClassName = in.readUTF();
+        in.readInt();
+        int length = in.readInt();
+        if (entryClassName.equals(className)) {
+          List<String> fieldNames = new ArrayList<>();
+          int fieldCount = in.readUnsignedShort();
+          for (int field = 0; field < fieldCount; field++) {
+            fieldNames.add(in.readUTF());
+            in.readUTF();
+            in.readInt();
+          }
+          return fieldNames;
+        }
+        in.skipBytes(length);
+      }
+    }
+    throw new AssertionError(className + " is not in the index");
+  }
+
+  private File compile(String... sources) throws IOException {
+    return compile(temporaryFolder.newFolder(), sources);
+  }
+
+  private File compile(File classesDirectory, String... sources) throws IOException {
+    File sourceDirectory = temporaryFolder.newFolder();
+    List<File> sourceFiles = new ArrayList<>();
+    for (String source : sources) {
+      Matcher className = CLASS_NAME.matcher(source);
+      assertThat(className.find(), is(true));
+      File sourceFile = new File(sourceDirectory, className.group(1) + ".java");
+      Files.write(sourceFile.toPath(), source.getBytes(StandardCharsets.UTF_8));
+      sourceFiles.add(sourceFile);
+    }
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    StringWriter errors = new StringWriter();
+    try (StandardJavaFileManager fileManager =
+        compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+      compiler
+          .getTask(
+              errors,
+              fileManager,
+              null,
+              Arrays.asList(
+                  "-d", classesDirectory.getPath(), "-classpath", classesDirectory.getPath()),
+              null,
+              fileManager.getJavaFileObjects(sourceFiles.toArray(new File[0])))
+          .call();
+    }
+    assertThat(errors.toString(), is(""));
+    return classesDirectory;
+  }
+}
@@ -0,0 +1,70 @@
+package refutils;
+
+import refutils.util.FieldAccessor;
+import refutils.util.FieldPath;
+import refutils.util.FieldResolver;
+
+/**
+ * Resolves fields in a class once, so that they can be read and written on many instances of the
+ * class. The returned field accessors are thread safe and can be stored in static fields. On a hot
+ * path, store the getter or setter handle of an accessor in a static final field instead, since
+ * invoking such a constant handle is as fast as a direct field access.
+ *
+ * @param <T> the class where the fields are defined
+ */
+public final class PreparedClass<T> {
+  private final FieldResolver fieldResolver;
+
+  PreparedClass(final Class<T> fieldDefinitions) {
+    if (fieldDefinitions == null) {
+      throw new NullPointerException("The class in the PreparedClass cannot be null");
+    }
+    this.fieldResolver = new FieldResolver(fieldDefinitions);
+  }
+
+  /**
+   * Resolves a field by name. This method can be used if a class has more than one field of the
+   * specified type or if the field is private and inherited.
+   *
+   * @param fieldName The name of the field
+   * @return an accessor that gets and sets the field on any instance of the class
+   */
+  public FieldAccessor<Object> field(final String fieldName) {
+    try {
+      return fieldResolver.getAccessorByName(fieldName);
+    } catch (NoSuchFieldException ex) {
+      throw new ReflectionHelperException(ex);
+    }
+  }
+
+  /**
+   * Compiles a dotted path of field names, like {@code customer.address.zip}. The first field is
+   * resolved in the class, the other fields in the runtime class of the value before them.
+   *
+   * @param path The field names separated by dots
+   * @return a path that gets and sets the last field on any instance of the class
+   */
+  public FieldPath path(final String path) {
+    try {
+      return fieldResolver.getAccessorByPath(path);
+    } catch (NoSuchFieldException ex) {
+      throw new ReflectionHelperException(ex);
+    }
+  }
+
+  /**
+   * Resolves a field by type-matching. This method can only be used if a class has one field of the
+   * specified type.
+   *
+   * @param fieldClass the class of the field
+   * @param <F> field class
+   * @return an accessor that gets and sets the field on any instance of the class
+   */
+  public <F> FieldAccessor<F> field(final Class<F> fieldClass) {
+    try {
+      return fieldResolver.getAccessorByType(fieldClass);
+    } catch (NoSuchFieldException ex) {
+      throw new ReflectionHelperException(ex);
+    }
+  }
+}
@@ -1,8 +1,23 @@
 package refutils;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import refutils.util.CacheStatistics;
 import refutils.util.ConstructorHelper;
+import refutils.util.FieldAccessor;
 import refutils.util.FieldHelper;
+import refutils.util.FieldPath;
+import refutils.util.FieldResolver;
+import refutils.util.WarmUpReport;
 
 /** This class is used to set protected fields in classes and access private constructors. */
 public final class ReflectionHelper {
@@ -11,6 +26,9 @@ public final class ReflectionHelper {
 
   private final Class<?> fieldDefinitions;
 
+  /** Shared by all helpers for the class, so that a new helper per call does not allocate. */
+  private FieldResolver fieldResolver;
+
   /**
    * Instantiates a new reflection helper with the instance where the reflection operations are
    * performed.
@@ -48,8 +66,27 @@ public final class ReflectionHelper {
    * @return the new instance
    */
   public static <T> T instantiatePrivateConstructor(final Class<T> clazz) {
+    return instantiatePrivateConstructor(new ConstructorHelper<>(clazz), clazz);
+  }
+
+  /**
+   * Creates a factory that instantiates a class with its private empty constructor. The constructor
+   * is located the first time an instance is created and is then reused, so the factory can be used
+   * to create many instances.
+   *
+   * @param clazz the class to instantiate
+   * @param <T> type of the class to instantiate
+   * @return a factory for new instances
+   */
+  public static <T> Supplier<T> privateConstructorFactory(final Class<T> clazz) {
+    ConstructorHelper<T> constructorHelper = new ConstructorHelper<>(clazz);
+    return () -> instantiatePrivateConstructor(constructorHelper, clazz);
+  }
+
+  private static <T> T instantiatePrivateConstructor(
+      final ConstructorHelper<T> constructorHelper, final Class<T> clazz) {
     try {
-      return new ConstructorHelper<>(clazz).instantiatePrivate();
+      return constructorHelper.instantiatePrivate();
     } catch (NoSuchMethodException | InstantiationException | InvocationTargetException ex) {
       throw ReflectionHelperException.createCannotInstantiateClass(clazz, ex);
     } catch (IllegalAccessException ex) {
@@ -58,6 +95,205 @@ public final class ReflectionHelper {
     }
   }
 
+  /**
+   * Prepares field lookups for a class. Fields are resolved once and can then be read and written
+   * on any number of instances, example: {@code ReflectionHelper.forClass(Foo.class).field("name")}
+   *
+   * @param clazz the class where the fields are defined
+   * @param <T> type of the class
+   * @return a prepared class that resolves fields to reusable accessors
+   */
+  public static <T> PreparedClass<T> forClass(final Class<T> clazz) {
+    return new PreparedClass<>(clazz);
+  }
+
+  /**
+   * Returns hit and miss counts for the field metadata cache, the number of classes, fields and
+   * accessors that it holds, and an estimate of the memory they retain. The visible fields of a
+   * class are only extracted the first time the class is used.
+   *
+   * @return a snapshot of the cache statistics
+   */
+  public static CacheStatistics getCacheStatistics() {
+    return FieldHelper.getCacheStatistics();
+  }
+
+  /**
+   * Removes the cached field metadata of a class, and of all cached classes that extend it,
+   * including the deep copy and compare plans and the private constructors of those classes. The
+   * compiled paths and type matches of the other cached classes are dropped, since they may hold
+   * accessors of the removed classes. Useful for hot reload tooling. The metadata of a class is
+   * stored with the class, and type matches and paths only remember classes from other class
+   * loaders if those classes are visible from the class, so a class loader can be garbage collected
+   * without clearing the cache first.
+   *
+   * @param clazz the class to remove from the cache
+   */
+  public static void clearCache(final Class<?> clazz) {
+    FieldHelper.clearCache(clazz);
+  }
+
+  /**
+   * Removes the cached field metadata of all classes that are defined by a class loader, or that
+   * extend such a class. Useful for hot reload tooling.
+   *
+   * @param classLoader the class loader of the classes to remove from the cache
+   */
+  public static void clearCache(final ClassLoader classLoader) {
+    FieldHelper.clearCache(classLoader);
+  }
+
+  /**
+   * Limits the number of classes in the field metadata cache. When a new class would exceed the
+   * limit, the least recently used class is evicted. The initial limit can be set with the system
+   * property refutils.cache.maximumSize.
+   *
+   * @param maximumSize the maximum number of cached classes, 0 means unbounded, which is the
+   *     default
+   */
+  public static void setMaximumCacheSize(final int maximumSize) {
+    FieldHelper.setMaximumCacheSize(maximumSize);
+  }
+
+  /**
+   * Fills the field metadata cache ahead of use, so that the first real lookups do not have to scan
+   * the classes. The fields of all classes are extracted and their accessors are created in
+   * parallel on the common ForkJoinPool. If the cache has a maximum size that is smaller than the
+   * number of classes, the classes warmed up first are evicted.
+   *
+   * @param classes the classes to warm up
+   * @return the number of classes and accessors, and how long it took
+   */
+  public static WarmUpReport warmUp(final Collection<Class<?>> classes) {
+    return FieldHelper.warmUp(classes);
+  }
+
+  /**
+   * Fills the field metadata cache ahead of use with all classes in a package and its subpackages,
+   * see {@link #warmUp(Collection)}. The classes are found and loaded, but not initialized, with
+   * the context class loader of the current thread.
+   *
+   * @param packagePrefix the package name, like com.example
+   * @return the number of classes and accessors, and how long it took
+   */
+  public static WarmUpReport warmUp(final String packagePrefix) {
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    return warmUp(
+        packagePrefix, classLoader == null ? ReflectionHelper.class.getClassLoader() : classLoader);
+  }
+
+  /**
+   * Fills the field metadata cache ahead of use with all classes in a package and its subpackages,
+   * see {@link #warmUp(Collection)}. The classes are found and loaded, but not initialized, with
+   * the given class loader.
+   *
+   * @param packagePrefix the package name, like com.example
+   * @param classLoader the class loader that finds and loads the classes
+   * @return the number of classes and accessors, and how long it took
+   */
+  public static WarmUpReport warmUp(final String packagePrefix, final ClassLoader classLoader) {
+    return FieldHelper.warmUp(packagePrefix, classLoader);
+  }
+
+  /**
+   * Creates a deep copy of an object graph, without serialization. Objects are instantiated without
+   * calling their constructors and copied field by field, including private and final fields.
+   * Shared references and cycles are preserved, and deep graphs do not overflow the stack.
+   * Immutable JDK values, like strings, boxed primitives, enums and java.time values, are shared
+   * with the copy. JDK collections and maps are recreated with their public constructors and
+   * comparators, the comparators are shared. Immutable collections, like those of List.of and
+   * Collections.singletonList, are shared with their elements, while unmodifiable views and the
+   * lists of Arrays.asList are copied into views of the same kind. An Optional is copied with its
+   * value, and a plain Object, like a lock, is replaced by a new Object.
+   *
+   * @param source the root of the graph, can be null
+   * @param <T> the class of the root
+   * @return the copy
+   * @throws UnsupportedOperationException if the graph contains an object that cannot be copied,
+   *     like a JDK class that is neither immutable nor a collection, or a class that extends one
+   */
+  public static <T> T deepCopy(final T source) {
+    return FieldHelper.deepCopy(source);
+  }
+
+  /**
+   * Compares two object graphs field by field, including private fields of superclasses. Primitive
+   * fields are compared first and the comparison stops at the first difference. JDK values, like
+   * strings and dates, are compared with equals, lists and arrays element by element, and sets with
+   * the equals of their elements. Cycles are followed once. Use a DeepComparator to skip fields by
+   * name or annotation.
+   *
+   * @param first the first graph, can be null
+   * @param second the second graph, can be null
+   * @return true if all fields are equal
+   */
+  public static boolean deepEquals(final Object first, final Object second) {
+    return FieldHelper.deepEquals(first, second);
+  }
+
+  /**
+   * Returns a hash code computed from all fields of an object graph, consistent with deepEquals.
+   *
+   * @param value the graph, can be null
+   * @return the hash code
+   */
+  public static int deepHashCode(final Object value) {
+    return FieldHelper.deepHashCode(value);
+  }
+
+  /**
+   * Compares two object graphs like deepEquals, and lists the paths of all fields that differ, like
+   * {@code customer.location.zip} or {@code lines[2]}.
+   *
+   * @param first the first graph, can be null
+   * @param second the second graph, can be null
+   * @return the differing paths, empty if the graphs are equal
+   */
+  public static List<String> deepDiff(final Object first, final Object second) {
+    return FieldHelper.deepDiff(first, second);
+  }
+
+  /**
+   * Returns the values of all instance fields of an object, including the private fields of its
+   * superclasses, keyed by field name in name order. A field hides fields with the same name in the
+   * superclasses, and static fields are left out. The fields are resolved once per class.
+   *
+   * @param instance the object to read
+   * @return a new map with the field values
+   */
+  public static Map<String, Object> toMap(final Object instance) {
+    return FieldHelper.toMap(instance);
+  }
+
+  /**
+   * Passes the name and value of all instance fields of an object to a visitor, in the same order
+   * as toMap, without building a map. Primitive values are boxed.
+   *
+   * @param instance the object to read
+   * @param visitor receives the field name and value
+   */
+  public static void visitFields(final Object instance, final BiConsumer<String, Object> visitor) {
+    FieldHelper.visitFields(instance, visitor);
+  }
+
+  /**
+   * Sets the instance fields of an object that are named by the keys of a map, like the ones from
+   * toMap. All fields are located before any value is set, so if a field cannot be found, no field
+   * is changed. A null key is reported as a field that cannot be found. A value of the wrong type,
+   * or a field that can never be written, like a record field, is reported after all other values
+   * are set. The first such error is thrown and the others are suppressed.
+   *
+   * @param instance the object to fill
+   * @param fieldValues field values, keyed by field name
+   */
+  public static void populate(final Object instance, final Map<String, ?> fieldValues) {
+    try {
+      FieldHelper.populate(instance, fieldValues);
+    } catch (NoSuchFieldException | IllegalArgumentException ex) {
+      throw new ReflectionHelperException(ex);
+    }
+  }
+
   /**
    * Sets a value for a field in the instance object. The method uses type-matching to set the
    * field. This method can only be used if a class has one field of the specified type.
@@ -66,9 +302,11 @@ public final class ReflectionHelper {
    */
   public void setField(final Object fieldValue) {
     try {
-      FieldHelper fieldHelper = new FieldHelper(instance, fieldDefinitions);
-      fieldHelper.setValueByType(fieldValue);
-    } catch (IllegalAccessException | NoSuchFieldException ex) {
+      @SuppressWarnings("unchecked")
+      FieldAccessor<Object> accessor =
+          (FieldAccessor<Object>) getFieldResolver().getAccessorByType(fieldValue.getClass());
+      accessor.set(instance, fieldValue);
+    } catch (NoSuchFieldException ex) {
       throw new ReflectionHelperException(ex);
     }
   }
@@ -81,12 +319,7 @@ public final class ReflectionHelper {
    * @param fieldValue The value that the field should be set to.
    */
   public void setField(final String fieldName, final Object fieldValue) {
-    try {
-      FieldHelper fieldHelper = new FieldHelper(instance, fieldDefinitions);
-      fieldHelper.setValueByName(fieldName, fieldValue);
-    } catch (IllegalAccessException | NoSuchFieldException ex) {
-      throw new ReflectionHelperException(ex);
-    }
+    getAccessorByName(fieldName).set(instance, fieldValue);
   }
 
   /**
@@ -98,15 +331,7 @@ public final class ReflectionHelper {
    * @return the value of the field
    */
   public Object getField(String fieldName) {
-    try {
-      FieldHelper fieldHelper = new FieldHelper(instance, fieldDefinitions);
-      return fieldHelper.getValueByName(fieldName);
-    } catch (IllegalAccessException ex) {
-      throw new IllegalStateException(
-          "This should never happen, since the field is always made accessible", ex);
-    } catch (NoSuchFieldException ex) {
-      throw new ReflectionHelperException(ex);
-    }
+    return getAccessorByName(fieldName).get(instance);
   }
 
   /**
@@ -119,11 +344,422 @@ public final class ReflectionHelper {
    */
   public <T> T getField(Class<T> fieldClass) {
     try {
-      FieldHelper fieldHelper = new FieldHelper(instance, fieldDefinitions);
-      return fieldHelper.getValueByType(fieldClass);
-    } catch (IllegalAccessException ex) {
-      throw new IllegalStateException(
-          "This should never happen, since the field is always made accessible", ex);
+      return getFieldResolver().getAccessorByType(fieldClass).get(instance);
+    } catch (NoSuchFieldException ex) {
+      throw new ReflectionHelperException(ex);
+    }
+  }
+
+  /**
+   * Gets the value at the end of a dotted path of field names, like {@code customer.address.zip}.
+   * The path is compiled once per class into a chain of accessors, for up to 64 different paths per
+   * class, so a deep read costs one field load per step. Each field is resolved in the runtime
+   * class of the value before it, where also private fields can be reached.
+   *
+   * @param path The field names separated by dots
+   * @return the value of the last field
+   * @throws NullPointerException if a field before the last one is null
+   */
+  public Object getPath(final String path) {
+    try {
+      return getFieldPath(path).get(instance);
+    } catch (NoSuchFieldException ex) {
+      throw new ReflectionHelperException(ex);
+    }
+  }
+
+  /**
+   * Gets the value at the end of a dotted path of field names, see {@link #getPath(String)}.
+   * Returns null if any field on the way is null.
+   *
+   * @param path The field names separated by dots
+   * @return the value of the last field, or null
+   */
+  public Object getPathNullSafe(final String path) {
+    try {
+      return getFieldPath(path).getNullSafe(instance);
+    } catch (NoSuchFieldException ex) {
+      throw new ReflectionHelperException(ex);
+    }
+  }
+
+  /**
+   * Sets the last field of a dotted path of field names, see {@link #getPath(String)}.
+   *
+   * @param path The field names separated by dots
+   * @param fieldValue The value that the field should be set to.
+   * @throws NullPointerException if a field before the last one is null
+   */
+  public void setPath(final String path, final Object fieldValue) {
+    try {
+      getFieldPath(path).set(instance, fieldValue);
+    } catch (NoSuchFieldException ex) {
+      throw new ReflectionHelperException(ex);
+    }
+  }
+
+  /**
+   * Sets the last field of a dotted path of field names, unless a field on the way is null, see
+   * {@link #getPath(String)}.
+   *
+   * @param path The field names separated by dots
+   * @param fieldValue The value that the field should be set to.
+   * @return true if the field was set, false if a field before the last one is null
+   */
+  public boolean setPathNullSafe(final String path, final Object fieldValue) {
+    try {
+      return getFieldPath(path).setNullSafe(instance, fieldValue);
+    } catch (NoSuchFieldException ex) {
+      throw new ReflectionHelperException(ex);
+    }
+  }
+
+  /**
+   * Checks if the instance object has a field with the name. No exception is created when the field
+   * is missing, so this method can be used to probe for fields.
+   *
+   * @param fieldName The name of the field
+   * @return true if the field can be located
+   */
+  public boolean hasField(final String fieldName) {
+    return getFieldResolver().findAccessorByName(fieldName) != null;
+  }
+
+  /**
+   * Gets the value of a field in the instance object if the field exists. No exception is created
+   * when the field is missing. Use hasField to tell a missing field from a field with null value.
+   *
+   * @param fieldName The name of the field
+   * @return the value of the field, or empty if the field is missing or the value is null
+   */
+  public Optional<Object> tryGetField(final String fieldName) {
+    FieldAccessor<Object> accessor = getFieldResolver().findAccessorByName(fieldName);
+    return accessor == null ? Optional.empty() : Optional.ofNullable(accessor.get(instance));
+  }
+
+  /**
+   * Sets a value for a field in the instance object if the field exists. No exception is created
+   * when the field is missing.
+   *
+   * @param fieldName The name of the field
+   * @param fieldValue The value that the field should be set to.
+   * @return true if the field was set, false if the field is missing
+   */
+  public boolean trySetField(final String fieldName, final Object fieldValue) {
+    FieldAccessor<Object> accessor = getFieldResolver().findAccessorByName(fieldName);
+    if (accessor == null) {
+      return false;
+    }
+    accessor.set(instance, fieldValue);
+    return true;
+  }
+
+  /**
+   * Sets values for several fields in the instance object. All fields are located before any value
+   * is set, so if a field cannot be found, no field is changed. All errors are reported together in
+   * one exception, where the first error is the cause and the others are suppressed.
+   *
+   * @param fieldValues field values, keyed by field name
+   */
+  public void setFields(final Map<String, ?> fieldValues) {
+    Map<String, Exception> errors = new LinkedHashMap<>();
+    List<FieldAccessor<Object>> accessors = getAccessorsByName(fieldValues.keySet(), errors);
+    if (!errors.isEmpty()) {
+      throw ReflectionHelperException.createFieldErrors(errors);
+    }
+
+    Iterator<FieldAccessor<Object>> accessorIterator = accessors.iterator();
+    for (Map.Entry<String, ?> fieldValue : fieldValues.entrySet()) {
+      try {
+        accessorIterator.next().set(instance, fieldValue.getValue());
+      } catch (IllegalArgumentException ex) {
+        errors.put(fieldValue.getKey(), ex);
+      }
+    }
+    if (!errors.isEmpty()) {
+      throw ReflectionHelperException.createFieldErrors(errors);
+    }
+  }
+
+  /**
+   * Gets the values of several fields in the instance object. If any field cannot be found, all
+   * missing fields are reported together in one exception.
+   *
+   * @param fieldNames The names of the fields
+   * @return the field values, keyed by field name in the same order as the names
+   */
+  public Map<String, Object> getFields(final String... fieldNames) {
+    Map<String, Exception> errors = new LinkedHashMap<>();
+    List<FieldAccessor<Object>> accessors = getAccessorsByName(Arrays.asList(fieldNames), errors);
+    if (!errors.isEmpty()) {
+      throw ReflectionHelperException.createFieldErrors(errors);
+    }
+
+    Map<String, Object> fieldValues = new LinkedHashMap<>(fieldNames.length * 4 / 3 + 1);
+    for (int i = 0; i < fieldNames.length; i++) {
+      fieldValues.put(fieldNames[i], accessors.get(i).get(instance));
+    }
+    return fieldValues;
+  }
+
+  /**
+   * Gets the value of a boolean field in the instance object without boxing.
+   *
+   * @param fieldName The name of the field
+   * @return the value of the field
+   */
+  public boolean getBoolean(final String fieldName) {
+    return getAccessorByName(fieldName).getBoolean(instance);
+  }
+
+  /**
+   * Sets a value for a boolean field in the instance object without boxing.
+   *
+   * @param fieldName The name of the field
+   * @param fieldValue The value that the field should be set to.
+   */
+  public void setBoolean(final String fieldName, final boolean fieldValue) {
+    getAccessorByName(fieldName).setBoolean(instance, fieldValue);
+  }
+
+  /**
+   * Gets the value of a byte field in the instance object without boxing.
+   *
+   * @param fieldName The name of the field
+   * @return the value of the field
+   */
+  public byte getByte(final String fieldName) {
+    return getAccessorByName(fieldName).getByte(instance);
+  }
+
+  /**
+   * Sets a value for a byte field in the instance object without boxing.
+   *
+   * @param fieldName The name of the field
+   * @param fieldValue The value that the field should be set to.
+   */
+  public void setByte(final String fieldName, final byte fieldValue) {
+    getAccessorByName(fieldName).setByte(instance, fieldValue);
+  }
+
+  /**
+   * Gets the value of a char field in the instance object without boxing.
+   *
+   * @param fieldName The name of the field
+   * @return the value of the field
+   */
+  public char getChar(final String fieldName) {
+    return getAccessorByName(fieldName).getChar(instance);
+  }
+
+  /**
+   * Sets a value for a char field in the instance object without boxing.
+   *
+   * @param fieldName The name of the field
+   * @param fieldValue The value that the field should be set to.
+   */
+  public void setChar(final String fieldName, final char fieldValue) {
+    getAccessorByName(fieldName).setChar(instance, fieldValue);
+  }
+
+  /**
+   * Gets the value of a short field in the instance object without boxing.
+   *
+   * @param fieldName The name of the field
+   * @return the value of the field
+   */
+  public short getShort(final String fieldName) {
+    return getAccessorByName(fieldName).getShort(instance);
+  }
+
+  /**
+   * Sets a value for a short field in the instance object without boxing.
+   *
+   * @param fieldName The name of the field
+   * @param fieldValue The value that the field should be set to.
+   */
+  public void setShort(final String fieldName, final short fieldValue) {
+    getAccessorByName(fieldName).setShort(instance, fieldValue);
+  }
+
+  /**
+   * Gets the value of an int field in the instance object without boxing.
+   *
+   * @param fieldName The name of the field
+   * @return the value of the field
+   */
+  public int getInt(final String fieldName) {
+    return getAccessorByName(fieldName).getInt(instance);
+  }
+
+  /**
+   * Sets a value for an int field in the instance object without boxing.
+   *
+   * @param fieldName The name of the field
+   * @param fieldValue The value that the field should be set to.
+   */
+  public void setInt(final String fieldName, final int fieldValue) {
+    getAccessorByName(fieldName).setInt(instance, fieldValue);
+  }
+
+  /**
+   * Gets the value of a long field in the instance object without boxing.
+   *
+   * @param fieldName The name of the field
+   * @return the value of the field
+   */
+  public long getLong(final String fieldName) {
+    return getAccessorByName(fieldName).getLong(instance);
+  }
+
+  /**
+   * Sets a value for a long field in the instance object without boxing.
+   *
+   * @param fieldName The name of the field
+   * @param fieldValue The value that the field should be set to.
+   */
+  public void setLong(final String fieldName, final long fieldValue) {
+    getAccessorByName(fieldName).setLong(instance, fieldValue);
+  }
+
+  /**
+   * Gets the value of a float field in the instance object without boxing.
+   *
+   * @param fieldName The name of the field
+   * @return the value of the field
+   */
+  public float getFloat(final String fieldName) {
+    return getAccessorByName(fieldName).getFloat(instance);
+  }
+
+  /**
+   * Sets a value for a float field in the instance object without boxing.
+   *
+   * @param fieldName The name of the field
+   * @param fieldValue The value that the field should be set to.
+   */
+  public void setFloat(final String fieldName, final float fieldValue) {
+    getAccessorByName(fieldName).setFloat(instance, fieldValue);
+  }
+
+  /**
+   * Gets the value of a double field in the instance object without boxing.
+   *
+   * @param fieldName The name of the field
+   * @return the value of the field
+   */
+  public double getDouble(final String fieldName) {
+    return getAccessorByName(fieldName).getDouble(instance);
+  }
+
+  /**
+   * Sets a value for a double field in the instance object without boxing.
+   *
+   * @param fieldName The name of the field
+   * @param fieldValue The value that the field should be set to.
+   */
+  public void setDouble(final String fieldName, final double fieldValue) {
+    getAccessorByName(fieldName).setDouble(instance, fieldValue);
+  }
+
+  /**
+   * Atomically sets a field in the instance object if the current value is the expected value.
+   * Reference fields are compared with ==. On Java 8 only public volatile instance fields of public
+   * classes are supported, since the atomic field updaters check the access of the library.
+   *
+   * @param fieldName The name of the field
+   * @param expected The expected current value
+   * @param newValue The value that the field should be set to.
+   * @return true if the field was set
+   */
+  public boolean compareAndSet(
+      final String fieldName, final Object expected, final Object newValue) {
+    return getAccessorByName(fieldName).compareAndSet(instance, expected, newValue);
+  }
+
+  /**
+   * Atomically sets a field in the instance object and returns the previous value. On Java 8 only
+   * public volatile instance fields of public classes are supported, since the atomic field
+   * updaters check the access of the library.
+   *
+   * @param fieldName The name of the field
+   * @param newValue The value that the field should be set to.
+   * @return The previous field value
+   */
+  public Object getAndSet(final String fieldName, final Object newValue) {
+    return getAccessorByName(fieldName).getAndSet(instance, newValue);
+  }
+
+  /**
+   * Atomically adds to an int or long field in the instance object. On Java 8 only public volatile
+   * instance fields of public classes are supported, since the atomic field updaters check the
+   * access of the library.
+   *
+   * @param fieldName The name of the field
+   * @param delta The value to add
+   * @return The previous field value
+   */
+  public long getAndAdd(final String fieldName, final long delta) {
+    FieldAccessor<Object> accessor = getAccessorByName(fieldName);
+    if (accessor.getField().getType() == int.class) {
+      return accessor.getAndAddInt(instance, Math.toIntExact(delta));
+    }
+    return accessor.getAndAddLong(instance, delta);
+  }
+
+  /**
+   * Atomically increments an int or long field in the instance object by one. On Java 8 only public
+   * volatile instance fields of public classes are supported, since the atomic field updaters check
+   * the access of the library.
+   *
+   * @param fieldName The name of the field
+   * @return The updated field value
+   */
+  public long incrementAndGet(final String fieldName) {
+    FieldAccessor<Object> accessor = getAccessorByName(fieldName);
+    if (accessor.getField().getType() == int.class) {
+      return accessor.incrementAndGetInt(instance);
+    }
+    return accessor.incrementAndGetLong(instance);
+  }
+
+  private FieldResolver getFieldResolver() {
+    if (fieldResolver == null) {
+      if (!fieldDefinitions.isInstance(instance)) {
+        throw new IllegalArgumentException(
+            String.format(
+                "Instance of %s is not a subclass of %s",
+                instance.getClass().getSimpleName(), fieldDefinitions.getSimpleName()));
+      }
+      fieldResolver = FieldResolver.of(fieldDefinitions);
+    }
+    return fieldResolver;
+  }
+
+  private List<FieldAccessor<Object>> getAccessorsByName(
+      final Collection<String> fieldNames, final Map<String, Exception> errors) {
+    List<FieldAccessor<Object>> accessors = new ArrayList<>(fieldNames.size());
+    for (String fieldName : fieldNames) {
+      try {
+        accessors.add(getFieldResolver().getAccessorByName(fieldName));
+      } catch (NoSuchFieldException | IllegalArgumentException ex) {
+        errors.put(fieldName, ex);
+      }
+    }
+    return accessors;
+  }
+
+  private FieldAccessor<Object> getAccessorByName(final String fieldName) {
+    try {
+      return getFieldResolver().getAccessorByName(fieldName);
+    } catch (NoSuchFieldException ex) {
+      throw new ReflectionHelperException(ex);
+    }
+  }
+
+  private FieldPath getFieldPath(final String path) {
+    try {
+      return getFieldResolver().getAccessorByPath(path);
     } catch (NoSuchFieldException ex) {
       throw new ReflectionHelperException(ex);
     }
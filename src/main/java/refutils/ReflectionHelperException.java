@@ -1,5 +1,8 @@
 package refutils;
 
+import java.util.Iterator;
+import java.util.Map;
+
 /** Common Runtime Exception for all reflection methods */
 public class ReflectionHelperException extends RuntimeException {
   public ReflectionHelperException(Exception e) {
@@ -15,4 +18,21 @@ public class ReflectionHelperException extends RuntimeException {
     return new ReflectionHelperException(
         String.format("Cannot instantiate Class: %s constructor", clazz.getName()), ex);
   }
+
+  public static ReflectionHelperException createFieldErrors(Map<String, Exception> errors) {
+    StringBuilder message = new StringBuilder();
+    for (Map.Entry<String, Exception> error : errors.entrySet()) {
+      message.append(message.length() == 0 ? "" : ", ");
+      message.append(error.getKey()).append(" (").append(error.getValue().getMessage()).append(')');
+    }
+    Iterator<Exception> exceptions = errors.values().iterator();
+    ReflectionHelperException reflectionHelperException =
+        new ReflectionHelperException(
+            String.format("Cannot access %s field(s): %s", errors.size(), message),
+            exceptions.next());
+    while (exceptions.hasNext()) {
+      reflectionHelperException.addSuppressed(exceptions.next());
+    }
+    return reflectionHelperException;
+  }
 }
@@ -0,0 +1,147 @@
+package refutils.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Reads and writes a field with an explicit memory ordering. On Java 9 and later the VarHandle
+ * access modes are used. On Java 8 only volatile fields are supported, where plain access already
+ * has volatile semantics, which is at least as strong as every mode.
+ */
+final class AccessModeHandles {
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER_TYPE =
+      MethodType.methodType(void.class, Object.class, Object.class);
+
+  private final Field field;
+  private final MethodHandle getVolatile;
+  private final MethodHandle setVolatile;
+  private final MethodHandle getAcquire;
+  private final MethodHandle setRelease;
+  private final MethodHandle getOpaque;
+  private final MethodHandle setOpaque;
+
+  private AccessModeHandles(
+      Field field,
+      MethodHandle getVolatile,
+      MethodHandle setVolatile,
+      MethodHandle getAcquire,
+      MethodHandle setRelease,
+      MethodHandle getOpaque,
+      MethodHandle setOpaque) {
+    this.field = field;
+    this.getVolatile = getVolatile;
+    this.setVolatile = setVolatile;
+    this.getAcquire = getAcquire;
+    this.setRelease = setRelease;
+    this.getOpaque = getOpaque;
+    this.setOpaque = setOpaque;
+  }
+
+  static AccessModeHandles create(Field field) {
+    if (VarHandleSupport.isAvailable()) {
+      return new AccessModeHandles(
+          field,
+          getter(field, "GET_VOLATILE"),
+          setter(field, "SET_VOLATILE"),
+          getter(field, "GET_ACQUIRE"),
+          setter(field, "SET_RELEASE"),
+          getter(field, "GET_OPAQUE"),
+          setter(field, "SET_OPAQUE"));
+    }
+    return createWithPlainAccess(field);
+  }
+
+  /**
+   * Creates the Java 8 version, where every mode is plain access to a volatile field. Not private,
+   * so that the tests can use it on later versions.
+   */
+  static AccessModeHandles createWithPlainAccess(Field field) {
+    if (!Modifier.isVolatile(field.getModifiers())) {
+      throw new UnsupportedOperationException(
+          String.format("Access modes on field %s require Java 9, or a volatile field", field));
+    }
+    MethodHandle getter = plainGetter(field);
+    MethodHandle setter = Modifier.isFinal(field.getModifiers()) ? null : plainSetter(field);
+    return new AccessModeHandles(field, getter, setter, getter, setter, getter, setter);
+  }
+
+  Object getVolatile(Object instance) {
+    return get(getVolatile, instance);
+  }
+
+  void setVolatile(Object instance, Object value) {
+    set(setVolatile, instance, value);
+  }
+
+  Object getAcquire(Object instance) {
+    return get(getAcquire, instance);
+  }
+
+  void setRelease(Object instance, Object value) {
+    set(setRelease, instance, value);
+  }
+
+  Object getOpaque(Object instance) {
+    return get(getOpaque, instance);
+  }
+
+  void setOpaque(Object instance, Object value) {
+    set(setOpaque, instance, value);
+  }
+
+  private Object get(MethodHandle getter, Object instance) {
+    try {
+      return (Object) getter.invokeExact(instance);
+    } catch (Throwable ex) {
+      throw FieldAccessor.propagate(ex);
+    }
+  }
+
+  private void set(MethodHandle setter, Object instance, Object value) {
+    if (Modifier.isFinal(field.getModifiers())) {
+      throw new UnsupportedOperationException(
+          String.format("Cannot set final field %s with an access mode", field));
+    }
+    try {
+      setter.invokeExact(instance, value);
+    } catch (Throwable ex) {
+      throw FieldAccessor.propagate(ex);
+    }
+  }
+
+  private static MethodHandle getter(Field field, String accessModeName) {
+    return VarHandleSupport.accessModeHandle(field, accessModeName).asType(GETTER_TYPE);
+  }
+
+  private static MethodHandle setter(Field field, String accessModeName) {
+    return VarHandleSupport.accessModeHandle(field, accessModeName).asType(SETTER_TYPE);
+  }
+
+  private static MethodHandle plainGetter(Field field) {
+    try {
+      MethodHandle getter = MethodHandles.lookup().unreflectGetter(field);
+      if (Modifier.isStatic(field.getModifiers())) {
+        getter = MethodHandles.dropArguments(getter, 0, Object.class);
+      }
+      return getter.asType(GETTER_TYPE);
+    } catch (IllegalAccessException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  private static MethodHandle plainSetter(Field field) {
+    try {
+      MethodHandle setter = MethodHandles.lookup().unreflectSetter(field);
+      if (Modifier.isStatic(field.getModifiers())) {
+        setter = MethodHandles.dropArguments(setter, 0, Object.class);
+      }
+      return setter.asType(SETTER_TYPE);
+    } catch (IllegalAccessException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+}
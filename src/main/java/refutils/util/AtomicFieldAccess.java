@@ -0,0 +1,230 @@
+package refutils.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Lock-free atomic operations on a field. On Java 9 and later the operations are backed by a
+ * VarHandle and work on any field that is not final. On Java 8 the atomic field updaters are used,
+ * which only work for volatile int, long and reference fields that the library can access. The
+ * updaters check the access of their caller and ignore setAccessible, so private and
+ * package-private fields of other classes are not supported.
+ */
+abstract class AtomicFieldAccess {
+  final Field field;
+
+  private AtomicFieldAccess(Field field) {
+    this.field = field;
+  }
+
+  static AtomicFieldAccess create(Field field) {
+    if (Modifier.isFinal(field.getModifiers())) {
+      throw new UnsupportedOperationException(
+          String.format("Cannot make atomic operations on final field %s", field));
+    }
+    if (VarHandleSupport.isAvailable()) {
+      return new VarHandleAccess(field);
+    }
+    return new UpdaterAccess(field);
+  }
+
+  abstract boolean compareAndSet(Object instance, Object expected, Object newValue);
+
+  abstract Object getAndSet(Object instance, Object newValue);
+
+  abstract boolean compareAndSetInt(Object instance, int expected, int newValue);
+
+  abstract int getAndAddInt(Object instance, int delta);
+
+  abstract boolean compareAndSetLong(Object instance, long expected, long newValue);
+
+  abstract long getAndAddLong(Object instance, long delta);
+
+  void checkType(Class<?> requestedType) {
+    if (field.getType() != requestedType) {
+      throw new IllegalArgumentException(
+          String.format("Field %s is not of type %s", field, requestedType));
+    }
+  }
+
+  /** Atomic operations backed by VarHandle access modes. */
+  private static final class VarHandleAccess extends AtomicFieldAccess {
+    private final MethodHandle compareAndSet;
+    private final MethodHandle getAndSet;
+    private final MethodHandle exactCompareAndSet;
+    private final MethodHandle getAndAdd;
+
+    VarHandleAccess(Field field) {
+      super(field);
+      Class<?> type = field.getType();
+      MethodHandle compareAndSetHandle =
+          VarHandleSupport.accessModeHandle(field, "COMPARE_AND_SET");
+      this.compareAndSet =
+          compareAndSetHandle.asType(
+              MethodType.methodType(boolean.class, Object.class, Object.class, Object.class));
+      this.exactCompareAndSet = compareAndSetHandle;
+      this.getAndSet =
+          VarHandleSupport.accessModeHandle(field, "GET_AND_SET")
+              .asType(MethodType.methodType(Object.class, Object.class, Object.class));
+      this.getAndAdd =
+          type == int.class || type == long.class
+              ? VarHandleSupport.accessModeHandle(field, "GET_AND_ADD")
+              : null;
+    }
+
+    @Override
+    boolean compareAndSet(Object instance, Object expected, Object newValue) {
+      try {
+        return (boolean) compareAndSet.invokeExact(instance, expected, newValue);
+      } catch (Throwable ex) {
+        throw FieldAccessor.propagate(ex);
+      }
+    }
+
+    @Override
+    Object getAndSet(Object instance, Object newValue) {
+      try {
+        return (Object) getAndSet.invokeExact(instance, newValue);
+      } catch (Throwable ex) {
+        throw FieldAccessor.propagate(ex);
+      }
+    }
+
+    @Override
+    boolean compareAndSetInt(Object instance, int expected, int newValue) {
+      checkType(int.class);
+      try {
+        return (boolean) exactCompareAndSet.invokeExact(instance, expected, newValue);
+      } catch (Throwable ex) {
+        throw FieldAccessor.propagate(ex);
+      }
+    }
+
+    @Override
+    int getAndAddInt(Object instance, int delta) {
+      checkType(int.class);
+      try {
+        return (int) getAndAdd.invokeExact(instance, delta);
+      } catch (Throwable ex) {
+        throw FieldAccessor.propagate(ex);
+      }
+    }
+
+    @Override
+    boolean compareAndSetLong(Object instance, long expected, long newValue) {
+      checkType(long.class);
+      try {
+        return (boolean) exactCompareAndSet.invokeExact(instance, expected, newValue);
+      } catch (Throwable ex) {
+        throw FieldAccessor.propagate(ex);
+      }
+    }
+
+    @Override
+    long getAndAddLong(Object instance, long delta) {
+      checkType(long.class);
+      try {
+        return (long) getAndAdd.invokeExact(instance, delta);
+      } catch (Throwable ex) {
+        throw FieldAccessor.propagate(ex);
+      }
+    }
+  }
+
+  /**
+   * Atomic operations backed by the field updaters, used on Java 8. Not private, so that the tests
+   * can use it on later versions.
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  static final class UpdaterAccess extends AtomicFieldAccess {
+    private final AtomicIntegerFieldUpdater intUpdater;
+    private final AtomicLongFieldUpdater longUpdater;
+    private final AtomicReferenceFieldUpdater referenceUpdater;
+
+    UpdaterAccess(Field field) {
+      super(field);
+      int modifiers = field.getModifiers();
+      if (!Modifier.isVolatile(modifiers) || Modifier.isStatic(modifiers)) {
+        throw new UnsupportedOperationException(
+            String.format(
+                "Atomic operations on field %s require Java 9, or a volatile instance field",
+                field));
+      }
+      Class<?> declaringClass = field.getDeclaringClass();
+      Class<?> type = field.getType();
+      try {
+        this.intUpdater =
+            type == int.class
+                ? AtomicIntegerFieldUpdater.newUpdater(declaringClass, field.getName())
+                : null;
+        this.longUpdater =
+            type == long.class
+                ? AtomicLongFieldUpdater.newUpdater(declaringClass, field.getName())
+                : null;
+        this.referenceUpdater =
+            type.isPrimitive()
+                ? null
+                : AtomicReferenceFieldUpdater.newUpdater(declaringClass, type, field.getName());
+      } catch (RuntimeException ex) {
+        // The updaters check that the library has access to the field
+        throw new UnsupportedOperationException(
+            String.format("Atomic operations on field %s require Java 9", field), ex);
+      }
+      if (type.isPrimitive() && intUpdater == null && longUpdater == null) {
+        throw new UnsupportedOperationException(
+            String.format("Atomic operations on field %s require Java 9", field));
+      }
+    }
+
+    @Override
+    boolean compareAndSet(Object instance, Object expected, Object newValue) {
+      if (intUpdater != null) {
+        return intUpdater.compareAndSet(instance, (Integer) expected, (Integer) newValue);
+      }
+      if (longUpdater != null) {
+        return longUpdater.compareAndSet(instance, (Long) expected, (Long) newValue);
+      }
+      return referenceUpdater.compareAndSet(instance, expected, newValue);
+    }
+
+    @Override
+    Object getAndSet(Object instance, Object newValue) {
+      if (intUpdater != null) {
+        return intUpdater.getAndSet(instance, (Integer) newValue);
+      }
+      if (longUpdater != null) {
+        return longUpdater.getAndSet(instance, (Long) newValue);
+      }
+      return referenceUpdater.getAndSet(instance, newValue);
+    }
+
+    @Override
+    boolean compareAndSetInt(Object instance, int expected, int newValue) {
+      checkType(int.class);
+      return intUpdater.compareAndSet(instance, expected, newValue);
+    }
+
+    @Override
+    int getAndAddInt(Object instance, int delta) {
+      checkType(int.class);
+      return intUpdater.getAndAdd(instance, delta);
+    }
+
+    @Override
+    boolean compareAndSetLong(Object instance, long expected, long newValue) {
+      checkType(long.class);
+      return longUpdater.compareAndSet(instance, expected, newValue);
+    }
+
+    @Override
+    long getAndAddLong(Object instance, long delta) {
+      checkType(long.class);
+      return longUpdater.getAndAdd(instance, delta);
+    }
+  }
+}
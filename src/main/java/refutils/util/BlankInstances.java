@@ -0,0 +1,59 @@
+package refutils.util;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+/**
+ * Finds constructors that create instances without running the constructors of the class, like
+ * deserialization does. The JDK serialization support is used when available, otherwise the empty
+ * constructor of the class is used, and must exist.
+ */
+final class BlankInstances {
+  private static final Object REFLECTION_FACTORY;
+  private static final Method NEW_CONSTRUCTOR_FOR_SERIALIZATION;
+
+  static {
+    Object reflectionFactory = null;
+    Method newConstructorForSerialization = null;
+    try {
+      Class<?> factoryClass = Class.forName("sun.reflect.ReflectionFactory");
+      reflectionFactory = factoryClass.getMethod("getReflectionFactory").invoke(null);
+      newConstructorForSerialization =
+          factoryClass.getMethod("newConstructorForSerialization", Class.class, Constructor.class);
+    } catch (ReflectiveOperationException | RuntimeException ex) {
+      // Not available on this JVM, empty constructors are used instead
+      reflectionFactory = null;
+      newConstructorForSerialization = null;
+    }
+    REFLECTION_FACTORY = reflectionFactory;
+    NEW_CONSTRUCTOR_FOR_SERIALIZATION = newConstructorForSerialization;
+  }
+
+  private BlankInstances() {}
+
+  /**
+   * Returns an accessible constructor without arguments, that creates instances of the class.
+   *
+   * @param type a concrete class
+   * @return the constructor
+   * @throws UnsupportedOperationException if instances cannot be created
+   */
+  static Constructor<?> constructor(Class<?> type) {
+    try {
+      Constructor<?> constructor;
+      if (NEW_CONSTRUCTOR_FOR_SERIALIZATION != null) {
+        constructor =
+            (Constructor<?>)
+                NEW_CONSTRUCTOR_FOR_SERIALIZATION.invoke(
+                    REFLECTION_FACTORY, type, Object.class.getDeclaredConstructor());
+      } else {
+        constructor = type.getDeclaredConstructor();
+      }
+      constructor.setAccessible(true);
+      return constructor;
+    } catch (ReflectiveOperationException | RuntimeException ex) {
+      throw new UnsupportedOperationException(
+          String.format("Cannot create instances of %s without a constructor", type.getName()), ex);
+    }
+  }
+}
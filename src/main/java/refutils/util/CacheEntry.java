@@ -0,0 +1,64 @@
+package refutils.util;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bookkeeping for one class in the field metadata cache. The entry is kept in a registry with weak
+ * class keys, so it must never reference the class or its fields.
+ */
+final class CacheEntry {
+  private final int fieldCount;
+  private final AtomicInteger accessorCount = new AtomicInteger();
+  private final AtomicBoolean registered = new AtomicBoolean();
+
+  /** Tick of the cache clock at the last lookup, see FieldCache. */
+  private volatile long lastAccess;
+
+  /** Cleared by the first counted lookup, which is not a hit since the extraction was a miss. */
+  private volatile boolean firstLookup = true;
+
+  CacheEntry(int fieldCount) {
+    this.fieldCount = fieldCount;
+  }
+
+  int getFieldCount() {
+    return fieldCount;
+  }
+
+  int getAccessorCount() {
+    return accessorCount.get();
+  }
+
+  void accessorCreated() {
+    accessorCount.incrementAndGet();
+  }
+
+  /**
+   * Returns true for the first lookup that finds this entry, which registers it. An entry whose
+   * metadata was extracted twice in a race, and then discarded, is never registered.
+   */
+  boolean takeRegistration() {
+    return !registered.get() && registered.compareAndSet(false, true);
+  }
+
+  /** Returns true for the first counted lookup of the class. */
+  boolean takeFirstLookup() {
+    if (!firstLookup) {
+      return false;
+    }
+    firstLookup = false;
+    return true;
+  }
+
+  long getLastAccess() {
+    return lastAccess;
+  }
+
+  /** Stores the tick, the field is only written when the clock has moved since the last lookup. */
+  void accessed(long tick) {
+    if (lastAccess != tick) {
+      lastAccess = tick;
+    }
+  }
+}
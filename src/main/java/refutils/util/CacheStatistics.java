@@ -0,0 +1,113 @@
+package refutils.util;
+
+/**
+ * A snapshot of how well the field metadata cache has performed since the class was loaded, and of
+ * how many classes, fields and accessors it currently holds. The size estimate is computed from
+ * those counts with fixed sizes per item, it is not a measurement of memory.
+ */
+public final class CacheStatistics {
+  /**
+   * Estimated bytes per cached class: the metadata object, its bookkeeping, the three field arrays
+   * and the maps for type matches and plans, before anything is added to them.
+   */
+  static final long BYTES_PER_CLASS = 352;
+
+  /** Estimated bytes per visible field: a name, a type and a declaring class in the arrays. */
+  static final long BYTES_PER_FIELD = 16;
+
+  /**
+   * Estimated bytes per accessor: the accessor, its Field object and the getter method handles. The
+   * lambda forms behind the handles are shared by all fields of the same type and are not counted.
+   */
+  static final long BYTES_PER_ACCESSOR = 256;
+
+  private final long hitCount;
+  private final long missCount;
+  private final long evictionCount;
+  private final int classCount;
+  private final long fieldCount;
+  private final long accessorCount;
+
+  CacheStatistics(
+      long hitCount,
+      long missCount,
+      long evictionCount,
+      int classCount,
+      long fieldCount,
+      long accessorCount) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+    this.classCount = classCount;
+    this.fieldCount = fieldCount;
+    this.accessorCount = accessorCount;
+  }
+
+  /**
+   * Number of lookups that found the field metadata in the cache. Lookups that the cache makes for
+   * the superclasses of a requested class are not counted.
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Number of classes whose field metadata had to be extracted, including superclasses that were
+   * extracted as part of the lookup of a subclass.
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /** Number of hits and misses in total. */
+  public long getRequestCount() {
+    return hitCount + missCount;
+  }
+
+  /** Number of classes that were evicted because the cache reached its maximum size. */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /** Number of classes in the cache. */
+  public int getClassCount() {
+    return classCount;
+  }
+
+  /** Number of visible fields held for the classes in the cache. */
+  public long getFieldCount() {
+    return fieldCount;
+  }
+
+  /** Number of field accessors, each with its own method handles, held by the cache. */
+  public long getAccessorCount() {
+    return accessorCount;
+  }
+
+  /**
+   * Rough size estimate, in bytes, computed as the number of classes, fields and accessors times a
+   * fixed size of each, taken from a 64 bit JVM with compressed references. Nothing is measured, so
+   * the estimate is only useful to compare cache sizes. Setters, which are created on the first
+   * write, compiled paths, type matches and plans are not included, so the real size is larger for
+   * classes that use them.
+   */
+  public long getSizeEstimate() {
+    return classCount * BYTES_PER_CLASS
+        + fieldCount * BYTES_PER_FIELD
+        + accessorCount * BYTES_PER_ACCESSOR;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "CacheStatistics{hitCount=%s, missCount=%s, evictionCount=%s, classCount=%s, fieldCount=%s,"
+            + " accessorCount=%s, sizeEstimate=%s}",
+        hitCount,
+        missCount,
+        evictionCount,
+        classCount,
+        fieldCount,
+        accessorCount,
+        getSizeEstimate());
+  }
+}
@@ -0,0 +1,199 @@
+package refutils.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Fills the field metadata cache ahead of use. The classes are scanned for fields, and the field
+ * accessors are created, in parallel on the common ForkJoinPool.
+ */
+final class CacheWarmUp {
+  /** Number of classes that are warmed up by one task, without forking. */
+  private static final int CLASSES_PER_TASK = 8;
+
+  private static final String CLASS_SUFFIX = ".class";
+
+  private final LongAdder classCount = new LongAdder();
+  private final LongAdder accessorCount = new LongAdder();
+  private final LongAdder skippedFieldCount = new LongAdder();
+  private final Queue<String> failedClassNames = new ConcurrentLinkedQueue<>();
+
+  private CacheWarmUp() {}
+
+  /**
+   * Warms up the cache for the given classes.
+   *
+   * @param classes the classes to scan for fields
+   * @return the outcome of the warm up
+   */
+  static WarmUpReport warmUp(Collection<Class<?>> classes) {
+    long start = System.nanoTime();
+    CacheWarmUp warmUp = new CacheWarmUp();
+    warmUp.run(new ArrayList<>(classes), type -> type);
+    return warmUp.report(start);
+  }
+
+  /**
+   * Warms up the cache for all classes in a package, and in its subpackages, that can be found by
+   * the class loader. The classes are loaded, but not initialized. Packages are found as directory
+   * resources, so jars must have directory entries.
+   *
+   * @param packagePrefix the package name, like com.example
+   * @param classLoader the class loader that finds and loads the classes
+   * @return the outcome of the warm up
+   */
+  static WarmUpReport warmUp(String packagePrefix, ClassLoader classLoader) {
+    if (classLoader == null) {
+      throw new NullPointerException("The class loader cannot be null");
+    }
+    long start = System.nanoTime();
+    CacheWarmUp warmUp = new CacheWarmUp();
+    warmUp.run(
+        new ArrayList<>(findClassNames(packagePrefix, classLoader)),
+        className -> loadClass(className, classLoader));
+    return warmUp.report(start);
+  }
+
+  private <T> void run(List<T> items, Function<T, Class<?>> toClass) {
+    ForkJoinPool.commonPool().invoke(new WarmUpTask<>(items, toClass, 0, items.size()));
+  }
+
+  private WarmUpReport report(long start) {
+    return new WarmUpReport(
+        classCount.intValue(),
+        accessorCount.sum(),
+        skippedFieldCount.sum(),
+        new ArrayList<>(failedClassNames),
+        System.nanoTime() - start);
+  }
+
+  private void warmUp(Object item, Class<?> type) {
+    if (type == null) {
+      failedClassNames.add(String.valueOf(item));
+      return;
+    }
+    try {
+      ClassFields classFields = FieldCache.get(type);
+      int skipped = classFields.createAccessors();
+      classCount.increment();
+      accessorCount.add(classFields.getCacheEntry().getFieldCount() - skipped);
+      skippedFieldCount.add(skipped);
+    } catch (RuntimeException | LinkageError ex) {
+      failedClassNames.add(type.getName());
+    }
+  }
+
+  private static Class<?> loadClass(String className, ClassLoader classLoader) {
+    try {
+      return Class.forName(className, false, classLoader);
+    } catch (ClassNotFoundException | LinkageError ex) {
+      return null;
+    }
+  }
+
+  private static Set<String> findClassNames(String packagePrefix, ClassLoader classLoader) {
+    String path = packagePrefix.replace('.', '/');
+    Set<String> classNames = new TreeSet<>();
+    try {
+      Enumeration<URL> resources = classLoader.getResources(path);
+      while (resources.hasMoreElements()) {
+        URL resource = resources.nextElement();
+        URLConnection connection = resource.openConnection();
+        if (connection instanceof JarURLConnection) {
+          connection.setUseCaches(false);
+          try (JarFile jarFile = ((JarURLConnection) connection).getJarFile()) {
+            addClassNames(jarFile, path, classNames);
+          }
+        } else if ("file".equals(resource.getProtocol())) {
+          addClassNames(new File(resource.toURI()), packagePrefix, classNames);
+        }
+      }
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    } catch (URISyntaxException ex) {
+      throw new IllegalArgumentException(ex);
+    }
+    return classNames;
+  }
+
+  private static void addClassNames(JarFile jarFile, String path, Set<String> classNames) {
+    Enumeration<JarEntry> entries = jarFile.entries();
+    while (entries.hasMoreElements()) {
+      String name = entries.nextElement().getName();
+      if (name.startsWith(path + "/") && isClassFile(name)) {
+        classNames.add(name.substring(0, name.length() - CLASS_SUFFIX.length()).replace('/', '.'));
+      }
+    }
+  }
+
+  private static void addClassNames(File directory, String packageName, Set<String> classNames) {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      String name = file.getName();
+      if (file.isDirectory()) {
+        addClassNames(file, packageName + '.' + name, classNames);
+      } else if (isClassFile(name)) {
+        classNames.add(
+            packageName + '.' + name.substring(0, name.length() - CLASS_SUFFIX.length()));
+      }
+    }
+  }
+
+  private static boolean isClassFile(String name) {
+    return name.endsWith(CLASS_SUFFIX)
+        && !name.endsWith("module-info.class")
+        && !name.endsWith("package-info.class");
+  }
+
+  /** Splits the classes in halves until each task has only a few classes left. */
+  private final class WarmUpTask<T> extends RecursiveAction {
+    private final List<T> items;
+    private final Function<T, Class<?>> toClass;
+    private final int from;
+    private final int to;
+
+    WarmUpTask(List<T> items, Function<T, Class<?>> toClass, int from, int to) {
+      this.items = items;
+      this.toClass = toClass;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= CLASSES_PER_TASK) {
+        for (int index = from; index < to; index++) {
+          T item = items.get(index);
+          warmUp(item, toClass.apply(item));
+        }
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(
+          new WarmUpTask<>(items, toClass, from, middle),
+          new WarmUpTask<>(items, toClass, middle, to));
+    }
+  }
+}
@@ -0,0 +1,473 @@
+package refutils.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable field metadata for one class. The visible fields are extracted once by the
+ * FieldExtractor, or read from the field metadata index, and then shared by all FieldHelpers that
+ * operate on the class.
+ *
+ * <p>The fields are kept as parallel arrays sorted on name, so that a name is found by binary
+ * search. Name lookups use a NameIndex that also holds the fields of the superclasses that are not
+ * visible here, so that any name, found or not, costs one binary search. Field objects are not
+ * retained, a field is looked up from its declaring class when its accessor is created. Type
+ * matches hold the matched accessor.
+ */
+final class ClassFields {
+  /** Value types beyond this are matched every time, instead of growing the memo without bound. */
+  private static final int MAXIMUM_TYPE_MATCHES = 64;
+
+  /** Paths beyond this are compiled every time, instead of growing the map without bound. */
+  private static final int MAXIMUM_PATHS = 64;
+
+  /** Compare plans beyond this are created every time, one is kept per set of exclusions. */
+  private static final int MAXIMUM_COMPARE_PLANS = 16;
+
+  private final Class<?> type;
+  private final String[] names;
+  private final Class<?>[] types;
+  private final Class<?>[] declaringClasses;
+
+  /** Accessors for the fields declared in this class, created with the first accessor. */
+  private volatile AtomicReferenceArray<FieldAccessor<?>> accessors;
+
+  private final CacheEntry cacheEntry;
+
+  /** All fields that can be matched by name, created with the first name lookup. */
+  private volatile NameIndex nameIndex;
+
+  /** Paths compiled with this class as root, created with the first path. */
+  private volatile ConcurrentMap<String, FieldPath> paths;
+
+  /** Resolver shared by all ReflectionHelpers for this class, created with the first one. */
+  private volatile FieldResolver resolver;
+
+  /** Plan for converting instances to and from maps, created with the first conversion. */
+  private volatile FieldMapPlan mapPlan;
+
+  /** Plan for deep copying instances, created with the first copy. */
+  private volatile CopyPlan copyPlan;
+
+  /** Plans for deep comparing instances, per exclusions of the comparator. */
+  private final ConcurrentMap<ComparePlan.Exclusions, ComparePlan> comparePlans =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Outcome of the type matches made against this class, including the failed ones. Only value
+   * classes that are visible from this class are kept, see isVisible.
+   */
+  private final ConcurrentMap<Class<?>, TypeMatch> fieldsByType = new ConcurrentHashMap<>();
+
+  ClassFields(Class<?> type) {
+    this.type = type;
+    VisibleFields visibleFields = VisibleFields.of(type);
+    this.names = visibleFields.names;
+    this.types = visibleFields.types;
+    this.declaringClasses = visibleFields.declaringClasses;
+    this.cacheEntry = new CacheEntry(names.length);
+  }
+
+  Class<?> getType() {
+    return type;
+  }
+
+  /** Returns the bookkeeping of the cache, which does not reference the class. */
+  CacheEntry getCacheEntry() {
+    return cacheEntry;
+  }
+
+  /**
+   * Returns all visible fields sorted on name, see FieldExtractor. The fields are looked up every
+   * time, so this is meant for tests and diagnostics.
+   */
+  List<Field> getAllFields() {
+    List<Field> allFields = new ArrayList<>(names.length);
+    for (int index = 0; index < names.length; index++) {
+      allFields.add(getField(index));
+    }
+    return Collections.unmodifiableList(allFields);
+  }
+
+  /**
+   * Returns the accessor for the field with the given name. The visible fields of this class are
+   * matched first. If no field matches, the fields of the superclasses are searched, where also
+   * private fields can be matched. Returns null if no field matches.
+   */
+  FieldAccessor<?> getAccessorByName(String fieldName) {
+    return getNameIndex().getAccessor(fieldName);
+  }
+
+  private NameIndex getNameIndex() {
+    NameIndex index = nameIndex;
+    if (index == null) {
+      // Creating twice in a race does no harm, the accessors are shared with the declaring classes
+      index = createNameIndex();
+      nameIndex = index;
+    }
+    return index;
+  }
+
+  /**
+   * Merges the visible fields of this class with the name index of the superclass, where the fields
+   * of this class hide the fields with the same name in the superclasses.
+   */
+  private NameIndex createNameIndex() {
+    Class<?> superclass = type.getSuperclass();
+    NameIndex inherited =
+        superclass == null ? null : FieldCache.getNested(superclass).getNameIndex();
+    if (inherited == null || inherited.names.length == 0) {
+      return new NameIndex(names, declaringClasses);
+    }
+    String[] mergedNames = new String[names.length + inherited.names.length];
+    Class<?>[] mergedClasses = new Class<?>[mergedNames.length];
+    int own = 0;
+    int other = 0;
+    int size = 0;
+    while (own < names.length || other < inherited.names.length) {
+      int order =
+          own == names.length
+              ? 1
+              : other == inherited.names.length ? -1 : names[own].compareTo(inherited.names[other]);
+      if (order <= 0) {
+        mergedNames[size] = names[own];
+        mergedClasses[size++] = declaringClasses[own++];
+        if (order == 0) {
+          other++;
+        }
+      } else {
+        mergedNames[size] = inherited.names[other];
+        mergedClasses[size++] = inherited.declaringClasses[other++];
+      }
+    }
+    return new NameIndex(Arrays.copyOf(mergedNames, size), Arrays.copyOf(mergedClasses, size));
+  }
+
+  /**
+   * Returns the compiled path with this class as root. The path is compiled the first time it is
+   * requested, and then kept, up to MAXIMUM_PATHS paths per class.
+   *
+   * @throws NoSuchFieldException if the first field of the path cannot be located
+   */
+  FieldPath getPath(String path) throws NoSuchFieldException {
+    ConcurrentMap<String, FieldPath> compiledPaths = paths;
+    if (compiledPaths == null) {
+      synchronized (this) {
+        compiledPaths = paths;
+        if (compiledPaths == null) {
+          compiledPaths = new ConcurrentHashMap<>();
+          paths = compiledPaths;
+        }
+      }
+    }
+    FieldPath fieldPath = compiledPaths.get(path);
+    if (fieldPath == null) {
+      // Compiling twice in a race does no harm, the first path stored is shared by all
+      FieldPath compiled = FieldPath.compile(this, path);
+      if (compiledPaths.size() >= MAXIMUM_PATHS) {
+        return compiled;
+      }
+      fieldPath = compiledPaths.putIfAbsent(path, compiled);
+      if (fieldPath == null) {
+        fieldPath = compiled;
+      }
+    }
+    return fieldPath;
+  }
+
+  /**
+   * Drops the compiled paths and type matches, which may hold accessors of other classes, when
+   * those classes are cleared from the cache. Both are created again on the next lookup.
+   */
+  void clearPathsAndTypeMatches() {
+    paths = null;
+    fieldsByType.clear();
+  }
+
+  /** Returns the resolver for this class. Creating it twice in a race does no harm. */
+  FieldResolver getResolver() {
+    FieldResolver classResolver = resolver;
+    if (classResolver == null) {
+      classResolver = new FieldResolver(this);
+      resolver = classResolver;
+    }
+    return classResolver;
+  }
+
+  /**
+   * Returns the plan for converting instances of this class to and from maps. The plan is created
+   * the first time it is requested.
+   */
+  FieldMapPlan getMapPlan() {
+    FieldMapPlan plan = mapPlan;
+    if (plan == null) {
+      // Creating twice in a race does no harm, the plans are equal
+      plan = FieldMapPlan.create(this);
+      mapPlan = plan;
+    }
+    return plan;
+  }
+
+  /**
+   * Returns the plan for deep copying instances of this class. The plan is created the first time
+   * it is requested.
+   */
+  CopyPlan getCopyPlan() {
+    CopyPlan plan = copyPlan;
+    if (plan == null) {
+      // Creating twice in a race does no harm, the plans are equal
+      plan = CopyPlan.createForObject(type);
+      copyPlan = plan;
+    }
+    return plan;
+  }
+
+  /**
+   * Returns the plan for deep comparing instances of this class without the excluded fields. The
+   * plan is created the first time it is requested, and then kept, up to MAXIMUM_COMPARE_PLANS
+   * plans per class.
+   */
+  ComparePlan getComparePlan(ComparePlan.Exclusions exclusions) {
+    ComparePlan plan = comparePlans.get(exclusions);
+    if (plan == null) {
+      // Creating twice in a race does no harm, the plans are equal
+      plan = ComparePlan.createForObject(type, exclusions);
+      if (comparePlans.size() < MAXIMUM_COMPARE_PLANS) {
+        comparePlans.put(exclusions, plan);
+      }
+    }
+    return plan;
+  }
+
+  /**
+   * Adds the accessors of all fields that are reachable by name, keyed by name. Fields of this
+   * class hide the fields with the same name in the superclasses. Static and synthetic fields are
+   * added as null, since they are not part of the state of an instance.
+   */
+  void collectInstanceAccessors(Map<String, FieldAccessor<?>> instanceAccessors) {
+    for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+      ClassFields classFields = current == type ? this : FieldCache.getNested(current);
+      for (int index = 0; index < classFields.names.length; index++) {
+        String name = classFields.names[index];
+        if (!instanceAccessors.containsKey(name)) {
+          Field field = classFields.getField(index);
+          boolean instanceField = !Modifier.isStatic(field.getModifiers()) && !field.isSynthetic();
+          instanceAccessors.put(name, instanceField ? classFields.getAccessorByName(name) : null);
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates the accessors of all visible fields, where the inherited fields are shared with the
+   * declaring classes. Fields that cannot be accessed, like static final fields, are skipped.
+   *
+   * @return the number of fields that were skipped
+   */
+  int createAccessors() {
+    int skipped = 0;
+    for (int index = 0; index < names.length; index++) {
+      try {
+        if (declaringClasses[index] == type) {
+          getAccessor(index);
+        } else {
+          FieldCache.getNested(declaringClasses[index]).getDeclaredAccessor(names[index]);
+        }
+      } catch (RuntimeException ex) {
+        skipped++;
+      }
+    }
+    return skipped;
+  }
+
+  /**
+   * Returns the accessors of the non-static fields that are declared in this class, in name order.
+   * The fields are looked up, so this is meant for plans that are computed once per class.
+   */
+  List<FieldAccessor<?>> getDeclaredInstanceAccessors() {
+    List<FieldAccessor<?>> instanceAccessors = new ArrayList<>();
+    for (int index = 0; index < names.length; index++) {
+      if (declaringClasses[index] == type && !Modifier.isStatic(getField(index).getModifiers())) {
+        instanceAccessors.add(getAccessor(index));
+      }
+    }
+    return instanceAccessors;
+  }
+
+  /**
+   * Matches a value type against the fields. If exactly one visible field in this class can hold
+   * the value type, that field is matched. If no field matches, the superclasses are searched. The
+   * outcome is cached per value type, if the value type is visible from this class.
+   */
+  TypeMatch getFieldByType(Class<?> valueClass) {
+    TypeMatch typeMatch = fieldsByType.get(valueClass);
+    if (typeMatch == null) {
+      typeMatch = matchFieldByType(valueClass);
+      // A value class from another class loader would be pinned for as long as this class
+      if (fieldsByType.size() < MAXIMUM_TYPE_MATCHES && isVisible(valueClass, type)) {
+        TypeMatch previous = fieldsByType.putIfAbsent(valueClass, typeMatch);
+        if (previous != null) {
+          typeMatch = previous;
+        }
+      }
+    }
+    return typeMatch;
+  }
+
+  /**
+   * Returns true if the class can be loaded by name from the class loader of the other class, so
+   * that referencing it from the metadata of the other class never keeps its class loader alive.
+   */
+  static boolean isVisible(Class<?> valueClass, Class<?> fromClass) {
+    ClassLoader valueLoader = valueClass.getClassLoader();
+    if (valueLoader == null) {
+      return true;
+    }
+    for (ClassLoader loader = fromClass.getClassLoader();
+        loader != null;
+        loader = loader.getParent()) {
+      if (loader == valueLoader) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private TypeMatch matchFieldByType(Class<?> valueClass) {
+    List<Integer> matchingFields = filterOnTypeMatches(valueClass);
+
+    if (matchingFields.size() > 1) {
+      return TypeMatch.tooManyMatches(
+          String.format(
+              "Found too many (%s) matches for field %s %s, specify the field by name instead",
+              matchingFields.size(), valueClass, extractFieldNames(matchingFields)));
+    }
+
+    if (matchingFields.size() == 1) {
+      int index = matchingFields.get(0);
+      return TypeMatch.found(
+          FieldCache.getNested(declaringClasses[index]).getDeclaredAccessor(names[index]));
+    }
+
+    Class<?> superclass = type.getSuperclass();
+    if (superclass == null) {
+      return TypeMatch.notFound(String.format("Cannot find visible field for %s", valueClass));
+    }
+
+    return FieldCache.getNested(superclass).getFieldByType(valueClass);
+  }
+
+  private List<Integer> filterOnTypeMatches(Class<?> valueClass) {
+    List<Integer> returnValue = new ArrayList<>();
+    PrimitiveMatcher primitiveMatcher = new PrimitiveMatcher(valueClass);
+
+    for (int index = 0; index < types.length; index++) {
+      Class<?> fieldType = types[index];
+      if (fieldType != Object.class
+          && (primitiveMatcher.isMatchedPrimitive(fieldType)
+              || fieldType.isAssignableFrom(valueClass))) {
+        returnValue.add(index);
+      }
+    }
+    return returnValue;
+  }
+
+  private String extractFieldNames(List<Integer> matchingFields) {
+    List<String> fieldNames = new ArrayList<>();
+    for (int index : matchingFields) {
+      fieldNames.add(names[index]);
+    }
+    return fieldNames.toString();
+  }
+
+  /** Returns the accessor for a field that is declared in this class. */
+  private FieldAccessor<?> getDeclaredAccessor(String fieldName) {
+    int index = Arrays.binarySearch(names, fieldName);
+    if (index < 0 || declaringClasses[index] != type) {
+      throw new IllegalStateException(
+          String.format("This should never happen, %s is declared in %s", fieldName, type));
+    }
+    return getAccessor(index);
+  }
+
+  private FieldAccessor<?> getAccessor(int index) {
+    AtomicReferenceArray<FieldAccessor<?>> fieldAccessors = accessors;
+    if (fieldAccessors == null) {
+      synchronized (this) {
+        fieldAccessors = accessors;
+        if (fieldAccessors == null) {
+          fieldAccessors = new AtomicReferenceArray<>(names.length);
+          accessors = fieldAccessors;
+        }
+      }
+    }
+    FieldAccessor<?> accessor = fieldAccessors.get(index);
+    if (accessor == null) {
+      // Losing the race only costs an accessor, the first one stored is shared by all
+      FieldAccessor<?> created = createAccessor(getField(index));
+      if (fieldAccessors.compareAndSet(index, null, created)) {
+        cacheEntry.accessorCreated();
+        return created;
+      }
+      accessor = fieldAccessors.get(index);
+    }
+    return accessor;
+  }
+
+  private Field getField(int index) {
+    try {
+      return declaringClasses[index].getDeclaredField(names[index]);
+    } catch (NoSuchFieldException ex) {
+      throw new IllegalStateException(
+          "This should never happen, since the field was extracted from the class", ex);
+    }
+  }
+
+  private FieldAccessor<?> createAccessor(Field field) {
+    try {
+      return new FieldAccessor<>(field);
+    } catch (IllegalAccessException ex) {
+      throw new IllegalStateException(
+          "This should never happen, since the field is always made accessible", ex);
+    }
+  }
+
+  /**
+   * The fields that can be matched by name from a class, flattened over the class hierarchy. The
+   * accessors are taken from the declaring classes on first use, and then kept here, so that a
+   * repeated lookup is one binary search and an array read.
+   */
+  private static final class NameIndex {
+    private final String[] names;
+    private final Class<?>[] declaringClasses;
+    private final AtomicReferenceArray<FieldAccessor<?>> accessors;
+
+    NameIndex(String[] names, Class<?>[] declaringClasses) {
+      this.names = names;
+      this.declaringClasses = declaringClasses;
+      this.accessors = new AtomicReferenceArray<>(names.length);
+    }
+
+    FieldAccessor<?> getAccessor(String fieldName) {
+      int index = Arrays.binarySearch(names, fieldName);
+      if (index < 0) {
+        return null;
+      }
+      FieldAccessor<?> accessor = accessors.get(index);
+      if (accessor == null) {
+        // The declaring class shares one accessor per field, so storing it twice does no harm
+        accessor = FieldCache.getNested(declaringClasses[index]).getDeclaredAccessor(fieldName);
+        accessors.set(index, accessor);
+      }
+      return accessor;
+    }
+  }
+}
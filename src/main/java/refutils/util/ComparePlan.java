@@ -0,0 +1,218 @@
+package refutils.util;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * How instances of one class are compared by a DeepComparator, computed once per class and
+ * exclusions. Objects are compared field by field, with the primitive fields first, then the fields
+ * that hold immutable values, and last the fields that must be compared deeply. JDK classes that
+ * are not collections or arrays are compared with their equals method.
+ *
+ * <p>The plans of objects hold field accessors, so they are kept with the field metadata of the
+ * class, see ClassFields, and are cleared and evicted with it. The other plans do not depend on the
+ * exclusions and are shared by all comparators.
+ */
+final class ComparePlan {
+  enum Kind {
+    /** Compared with equals and hashCode. */
+    VALUE,
+    PRIMITIVE_ARRAY,
+    OBJECT_ARRAY,
+    /** Collections that are not sets, compared in iteration order. */
+    ORDERED,
+    /** Compared with the equals and hashCode of the elements, like Set.equals. */
+    SET,
+    /** Keys are compared with equals, values deeply. */
+    MAP,
+    /** Compared field by field. */
+    OBJECT
+  }
+
+  /** Plans of the classes that are not compared field by field, null for the other classes. */
+  private static final ClassValue<ComparePlan> PLANS_WITHOUT_FIELDS =
+      new ClassValue<ComparePlan>() {
+        @Override
+        protected ComparePlan computeValue(Class<?> type) {
+          return createWithoutFields(type);
+        }
+      };
+
+  private final Kind kind;
+  private final FieldAccessor<Object>[] primitiveFields;
+  private final FieldAccessor<Object>[] valueFields;
+  private final FieldAccessor<Object>[] referenceFields;
+
+  private ComparePlan(
+      Kind kind,
+      FieldAccessor<Object>[] primitiveFields,
+      FieldAccessor<Object>[] valueFields,
+      FieldAccessor<Object>[] referenceFields) {
+    this.kind = kind;
+    this.primitiveFields = primitiveFields;
+    this.valueFields = valueFields;
+    this.referenceFields = referenceFields;
+  }
+
+  Kind getKind() {
+    return kind;
+  }
+
+  FieldAccessor<Object>[] getPrimitiveFields() {
+    return primitiveFields;
+  }
+
+  /**
+   * Fields whose declared type is compared with equals, like String, boxed primitives and enums.
+   */
+  FieldAccessor<Object>[] getValueFields() {
+    return valueFields;
+  }
+
+  FieldAccessor<Object>[] getReferenceFields() {
+    return referenceFields;
+  }
+
+  /**
+   * Returns the plan for a class, where the plans of objects are taken from the field metadata of
+   * the class.
+   */
+  static ComparePlan of(Class<?> type, Exclusions exclusions) {
+    ComparePlan plan = PLANS_WITHOUT_FIELDS.get(type);
+    return plan == null ? FieldCache.getNested(type).getComparePlan(exclusions) : plan;
+  }
+
+  /** Removes the plan of a class that is cleared from the field metadata cache. */
+  static void clear(Class<?> type) {
+    PLANS_WITHOUT_FIELDS.remove(type);
+  }
+
+  private static ComparePlan createWithoutFields(Class<?> type) {
+    if (type.isArray()) {
+      return simple(
+          type.getComponentType().isPrimitive() ? Kind.PRIMITIVE_ARRAY : Kind.OBJECT_ARRAY);
+    }
+    if (Set.class.isAssignableFrom(type)) {
+      return simple(Kind.SET);
+    }
+    if (Collection.class.isAssignableFrom(type)) {
+      return simple(Kind.ORDERED);
+    }
+    if (Map.class.isAssignableFrom(type)) {
+      return simple(Kind.MAP);
+    }
+    if (FieldExtractor.isPlatformClass(type) || type.isEnum()) {
+      return simple(Kind.VALUE);
+    }
+    return null;
+  }
+
+  /** Creates the plan for a class that is compared field by field, see ClassFields. */
+  @SuppressWarnings("unchecked")
+  static ComparePlan createForObject(Class<?> type, Exclusions exclusions) {
+    List<FieldAccessor<Object>> primitiveFields = new ArrayList<>();
+    List<FieldAccessor<Object>> valueFields = new ArrayList<>();
+    List<FieldAccessor<Object>> referenceFields = new ArrayList<>();
+    // The fields of JDK superclasses cannot be reached, only the application fields are compared
+    for (Class<?> current = type;
+        current != null && !FieldExtractor.isPlatformClass(current);
+        current = current.getSuperclass()) {
+      for (FieldAccessor<?> field : FieldCache.getNested(current).getDeclaredInstanceAccessors()) {
+        if (exclusions.isExcluded(field)) {
+          continue;
+        }
+        Class<?> fieldType = field.getType();
+        if (fieldType.isPrimitive()) {
+          primitiveFields.add((FieldAccessor<Object>) field);
+        } else if (isValueType(fieldType)) {
+          valueFields.add((FieldAccessor<Object>) field);
+        } else {
+          referenceFields.add((FieldAccessor<Object>) field);
+        }
+      }
+    }
+    return new ComparePlan(
+        Kind.OBJECT,
+        primitiveFields.toArray(noFields()),
+        valueFields.toArray(noFields()),
+        referenceFields.toArray(noFields()));
+  }
+
+  /** Final JDK classes and enums, every value of the declared type is compared with equals. */
+  private static boolean isValueType(Class<?> type) {
+    return type.isEnum()
+        || (Modifier.isFinal(type.getModifiers())
+            && FieldExtractor.isPlatformClass(type)
+            && !type.isArray()
+            && !Collection.class.isAssignableFrom(type)
+            && !Map.class.isAssignableFrom(type));
+  }
+
+  private static ComparePlan simple(Kind kind) {
+    FieldAccessor<Object>[] noFields = noFields();
+    return new ComparePlan(kind, noFields, noFields, noFields);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static FieldAccessor<Object>[] noFields() {
+    return (FieldAccessor<Object>[]) new FieldAccessor<?>[0];
+  }
+
+  /**
+   * The fields that a comparator skips. Comparators with equal exclusions share their plans. The
+   * hash code is computed once, since the exclusions are the key of the plans of every class.
+   */
+  static final class Exclusions {
+    private final Set<String> fieldNames;
+    private final Set<Class<? extends Annotation>> annotations;
+    private final int hashCode;
+
+    Exclusions(Set<String> fieldNames, Set<Class<? extends Annotation>> annotations) {
+      this.fieldNames = fieldNames;
+      this.annotations = annotations;
+      this.hashCode = 31 * fieldNames.hashCode() + annotations.hashCode();
+    }
+
+    Set<String> getFieldNames() {
+      return fieldNames;
+    }
+
+    Set<Class<? extends Annotation>> getAnnotations() {
+      return annotations;
+    }
+
+    private boolean isExcluded(FieldAccessor<?> field) {
+      if (fieldNames.contains(field.getField().getName())) {
+        return true;
+      }
+      for (Class<? extends Annotation> annotation : annotations) {
+        if (field.getField().isAnnotationPresent(annotation)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof Exclusions)) {
+        return false;
+      }
+      Exclusions exclusions = (Exclusions) other;
+      return fieldNames.equals(exclusions.fieldNames) && annotations.equals(exclusions.annotations);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -2,14 +2,30 @@ package refutils.util;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.Callable;
 
 /**
- * Utility class to handle constructors.
+ * Utility class to handle constructors. The private empty constructor of a class is located once
+ * and then invoked through a cached instantiator, see PrivateConstructors.
  *
  * @param <T> The type to instantiate
  * @author exbjek
  */
 public final class ConstructorHelper<T> {
+  private static final ClassValue<Callable<Object>> CONSTRUCTORS =
+      new ClassValue<Callable<Object>>() {
+        @Override
+        protected Callable<Object> computeValue(Class<?> type) {
+          try {
+            return findPrivateConstructor(type);
+          } catch (NoSuchMethodException ex) {
+            // Not cached, the exception is unwrapped and thrown again by instantiatePrivate
+            throw new ConstructorNotFoundException(ex);
+          }
+        }
+      };
+
   private final Class<T> clazz;
 
   public ConstructorHelper(final Class<T> clazz) {
@@ -26,13 +42,74 @@ public final class ConstructorHelper<T> {
    * @throws InstantiationException if the class that declares the underlying constructor represents
    *     an abstract class.
    */
+  @SuppressWarnings("unchecked")
   public T instantiatePrivate()
       throws NoSuchMethodException,
           IllegalAccessException,
           InvocationTargetException,
           InstantiationException {
-    Constructor<T> constructor = clazz.getDeclaredConstructor();
+    Callable<Object> constructor = getPrivateConstructor();
+    try {
+      return (T) constructor.call();
+    } catch (Throwable ex) {
+      // The class is initialized, so this was thrown by the constructor
+      throw new InvocationTargetException(ex);
+    }
+  }
+
+  /** Removes the instantiator of a class that is cleared from the field metadata cache. */
+  static void clear(Class<?> type) {
+    CONSTRUCTORS.remove(type);
+  }
+
+  private Callable<Object> getPrivateConstructor()
+      throws NoSuchMethodException, InstantiationException {
+    if (Modifier.isAbstract(clazz.getModifiers())) {
+      // Like Constructor.newInstance, a missing constructor is reported before an abstract class
+      clazz.getDeclaredConstructor();
+      throw new InstantiationException(clazz.getName());
+    }
+    try {
+      return CONSTRUCTORS.get(clazz);
+    } catch (ConstructorNotFoundException ex) {
+      throw ex.getCause();
+    }
+  }
+
+  private static Callable<Object> findPrivateConstructor(Class<?> type)
+      throws NoSuchMethodException {
+    Constructor<?> constructor = type.getDeclaredConstructor();
     constructor.setAccessible(true);
-    return constructor.newInstance();
+    initialize(type);
+    try {
+      return PrivateConstructors.instantiator(constructor);
+    } catch (IllegalAccessException ex) {
+      throw new IllegalStateException(
+          "This should never happen, since the constructor is always made accessible", ex);
+    }
+  }
+
+  /**
+   * Initializes the class before its instantiator is used, so that everything that the instantiator
+   * throws comes from the constructor. A failing static initializer is then thrown as is, like
+   * Constructor.newInstance does, and is never cached.
+   */
+  private static void initialize(Class<?> type) {
+    try {
+      Class.forName(type.getName(), true, type.getClassLoader());
+    } catch (ClassNotFoundException ex) {
+      // A hidden class cannot be found by name, it is initialized when it is first instantiated
+    }
+  }
+
+  private static class ConstructorNotFoundException extends RuntimeException {
+    ConstructorNotFoundException(NoSuchMethodException cause) {
+      super(cause);
+    }
+
+    @Override
+    public synchronized NoSuchMethodException getCause() {
+      return (NoSuchMethodException) super.getCause();
+    }
   }
 }
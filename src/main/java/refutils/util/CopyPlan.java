@@ -0,0 +1,506 @@
+package refutils.util;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+/**
+ * How instances of one class are deep copied, computed once per class. Immutable values are shared
+ * with the copy, arrays and JDK collections are copied element by element, and other objects are
+ * instantiated without calling a constructor and copied field by field, including the private
+ * fields of all superclasses. Instances of Object get a new instance each, since they are used as
+ * locks and markers, and an Optional is copied as an Optional of the copied value.
+ *
+ * <p>The immutable JDK collections, from List.of, Set.of, Map.of and the empty and singleton
+ * methods of Collections, are shared like other immutable values, so their elements are shared too.
+ * The unmodifiable views of Collections and the lists of Arrays.asList cannot be created empty and
+ * filled, so their copies are views of the same kind over a JDK collection or an array that is
+ * filled instead.
+ *
+ * <p>The plans of classes that are copied field by field hold field accessors, so they are kept
+ * with the field metadata of the class, see ClassFields, and are cleared and evicted with it.
+ */
+final class CopyPlan {
+  enum Kind {
+    /** Immutable, the instance is shared by the source and the copy. */
+    SHARED,
+    /** Copied with clone, since the elements are primitives. */
+    PRIMITIVE_ARRAY,
+    OBJECT_ARRAY,
+    /** A JDK collection, created empty and filled when all elements are copied. */
+    COLLECTION,
+    /** A JDK map, created empty and filled when all keys and values are copied. */
+    MAP,
+    /** A list of Arrays.asList, copied as a list over an array that is filled like an array. */
+    FIXED_SIZE_LIST,
+    /** A JDK class that only holds immutable values, copied with its public clone method. */
+    CLONE,
+    /** An Optional, copied as an Optional of the copied value. */
+    OPTIONAL,
+    /** Copied field by field. */
+    OBJECT,
+    UNSUPPORTED
+  }
+
+  private static final Set<Class<?>> IMMUTABLE_TYPES =
+      new HashSet<>(
+          Arrays.asList(
+              String.class,
+              Boolean.class,
+              Character.class,
+              Byte.class,
+              Short.class,
+              Integer.class,
+              Long.class,
+              Float.class,
+              Double.class,
+              BigInteger.class,
+              BigDecimal.class,
+              UUID.class,
+              OptionalInt.class,
+              OptionalLong.class,
+              OptionalDouble.class,
+              Currency.class,
+              Class.class,
+              Locale.class,
+              URI.class,
+              URL.class,
+              File.class,
+              Pattern.class,
+              Collections.emptyList().getClass(),
+              Collections.emptySet().getClass(),
+              Collections.emptyMap().getClass(),
+              Collections.singletonList(null).getClass(),
+              Collections.singleton(null).getClass(),
+              Collections.singletonMap(null, null).getClass()));
+
+  private static final String UNMODIFIABLE_PREFIX = "java.util.Collections$Unmodifiable";
+
+  /** Plans of the classes that are not copied field by field, null for the other classes. */
+  private static final ClassValue<CopyPlan> PLANS_WITHOUT_FIELDS =
+      new ClassValue<CopyPlan>() {
+        @Override
+        protected CopyPlan computeValue(Class<?> type) {
+          return createWithoutFields(type);
+        }
+      };
+
+  private final Class<?> type;
+  private final Kind kind;
+  private final String unsupportedMessage;
+
+  /** Creates the instance that is filled, for objects, collections and maps. */
+  private final Constructor<?> constructor;
+
+  /** Comparator getter for sorted collections, null if the constructor takes no arguments. */
+  private final Method comparatorGetter;
+
+  /** Creates the view that is the copy from what is filled, null if that is the copy itself. */
+  private final UnaryOperator<Object> wrapper;
+
+  private final MethodHandle cloneMethod;
+  private final FieldAccessor<Object>[] primitiveFields;
+  private final FieldAccessor<Object>[] referenceFields;
+
+  private CopyPlan(
+      Class<?> type,
+      Kind kind,
+      String unsupportedMessage,
+      Constructor<?> constructor,
+      Method comparatorGetter,
+      UnaryOperator<Object> wrapper,
+      MethodHandle cloneMethod,
+      FieldAccessor<Object>[] primitiveFields,
+      FieldAccessor<Object>[] referenceFields) {
+    this.type = type;
+    this.kind = kind;
+    this.unsupportedMessage = unsupportedMessage;
+    this.constructor = constructor;
+    this.comparatorGetter = comparatorGetter;
+    this.wrapper = wrapper;
+    this.cloneMethod = cloneMethod;
+    this.primitiveFields = primitiveFields;
+    this.referenceFields = referenceFields;
+  }
+
+  /**
+   * Returns the plan for a class, where the plans of classes that are copied field by field are
+   * taken from the field metadata of the class.
+   */
+  static CopyPlan of(Class<?> type) {
+    CopyPlan plan = PLANS_WITHOUT_FIELDS.get(type);
+    return plan == null ? FieldCache.getNested(type).getCopyPlan() : plan;
+  }
+
+  /** Removes the plan of a class that is cleared from the field metadata cache. */
+  static void clear(Class<?> type) {
+    PLANS_WITHOUT_FIELDS.remove(type);
+  }
+
+  Kind getKind() {
+    return kind;
+  }
+
+  FieldAccessor<Object>[] getReferenceFields() {
+    return referenceFields;
+  }
+
+  /**
+   * Creates what the copy is filled through. Arrays of primitives and cloned values are complete,
+   * other copies must be filled with copies of the values of the source.
+   *
+   * @see #wrap(Object)
+   */
+  @SuppressWarnings("fallthrough")
+  Object newCopy(Object source) {
+    try {
+      switch (kind) {
+        case PRIMITIVE_ARRAY:
+          return PrimitiveType.ofArray(source).cloneArray(source);
+        case OBJECT_ARRAY:
+          return Array.newInstance(type.getComponentType(), Array.getLength(source));
+        case CLONE:
+          return cloneMethod.invoke(source);
+        case MAP:
+          if (type == EnumMap.class) {
+            Map<?, ?> map = (Map<?, ?>) constructor.newInstance(source);
+            map.clear();
+            return map;
+          }
+        // Fall through, maps are created like collections
+        case COLLECTION:
+          if (comparatorGetter == null) {
+            return constructor.newInstance();
+          }
+          Object comparator = comparatorGetter.invoke(source);
+          // PriorityBlockingQueue only takes a comparator together with the initial capacity
+          return constructor.getParameterCount() == 1
+              ? constructor.newInstance(comparator)
+              : constructor.newInstance(Math.max(1, ((Collection<?>) source).size()), comparator);
+        case FIXED_SIZE_LIST:
+          return new Object[((Collection<?>) source).size()];
+        case OBJECT:
+          Object copy = constructor.newInstance();
+          copyPrimitives(source, copy);
+          return copy;
+        case UNSUPPORTED:
+          throw new UnsupportedOperationException(unsupportedMessage);
+        default:
+          throw new IllegalStateException(String.format("%s values are never created here", kind));
+      }
+    } catch (InstantiationException | IllegalAccessException | InvocationTargetException ex) {
+      throw new IllegalStateException(String.format("Cannot instantiate %s", type.getName()), ex);
+    } catch (RuntimeException | Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      throw FieldAccessor.propagate(ex);
+    }
+  }
+
+  /**
+   * Returns the copy, given what it is filled through.
+   *
+   * @param filled what newCopy returned
+   */
+  Object wrap(Object filled) {
+    return wrapper == null ? filled : wrapper.apply(filled);
+  }
+
+  private void copyPrimitives(Object source, Object copy) {
+    for (FieldAccessor<Object> field : primitiveFields) {
+      field.getPrimitiveType().copyField(field, source, copy);
+    }
+  }
+
+  private static CopyPlan createWithoutFields(Class<?> type) {
+    if (isImmutable(type)) {
+      return simple(type, Kind.SHARED, null);
+    }
+    if (type.isArray()) {
+      return simple(
+          type,
+          type.getComponentType().isPrimitive() ? Kind.PRIMITIVE_ARRAY : Kind.OBJECT_ARRAY,
+          null);
+    }
+    if (FieldExtractor.isPlatformClass(type)) {
+      return createForJdkClass(type);
+    }
+    return null;
+  }
+
+  private static boolean isImmutable(Class<?> type) {
+    return IMMUTABLE_TYPES.contains(type)
+        || Enum.class.isAssignableFrom(type)
+        || Path.class.isAssignableFrom(type)
+        // List.of, Set.of and Map.of
+        || type.getName().startsWith("java.util.ImmutableCollections$")
+        || type.getName().startsWith("java.time.")
+        // Lambdas cannot be instantiated or have their captured values set
+        || (type.isSynthetic() && type.getName().contains("$$Lambda"));
+  }
+
+  private static CopyPlan createForJdkClass(Class<?> type) {
+    if (type == Object.class) {
+      // Plain objects are used as locks and markers, the copy gets its own
+      return new CopyPlan(
+          type,
+          Kind.OBJECT,
+          null,
+          findPublicConstructor(type),
+          null,
+          null,
+          null,
+          noFields(),
+          noFields());
+    }
+    if (type == Optional.class) {
+      return simple(type, Kind.OPTIONAL, null);
+    }
+    if (EnumSet.class.isAssignableFrom(type)) {
+      return withClone(type);
+    }
+    if (type == EnumMap.class) {
+      // The key type is only known by the source, so the copy starts as a copy of it and is cleared
+      return new CopyPlan(
+          type,
+          Kind.MAP,
+          null,
+          findPublicConstructor(type, EnumMap.class),
+          null,
+          null,
+          null,
+          noFields(),
+          noFields());
+    }
+    if (type == Arrays.asList().getClass()) {
+      return new CopyPlan(
+          type,
+          Kind.FIXED_SIZE_LIST,
+          null,
+          null,
+          null,
+          array -> Arrays.asList((Object[]) array),
+          null,
+          noFields(),
+          noFields());
+    }
+    if (type.getName().startsWith(UNMODIFIABLE_PREFIX)) {
+      return createForUnmodifiableView(type);
+    }
+    boolean collection = Collection.class.isAssignableFrom(type);
+    if (collection || Map.class.isAssignableFrom(type)) {
+      Kind kind = collection ? Kind.COLLECTION : Kind.MAP;
+      Method comparatorGetter = findComparatorGetter(type);
+      Constructor<?> constructor;
+      if (comparatorGetter == null) {
+        constructor = findPublicConstructor(type);
+      } else if (type == PriorityBlockingQueue.class) {
+        constructor = findPublicConstructor(type, int.class, Comparator.class);
+      } else {
+        constructor = findPublicConstructor(type, Comparator.class);
+      }
+      if (constructor == null) {
+        return unsupported(type, "it has no public constructor to create an empty copy");
+      }
+      return new CopyPlan(
+          type, kind, null, constructor, comparatorGetter, null, null, noFields(), noFields());
+    }
+    if (Cloneable.class.isAssignableFrom(type) && type.getName().startsWith("java.")) {
+      return withClone(type);
+    }
+    return unsupported(type, "it is a JDK class that is neither immutable nor a collection");
+  }
+
+  /**
+   * Creates the plan for an unmodifiable view of Collections. The copy is an unmodifiable view of
+   * the same kind, over a JDK collection that keeps the order and the comparator of the source.
+   */
+  @SuppressWarnings("unchecked")
+  private static CopyPlan createForUnmodifiableView(Class<?> type) {
+    Kind kind = Kind.COLLECTION;
+    Class<?> filledType;
+    Method comparatorGetter = null;
+    UnaryOperator<Object> wrapper;
+    if (NavigableMap.class.isAssignableFrom(type)) {
+      kind = Kind.MAP;
+      filledType = TreeMap.class;
+      comparatorGetter = getPublicMethod(SortedMap.class, "comparator");
+      wrapper = map -> Collections.unmodifiableNavigableMap((NavigableMap<Object, Object>) map);
+    } else if (SortedMap.class.isAssignableFrom(type)) {
+      kind = Kind.MAP;
+      filledType = TreeMap.class;
+      comparatorGetter = getPublicMethod(SortedMap.class, "comparator");
+      wrapper = map -> Collections.unmodifiableSortedMap((SortedMap<Object, Object>) map);
+    } else if (Map.class.isAssignableFrom(type)) {
+      kind = Kind.MAP;
+      filledType = LinkedHashMap.class;
+      wrapper = map -> Collections.unmodifiableMap((Map<Object, Object>) map);
+    } else if (NavigableSet.class.isAssignableFrom(type)) {
+      filledType = TreeSet.class;
+      comparatorGetter = getPublicMethod(SortedSet.class, "comparator");
+      wrapper = set -> Collections.unmodifiableNavigableSet((NavigableSet<Object>) set);
+    } else if (SortedSet.class.isAssignableFrom(type)) {
+      filledType = TreeSet.class;
+      comparatorGetter = getPublicMethod(SortedSet.class, "comparator");
+      wrapper = set -> Collections.unmodifiableSortedSet((SortedSet<Object>) set);
+    } else if (Set.class.isAssignableFrom(type)) {
+      filledType = LinkedHashSet.class;
+      wrapper = set -> Collections.unmodifiableSet((Set<Object>) set);
+    } else if (List.class.isAssignableFrom(type)) {
+      filledType = ArrayList.class;
+      wrapper = list -> Collections.unmodifiableList((List<Object>) list);
+    } else if (Collection.class.isAssignableFrom(type)) {
+      filledType = ArrayList.class;
+      wrapper = collection -> Collections.unmodifiableCollection((Collection<Object>) collection);
+    } else {
+      return unsupported(type, "it is an unmodifiable view that is neither a collection nor a map");
+    }
+    Constructor<?> constructor =
+        comparatorGetter == null
+            ? findPublicConstructor(filledType)
+            : findPublicConstructor(filledType, Comparator.class);
+    return new CopyPlan(
+        type, kind, null, constructor, comparatorGetter, wrapper, null, noFields(), noFields());
+  }
+
+  private static Method getPublicMethod(Class<?> type, String name) {
+    try {
+      return type.getMethod(name);
+    } catch (NoSuchMethodException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  private static Method findComparatorGetter(Class<?> type) {
+    if (SortedMap.class.isAssignableFrom(type)
+        || SortedSet.class.isAssignableFrom(type)
+        || PriorityQueue.class.isAssignableFrom(type)
+        || PriorityBlockingQueue.class.isAssignableFrom(type)) {
+      try {
+        return type.getMethod("comparator");
+      } catch (NoSuchMethodException ex) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  private static Constructor<?> findPublicConstructor(Class<?> type, Class<?>... parameterTypes) {
+    if (!Modifier.isPublic(type.getModifiers())) {
+      return null;
+    }
+    try {
+      return type.getConstructor(parameterTypes);
+    } catch (NoSuchMethodException ex) {
+      return null;
+    }
+  }
+
+  private static CopyPlan withClone(Class<?> type) {
+    try {
+      MethodHandle cloneMethod =
+          MethodHandles.publicLookup()
+              .findVirtual(type, "clone", MethodType.methodType(Object.class))
+              .asType(MethodType.methodType(Object.class, Object.class));
+      return new CopyPlan(
+          type, Kind.CLONE, null, null, null, null, cloneMethod, noFields(), noFields());
+    } catch (NoSuchMethodException | IllegalAccessException ex) {
+      return unsupported(type, "it has no public clone method");
+    }
+  }
+
+  /** Creates the plan for a class that is copied field by field, see ClassFields. */
+  @SuppressWarnings("unchecked")
+  static CopyPlan createForObject(Class<?> type) {
+    if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+      return unsupported(type, "it is abstract");
+    }
+    List<FieldAccessor<Object>> primitiveFields = new ArrayList<>();
+    List<FieldAccessor<Object>> referenceFields = new ArrayList<>();
+    for (Class<?> current = type; current != Object.class; current = current.getSuperclass()) {
+      if (FieldExtractor.isPlatformClass(current)) {
+        return unsupported(
+            type, String.format("it extends %s, whose fields cannot be copied", current.getName()));
+      }
+      for (FieldAccessor<?> field : FieldCache.getNested(current).getDeclaredInstanceAccessors()) {
+        if (field.getType().isPrimitive()) {
+          primitiveFields.add((FieldAccessor<Object>) field);
+        } else {
+          referenceFields.add((FieldAccessor<Object>) field);
+        }
+      }
+    }
+    Constructor<?> constructor;
+    try {
+      constructor = BlankInstances.constructor(type);
+    } catch (UnsupportedOperationException ex) {
+      return unsupported(type, "it cannot be instantiated");
+    }
+    return new CopyPlan(
+        type,
+        Kind.OBJECT,
+        null,
+        constructor,
+        null,
+        null,
+        null,
+        primitiveFields.toArray(noFields()),
+        referenceFields.toArray(noFields()));
+  }
+
+  private static CopyPlan simple(Class<?> type, Kind kind, String unsupportedMessage) {
+    return new CopyPlan(
+        type, kind, unsupportedMessage, null, null, null, null, noFields(), noFields());
+  }
+
+  private static CopyPlan unsupported(Class<?> type, String reason) {
+    return simple(
+        type, Kind.UNSUPPORTED, String.format("Cannot deep copy %s, %s", type.getName(), reason));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static FieldAccessor<Object>[] noFields() {
+    return (FieldAccessor<Object>[]) new FieldAccessor<?>[0];
+  }
+}
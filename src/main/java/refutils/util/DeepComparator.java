@@ -0,0 +1,511 @@
+package refutils.util;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Compares object graphs field by field, with a comparison plan that is computed once per class.
+ * Primitive fields are compared first, and the comparison stops at the first difference. The graph
+ * is traversed with a work queue instead of recursion, and cycles are followed once.
+ *
+ * <p>Fields can be excluded by name or by annotation. JDK classes that are not arrays, collections
+ * or maps are compared with their own equals method. Set elements and map keys are also compared
+ * with equals, since they are found by hash code, while list elements and map values are compared
+ * deeply.
+ *
+ * <p>The comparator is immutable and thread safe. The plans are cached with the field metadata of
+ * each class, and are shared by comparators that exclude the same fields.
+ */
+public final class DeepComparator {
+  /** The path of the root objects in a difference report. */
+  public static final String ROOT_PATH = "(root)";
+
+  /** Stands for null in the work queue. */
+  private static final Object NULL = new Object();
+
+  private final ComparePlan.Exclusions exclusions;
+
+  /** Creates a comparator that compares all fields. */
+  public DeepComparator() {
+    this(Collections.<String>emptySet(), Collections.<Class<? extends Annotation>>emptySet());
+  }
+
+  private DeepComparator(
+      Set<String> excludedFields, Set<Class<? extends Annotation>> excludedAnnotations) {
+    this.exclusions = new ComparePlan.Exclusions(excludedFields, excludedAnnotations);
+  }
+
+  /**
+   * Returns a comparator that also skips the fields with the given names, in all classes.
+   *
+   * @param fieldNames the names of the fields to skip
+   * @return a new comparator
+   */
+  public DeepComparator excludingFields(String... fieldNames) {
+    Set<String> fields = new HashSet<>(exclusions.getFieldNames());
+    fields.addAll(Arrays.asList(fieldNames));
+    return new DeepComparator(Collections.unmodifiableSet(fields), exclusions.getAnnotations());
+  }
+
+  /**
+   * Returns a comparator that also skips the fields that are annotated with any of the given
+   * annotations. The annotations must be retained at runtime.
+   *
+   * @param annotations the annotations of the fields to skip
+   * @return a new comparator
+   */
+  @SafeVarargs
+  public final DeepComparator excludingAnnotatedFields(Class<? extends Annotation>... annotations) {
+    Set<Class<? extends Annotation>> annotationSet = new HashSet<>(exclusions.getAnnotations());
+    for (Class<? extends Annotation> annotation : annotations) {
+      annotationSet.add(annotation);
+    }
+    return new DeepComparator(
+        exclusions.getFieldNames(), Collections.unmodifiableSet(annotationSet));
+  }
+
+  /**
+   * Compares two object graphs field by field.
+   *
+   * @param first the first graph, can be null
+   * @param second the second graph, can be null
+   * @return true if all fields that are not excluded are equal
+   */
+  public boolean deepEquals(Object first, Object second) {
+    return first == second || new Comparison(null).run(first, second);
+  }
+
+  /**
+   * Compares two object graphs field by field, and lists the paths of all fields that differ, like
+   * {@code customer.addresses[0].zip}. Map values are listed with their key, like {@code
+   * linesByName[item-1].price}. Nothing below a differing collection size or class is listed, and
+   * an object that is reached several times is listed under the first path, in field name order.
+   *
+   * @param first the first graph, can be null
+   * @param second the second graph, can be null
+   * @return the differing paths, empty if the graphs are equal
+   */
+  public List<String> diff(Object first, Object second) {
+    List<String> differences = new ArrayList<>();
+    if (first != second) {
+      new Comparison(differences).run(first, second);
+    }
+    return differences;
+  }
+
+  /**
+   * Returns a hash code that is consistent with deepEquals, computed from the fields that are not
+   * excluded. A graph with a cycle is hashed from the distinct values of its objects, without how
+   * they are linked, since a cycle equals a longer cycle of equal values.
+   *
+   * @param value the graph, can be null
+   * @return the hash code
+   */
+  public int deepHashCode(Object value) {
+    return new Hashing().run(value);
+  }
+
+  private ComparePlan plan(Object value) {
+    return ComparePlan.of(value.getClass(), exclusions);
+  }
+
+  /** One comparison of two graphs. Paths are only built when the differences are collected. */
+  private final class Comparison {
+    private final List<String> differences;
+
+    /** Triples of first value, second value and path, that are left to compare. */
+    private final ArrayDeque<Object> pending = new ArrayDeque<>();
+
+    /** The second values that each first value has been compared with, to follow cycles once. */
+    private final Map<Object, Object> compared = new IdentityHashMap<>();
+
+    Comparison(List<String> differences) {
+      this.differences = differences;
+    }
+
+    boolean run(Object first, Object second) {
+      push(first, second, differences == null ? null : ROOT_PATH);
+      boolean equal = true;
+      while (!pending.isEmpty()) {
+        String path = (String) pending.pop();
+        Object secondValue = unwrap(pending.pop());
+        Object firstValue = unwrap(pending.pop());
+        if (!compare(firstValue, secondValue, path)) {
+          equal = false;
+          if (differences == null) {
+            return false;
+          }
+        }
+      }
+      return equal;
+    }
+
+    private void push(Object first, Object second, String path) {
+      if (first != second) {
+        // ArrayDeque does not take null, the path is only used when differences are collected
+        pending.push(first == null ? NULL : first);
+        pending.push(second == null ? NULL : second);
+        pending.push(path == null ? ROOT_PATH : path);
+      }
+    }
+
+    private Object unwrap(Object value) {
+      return value == NULL ? null : value;
+    }
+
+    private boolean compare(Object first, Object second, String path) {
+      if (first == null || second == null || first.getClass() != second.getClass()) {
+        return difference(path);
+      }
+      ComparePlan plan = plan(first);
+      switch (plan.getKind()) {
+        case VALUE:
+          return first.equals(second) || difference(path);
+        case PRIMITIVE_ARRAY:
+          return PrimitiveType.ofArray(first).arrayEquals(first, second) || difference(path);
+        case SET:
+          Set<?> firstSet = (Set<?>) first;
+          Set<?> secondSet = (Set<?>) second;
+          return (firstSet.size() == secondSet.size() && secondSet.containsAll(firstSet))
+              || difference(path);
+        default:
+          return !markCompared(first, second) || compareContents(plan, first, second, path);
+      }
+    }
+
+    private boolean compareContents(ComparePlan plan, Object first, Object second, String path) {
+      switch (plan.getKind()) {
+        case OBJECT_ARRAY:
+          Object[] firstArray = (Object[]) first;
+          Object[] secondArray = (Object[]) second;
+          if (firstArray.length != secondArray.length) {
+            return difference(path);
+          }
+          // Pushed in reverse, so that they are compared and listed in order
+          for (int i = firstArray.length - 1; i >= 0; i--) {
+            push(firstArray[i], secondArray[i], element(path, i));
+          }
+          return true;
+        case ORDERED:
+          Collection<?> firstCollection = (Collection<?>) first;
+          Collection<?> secondCollection = (Collection<?>) second;
+          if (firstCollection.size() != secondCollection.size()) {
+            return difference(path);
+          }
+          Object[] firstElements = firstCollection.toArray();
+          Object[] secondElements = secondCollection.toArray();
+          for (int i = firstElements.length - 1; i >= 0; i--) {
+            push(firstElements[i], secondElements[i], element(path, i));
+          }
+          return true;
+        case MAP:
+          return compareMaps((Map<?, ?>) first, (Map<?, ?>) second, path);
+        default:
+          return compareObjects(plan, first, second, path);
+      }
+    }
+
+    private boolean compareMaps(Map<?, ?> first, Map<?, ?> second, String path) {
+      if (first.size() != second.size()) {
+        return difference(path);
+      }
+      boolean equal = true;
+      for (Map.Entry<?, ?> entry : first.entrySet()) {
+        Object key = entry.getKey();
+        if (!second.containsKey(key)) {
+          equal = difference(element(path, key));
+          if (differences == null) {
+            return false;
+          }
+        } else {
+          push(entry.getValue(), second.get(key), element(path, key));
+        }
+      }
+      return equal;
+    }
+
+    private boolean compareObjects(ComparePlan plan, Object first, Object second, String path) {
+      boolean equal = true;
+      for (FieldAccessor<Object> field : plan.getPrimitiveFields()) {
+        if (!field.getPrimitiveType().fieldEquals(field, first, second)) {
+          equal = difference(field(path, field));
+          if (differences == null) {
+            return false;
+          }
+        }
+      }
+      for (FieldAccessor<Object> field : plan.getValueFields()) {
+        if (!Objects.equals(field.get(first), field.get(second))) {
+          equal = difference(field(path, field));
+          if (differences == null) {
+            return false;
+          }
+        }
+      }
+      FieldAccessor<Object>[] referenceFields = plan.getReferenceFields();
+      for (int i = referenceFields.length - 1; i >= 0; i--) {
+        FieldAccessor<Object> field = referenceFields[i];
+        push(field.get(first), field.get(second), field(path, field));
+      }
+      return equal;
+    }
+
+    /** Returns false if the values have been compared before, or are being compared. */
+    @SuppressWarnings("unchecked")
+    private boolean markCompared(Object first, Object second) {
+      Object previous = compared.get(first);
+      if (previous == null) {
+        compared.put(first, second);
+        return true;
+      }
+      if (previous == second) {
+        return false;
+      }
+      // The same value compared with several others, rare enough for a linear search
+      List<Object> seconds;
+      if (previous instanceof IdentityList) {
+        seconds = (List<Object>) previous;
+      } else {
+        seconds = new IdentityList();
+        seconds.add(previous);
+        compared.put(first, seconds);
+      }
+      for (Object value : seconds) {
+        if (value == second) {
+          return false;
+        }
+      }
+      seconds.add(second);
+      return true;
+    }
+
+    private boolean difference(String path) {
+      if (differences != null) {
+        differences.add(path);
+      }
+      return false;
+    }
+
+    private String field(String path, FieldAccessor<Object> field) {
+      if (differences == null) {
+        return null;
+      }
+      String name = field.getField().getName();
+      return ROOT_PATH.equals(path) ? name : path + '.' + name;
+    }
+
+    private String element(String path, Object key) {
+      if (differences == null) {
+        return null;
+      }
+      return (ROOT_PATH.equals(path) ? "[" : path + '[') + key + ']';
+    }
+  }
+
+  /** Marks lists of compared values, which are never themselves compared values. */
+  private static final class IdentityList extends ArrayList<Object> {
+    private static final long serialVersionUID = 1L;
+  }
+
+  /**
+   * One hash code computation, with an explicit stack of partly hashed values. A graph without
+   * cycles is hashed by its structure. deepEquals follows a cycle once, so a cycle can equal a
+   * longer cycle of equal values, and the structure of such a graph cannot be hashed. A graph with
+   * a cycle is instead hashed from the distinct hash codes of the values of its objects.
+   */
+  private final class Hashing {
+    private final ArrayDeque<Frame> stack = new ArrayDeque<>();
+
+    /** Values on the stack, a reference back to one of them means that the graph has a cycle. */
+    private final Map<Object, Boolean> onStack = new IdentityHashMap<>();
+
+    /**
+     * The hash codes of the values that are done. They are reused when a value is reached again, so
+     * that a value that is shared within the graph is only hashed once.
+     */
+    private final Map<Object, Integer> hashed = new IdentityHashMap<>();
+
+    int run(Object root) {
+      Frame rootFrame = frame(root);
+      if (rootFrame == null) {
+        return simpleHashCode(root);
+      }
+      push(rootFrame);
+      int hashCode = 0;
+      while (!stack.isEmpty()) {
+        Frame frame = stack.peek();
+        if (frame.next < frame.children.length) {
+          Object child = frame.children[frame.next++];
+          if (child != null && onStack.containsKey(child)) {
+            return cyclicHashCode(root);
+          }
+          Integer childHashCode = child == null ? null : hashed.get(child);
+          if (childHashCode != null) {
+            frame.combine(childHashCode);
+            continue;
+          }
+          Frame childFrame = frame(child);
+          if (childFrame == null) {
+            frame.combine(simpleHashCode(child));
+          } else {
+            push(childFrame);
+          }
+        } else {
+          stack.pop();
+          onStack.remove(frame.value);
+          // No cycle has been found below the value, so its hash code is the same on any path
+          hashed.put(frame.value, frame.hashCode);
+          if (stack.isEmpty()) {
+            hashCode = frame.hashCode;
+          } else {
+            stack.peek().combine(frame.hashCode);
+          }
+        }
+      }
+      return hashCode;
+    }
+
+    private void push(Frame frame) {
+      stack.push(frame);
+      onStack.put(frame.value, Boolean.TRUE);
+    }
+
+    /**
+     * Returns the sum of the distinct hash codes of the values of all objects in a graph, where the
+     * references between the objects are left out. Objects that deepEquals matches have equal
+     * values, and every value of one graph is found in the other, so equal graphs get equal hash
+     * codes no matter how long their cycles are.
+     */
+    private int cyclicHashCode(Object root) {
+      Set<Integer> valueHashCodes = new HashSet<>();
+      Map<Object, Boolean> visited = new IdentityHashMap<>();
+      ArrayDeque<Object> pending = new ArrayDeque<>();
+      visited.put(root, Boolean.TRUE);
+      pending.push(root);
+      while (!pending.isEmpty()) {
+        Object value = pending.pop();
+        Frame frame = frame(value);
+        if (frame == null) {
+          valueHashCodes.add(simpleHashCode(value));
+          continue;
+        }
+        valueHashCodes.add(frame.valueHashCode());
+        for (Object child : frame.children) {
+          if (child == null) {
+            valueHashCodes.add(0);
+          } else if (visited.put(child, Boolean.TRUE) == null) {
+            pending.push(child);
+          }
+        }
+      }
+      int hashCode = 0;
+      for (int valueHashCode : valueHashCodes) {
+        hashCode += valueHashCode;
+      }
+      return hashCode;
+    }
+
+    /** Returns the frame for a value with children, or null if the value is hashed directly. */
+    private Frame frame(Object value) {
+      if (value == null) {
+        return null;
+      }
+      ComparePlan plan = plan(value);
+      switch (plan.getKind()) {
+        case OBJECT_ARRAY:
+          return new Frame(value, (Object[]) value, 1, null);
+        case ORDERED:
+          return new Frame(value, ((Collection<?>) value).toArray(), 1, null);
+        case MAP:
+          Map<?, ?> map = (Map<?, ?>) value;
+          Object[] values = new Object[map.size()];
+          int[] keyHashCodes = new int[map.size()];
+          int index = 0;
+          for (Map.Entry<?, ?> entry : map.entrySet()) {
+            keyHashCodes[index] = Objects.hashCode(entry.getKey());
+            values[index++] = entry.getValue();
+          }
+          return new Frame(value, values, 0, keyHashCodes);
+        case OBJECT:
+          return objectFrame(plan, value);
+        default:
+          return null;
+      }
+    }
+
+    private Frame objectFrame(ComparePlan plan, Object value) {
+      int hashCode = 1;
+      for (FieldAccessor<Object> field : plan.getPrimitiveFields()) {
+        hashCode = 31 * hashCode + field.getPrimitiveType().fieldHashCode(field, value);
+      }
+      for (FieldAccessor<Object> field : plan.getValueFields()) {
+        hashCode = 31 * hashCode + Objects.hashCode(field.get(value));
+      }
+      FieldAccessor<Object>[] referenceFields = plan.getReferenceFields();
+      Object[] children = new Object[referenceFields.length];
+      for (int i = 0; i < children.length; i++) {
+        children[i] = referenceFields[i].get(value);
+      }
+      return new Frame(value, children, hashCode, null);
+    }
+
+    private int simpleHashCode(Object value) {
+      if (value == null) {
+        return 0;
+      }
+      if (plan(value).getKind() == ComparePlan.Kind.PRIMITIVE_ARRAY) {
+        return PrimitiveType.ofArray(value).arrayHashCode(value);
+      }
+      return value.hashCode();
+    }
+  }
+
+  /** A value whose children are being hashed. */
+  private static final class Frame {
+    private final Object value;
+    private final Object[] children;
+
+    /** Hash codes of the map keys, null if the children are ordered. */
+    private final int[] keyHashCodes;
+
+    private int next;
+    private int hashCode;
+
+    Frame(Object value, Object[] children, int hashCode, int[] keyHashCodes) {
+      this.value = value;
+      this.children = children;
+      this.hashCode = hashCode;
+      this.keyHashCodes = keyHashCodes;
+    }
+
+    /** Hash code of the value itself, without its children, but with the number of children. */
+    int valueHashCode() {
+      int valueHashCode = hashCode + 31 * children.length;
+      if (keyHashCodes != null) {
+        for (int keyHashCode : keyHashCodes) {
+          valueHashCode += keyHashCode;
+        }
+      }
+      return valueHashCode;
+    }
+
+    void combine(int childHashCode) {
+      if (keyHashCodes == null) {
+        hashCode = 31 * hashCode + childHashCode;
+      } else {
+        // Like Map.hashCode, independent of the iteration order
+        hashCode += keyHashCodes[next - 1] ^ childHashCode;
+      }
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package refutils.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Deep copies an object graph with the copy plans of its classes. The graph is traversed with a
+ * work queue instead of recursion, so the depth of the graph is not limited by the stack. Every
+ * source object is copied once, so shared references and cycles are preserved in the copy.
+ *
+ * <p>Collections and maps are filled last, in the reverse order that they were found, so that the
+ * copied elements are complete before their hash codes are computed.
+ */
+final class DeepCopier {
+  /** Source to copy, for every copied object. */
+  private final Map<Object, Object> copies = new IdentityHashMap<>();
+
+  /**
+   * Pairs of source and what its copy is filled through, where the copy is created but not yet
+   * filled.
+   */
+  private final ArrayDeque<Object> unfilled = new ArrayDeque<>();
+
+  /** Pairs of copied collection or map and its copied elements, filled when all else is done. */
+  private final List<Object> containers = new ArrayList<>();
+
+  private DeepCopier() {}
+
+  /**
+   * Creates a deep copy of an object graph.
+   *
+   * @param source the root of the graph, can be null
+   * @return the copy, or the source itself if it is immutable
+   * @throws UnsupportedOperationException if the graph contains an object that cannot be copied
+   */
+  @SuppressWarnings("unchecked")
+  static <T> T deepCopy(T source) {
+    DeepCopier copier = new DeepCopier();
+    Object copy = copier.copyOf(source);
+    while (!copier.unfilled.isEmpty()) {
+      Object unfilledSource = copier.unfilled.pop();
+      copier.fill(unfilledSource, copier.unfilled.pop());
+    }
+    copier.fillContainers();
+    return (T) copy;
+  }
+
+  /** Returns the copy of a value, the copy is created if the value has not been seen before. */
+  private Object copyOf(Object source) {
+    if (source == null) {
+      return null;
+    }
+    CopyPlan plan = CopyPlan.of(source.getClass());
+    if (plan.getKind() == CopyPlan.Kind.SHARED) {
+      return source;
+    }
+    Object copy = copies.get(source);
+    if (copy == null && plan.getKind() == CopyPlan.Kind.OPTIONAL) {
+      Object value = ((Optional<?>) source).orElse(null);
+      Object copiedValue = copyOf(value);
+      // An Optional of a shared value is itself immutable
+      copy = copiedValue == value ? source : Optional.of(copiedValue);
+      copies.put(source, copy);
+    } else if (copy == null) {
+      Object filled = plan.newCopy(source);
+      copy = plan.wrap(filled);
+      copies.put(source, copy);
+      if (plan.getKind() != CopyPlan.Kind.PRIMITIVE_ARRAY
+          && plan.getKind() != CopyPlan.Kind.CLONE) {
+        unfilled.push(filled);
+        unfilled.push(source);
+      }
+    }
+    return copy;
+  }
+
+  private void fill(Object source, Object copy) {
+    CopyPlan plan = CopyPlan.of(source.getClass());
+    switch (plan.getKind()) {
+      case OBJECT:
+        for (FieldAccessor<Object> field : plan.getReferenceFields()) {
+          field.set(copy, copyOf(field.get(source)));
+        }
+        break;
+      case OBJECT_ARRAY:
+        Object[] sourceArray = (Object[]) source;
+        Object[] copyArray = (Object[]) copy;
+        for (int i = 0; i < sourceArray.length; i++) {
+          copyArray[i] = copyOf(sourceArray[i]);
+        }
+        break;
+      case FIXED_SIZE_LIST:
+        Object[] sourceElements = ((Collection<?>) source).toArray();
+        Object[] copyElements = (Object[]) copy;
+        for (int i = 0; i < sourceElements.length; i++) {
+          copyElements[i] = copyOf(sourceElements[i]);
+        }
+        break;
+      case COLLECTION:
+        Object[] elements = ((Collection<?>) source).toArray();
+        for (int i = 0; i < elements.length; i++) {
+          elements[i] = copyOf(elements[i]);
+        }
+        containers.add(copy);
+        containers.add(elements);
+        break;
+      case MAP:
+        Map<?, ?> sourceMap = (Map<?, ?>) source;
+        Object[] entries = new Object[sourceMap.size() * 2];
+        int index = 0;
+        for (Map.Entry<?, ?> entry : sourceMap.entrySet()) {
+          entries[index++] = copyOf(entry.getKey());
+          entries[index++] = copyOf(entry.getValue());
+        }
+        containers.add(copy);
+        containers.add(entries);
+        break;
+      default:
+        throw new IllegalStateException(String.format("%s is never filled", plan.getKind()));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void fillContainers() {
+    for (int i = containers.size() - 2; i >= 0; i -= 2) {
+      Object container = containers.get(i);
+      Object[] elements = (Object[]) containers.get(i + 1);
+      if (container instanceof Collection) {
+        ((Collection<Object>) container).addAll(Arrays.asList(elements));
+      } else {
+        Map<Object, Object> map = (Map<Object, Object>) container;
+        for (int index = 0; index < elements.length; index += 2) {
+          map.put(elements[index], elements[index + 1]);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,734 @@
+package refutils.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * A resolved field that can be read and written on any instance of the class that declares it. The
+ * accessor is backed by method handles that are created once per field, so repeated access does not
+ * go through the access checks of java.lang.reflect.Field. Primitive fields can be read and written
+ * without boxing with the typed methods, such as getInt and setInt.
+ *
+ * @param <T> the type of the field value
+ */
+public final class FieldAccessor<T> {
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER_TYPE =
+      MethodType.methodType(void.class, Object.class, Object.class);
+
+  private final Field field;
+  private final Class<?> type;
+
+  /** Null for fields of reference types. */
+  private final PrimitiveType primitiveType;
+
+  private final Handles handles;
+
+  /**
+   * Created on the first write, since a field that can be read cannot always be written, like the
+   * final fields of a record.
+   */
+  private volatile Setters setters;
+
+  /** Created on the first atomic operation, since most fields are never used atomically. */
+  private volatile AtomicFieldAccess atomicAccess;
+
+  /** Created on the first access with an explicit memory ordering. */
+  private volatile AccessModeHandles accessModes;
+
+  FieldAccessor(Field field) throws IllegalAccessException {
+    this.field = field;
+    this.type = field.getType();
+    this.primitiveType = PrimitiveType.of(type);
+    MakeFieldAccessible.makeAccessible(field);
+    this.handles = new Handles(field, MethodHandles.lookup().unreflectGetter(field));
+  }
+
+  /** Returns the declared type of the field, without making the field accessible. */
+  public Class<?> getType() {
+    return type;
+  }
+
+  /** Returns the operations on the primitive type of the field, null for reference fields. */
+  PrimitiveType getPrimitiveType() {
+    return primitiveType;
+  }
+
+  /** Returns the field that this accessor reads and writes. The field is already accessible. */
+  public Field getField() {
+    return field;
+  }
+
+  /**
+   * Returns a method handle that reads the field, of type (Object)T where T is the declared type of
+   * the field. A handle that is stored in a static final field is a constant to the JIT, which
+   * compiles invokeExact on it to a direct field read. The accessor itself keeps its handles in
+   * instance fields, which the JIT does not treat as constants, so this is the fastest way to read
+   * a field on a hot path.
+   *
+   * @return the getter method handle, which ignores the instance for static fields
+   */
+  public MethodHandle getterHandle() {
+    return handles.exactGetter;
+  }
+
+  /**
+   * Returns a method handle that writes the field, of type (Object,T)void where T is the declared
+   * type of the field. Like the getter handle, it is compiled to a direct field write when it is
+   * stored in a static final field.
+   *
+   * @return the setter method handle, which ignores the instance for static fields
+   * @throws UnsupportedOperationException if the field can never be written, like a record field
+   */
+  public MethodHandle setterHandle() {
+    return setters().exactSetter;
+  }
+
+  /**
+   * Get the field value from an instance.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @return the field value
+   */
+  @SuppressWarnings("unchecked")
+  public T get(Object instance) {
+    try {
+      return (T) handles.getter.invokeExact(instance);
+    } catch (Throwable ex) {
+      fallBackOn(ex);
+    }
+    return (T) reflectiveGet(field -> field.get(instance));
+  }
+
+  /**
+   * Set the field value in an instance.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @param value the field value to set
+   * @throws UnsupportedOperationException if the field can never be written, like a record field
+   */
+  public void set(Object instance, T value) {
+    try {
+      setters().setter.invokeExact(instance, (Object) value);
+      return;
+    } catch (Throwable ex) {
+      fallBackOn(ex);
+    }
+    reflectiveSet(field -> field.set(instance, value));
+  }
+
+  /**
+   * Get the value of a boolean field without boxing. Widening conversions are done as in
+   * Field.getBoolean.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @return the field value
+   */
+  public boolean getBoolean(Object instance) {
+    if (type == boolean.class) {
+      try {
+        return (boolean) handles.exactGetter.invokeExact(instance);
+      } catch (Throwable ex) {
+        fallBackOn(ex);
+      }
+    }
+    return reflectiveGet(field -> field.getBoolean(instance));
+  }
+
+  /**
+   * Set the value of a boolean field without boxing. Widening conversions are done as in
+   * Field.setBoolean.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @param value the field value to set
+   */
+  public void setBoolean(Object instance, boolean value) {
+    if (type == boolean.class) {
+      try {
+        setters().exactSetter.invokeExact(instance, value);
+        return;
+      } catch (Throwable ex) {
+        fallBackOn(ex);
+      }
+    }
+    reflectiveSet(field -> field.setBoolean(instance, value));
+  }
+
+  /**
+   * Get the value of a byte field without boxing. Widening conversions are done as in
+   * Field.getByte.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @return the field value
+   */
+  public byte getByte(Object instance) {
+    if (type == byte.class) {
+      try {
+        return (byte) handles.exactGetter.invokeExact(instance);
+      } catch (Throwable ex) {
+        fallBackOn(ex);
+      }
+    }
+    return reflectiveGet(field -> field.getByte(instance));
+  }
+
+  /**
+   * Set the value of a byte field without boxing. Widening conversions are done as in
+   * Field.setByte.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @param value the field value to set
+   */
+  public void setByte(Object instance, byte value) {
+    if (type == byte.class) {
+      try {
+        setters().exactSetter.invokeExact(instance, value);
+        return;
+      } catch (Throwable ex) {
+        fallBackOn(ex);
+      }
+    }
+    reflectiveSet(field -> field.setByte(instance, value));
+  }
+
+  /**
+   * Get the value of a char field without boxing. Widening conversions are done as in
+   * Field.getChar.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @return the field value
+   */
+  public char getChar(Object instance) {
+    if (type == char.class) {
+      try {
+        return (char) handles.exactGetter.invokeExact(instance);
+      } catch (Throwable ex) {
+        fallBackOn(ex);
+      }
+    }
+    return reflectiveGet(field -> field.getChar(instance));
+  }
+
+  /**
+   * Set the value of a char field without boxing. Widening conversions are done as in
+   * Field.setChar.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @param value the field value to set
+   */
+  public void setChar(Object instance, char value) {
+    if (type == char.class) {
+      try {
+        setters().exactSetter.invokeExact(instance, value);
+        return;
+      } catch (Throwable ex) {
+        fallBackOn(ex);
+      }
+    }
+    reflectiveSet(field -> field.setChar(instance, value));
+  }
+
+  /**
+   * Get the value of a short field without boxing. Widening conversions are done as in
+   * Field.getShort.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @return the field value
+   */
+  public short getShort(Object instance) {
+    if (type == short.class) {
+      try {
+        return (short) handles.exactGetter.invokeExact(instance);
+      } catch (Throwable ex) {
+        fallBackOn(ex);
+      }
+    }
+    return reflectiveGet(field -> field.getShort(instance));
+  }
+
+  /**
+   * Set the value of a short field without boxing. Widening conversions are done as in
+   * Field.setShort.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @param value the field value to set
+   */
+  public void setShort(Object instance, short value) {
+    if (type == short.class) {
+      try {
+        setters().exactSetter.invokeExact(instance, value);
+        return;
+      } catch (Throwable ex) {
+        fallBackOn(ex);
+      }
+    }
+    reflectiveSet(field -> field.setShort(instance, value));
+  }
+
+  /**
+   * Get the value of an int field without boxing. Widening conversions are done as in Field.getInt.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @return the field value
+   */
+  public int getInt(Object instance) {
+    if (type == int.class) {
+      try {
+        return (int) handles.exactGetter.invokeExact(instance);
+      } catch (Throwable ex) {
+        fallBackOn(ex);
+      }
+    }
+    return reflectiveGet(field -> field.getInt(instance));
+  }
+
+  /**
+   * Set the value of an int field without boxing. Widening conversions are done as in Field.setInt.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @param value the field value to set
+   */
+  public void setInt(Object instance, int value) {
+    if (type == int.class) {
+      try {
+        setters().exactSetter.invokeExact(instance, value);
+        return;
+      } catch (Throwable ex) {
+        fallBackOn(ex);
+      }
+    }
+    reflectiveSet(field -> field.setInt(instance, value));
+  }
+
+  /**
+   * Get the value of a long field without boxing. Widening conversions are done as in
+   * Field.getLong.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @return the field value
+   */
+  public long getLong(Object instance) {
+    if (type == long.class) {
+      try {
+        return (long) handles.exactGetter.invokeExact(instance);
+      } catch (Throwable ex) {
+        fallBackOn(ex);
+      }
+    }
+    return reflectiveGet(field -> field.getLong(instance));
+  }
+
+  /**
+   * Set the value of a long field without boxing. Widening conversions are done as in
+   * Field.setLong.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @param value the field value to set
+   */
+  public void setLong(Object instance, long value) {
+    if (type == long.class) {
+      try {
+        setters().exactSetter.invokeExact(instance, value);
+        return;
+      } catch (Throwable ex) {
+        fallBackOn(ex);
+      }
+    }
+    reflectiveSet(field -> field.setLong(instance, value));
+  }
+
+  /**
+   * Get the value of a float field without boxing. Widening conversions are done as in
+   * Field.getFloat.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @return the field value
+   */
+  public float getFloat(Object instance) {
+    if (type == float.class) {
+      try {
+        return (float) handles.exactGetter.invokeExact(instance);
+      } catch (Throwable ex) {
+        fallBackOn(ex);
+      }
+    }
+    return reflectiveGet(field -> field.getFloat(instance));
+  }
+
+  /**
+   * Set the value of a float field without boxing. Widening conversions are done as in
+   * Field.setFloat.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @param value the field value to set
+   */
+  public void setFloat(Object instance, float value) {
+    if (type == float.class) {
+      try {
+        setters().exactSetter.invokeExact(instance, value);
+        return;
+      } catch (Throwable ex) {
+        fallBackOn(ex);
+      }
+    }
+    reflectiveSet(field -> field.setFloat(instance, value));
+  }
+
+  /**
+   * Get the value of a double field without boxing. Widening conversions are done as in
+   * Field.getDouble.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @return the field value
+   */
+  public double getDouble(Object instance) {
+    if (type == double.class) {
+      try {
+        return (double) handles.exactGetter.invokeExact(instance);
+      } catch (Throwable ex) {
+        fallBackOn(ex);
+      }
+    }
+    return reflectiveGet(field -> field.getDouble(instance));
+  }
+
+  /**
+   * Set the value of a double field without boxing. Widening conversions are done as in
+   * Field.setDouble.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @param value the field value to set
+   */
+  public void setDouble(Object instance, double value) {
+    if (type == double.class) {
+      try {
+        setters().exactSetter.invokeExact(instance, value);
+        return;
+      } catch (Throwable ex) {
+        fallBackOn(ex);
+      }
+    }
+    reflectiveSet(field -> field.setDouble(instance, value));
+  }
+
+  /**
+   * Atomically set the field value if the current value is the expected value. Reference fields are
+   * compared with ==, primitive fields are compared by value. On Java 8 only public volatile
+   * instance fields of public classes are supported, since the atomic field updaters check the
+   * access of the library.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @param expected the expected current value
+   * @param newValue the field value to set
+   * @return true if the value was set
+   * @throws UnsupportedOperationException if the field is final or cannot be accessed atomically
+   */
+  public boolean compareAndSet(Object instance, T expected, T newValue) {
+    return getAtomicAccess().compareAndSet(instance, expected, newValue);
+  }
+
+  /**
+   * Atomically set the field value and return the previous value. On Java 8 only public volatile
+   * instance fields of public classes are supported, since the atomic field updaters check the
+   * access of the library.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @param newValue the field value to set
+   * @return the previous field value
+   * @throws UnsupportedOperationException if the field is final or cannot be accessed atomically
+   */
+  @SuppressWarnings("unchecked")
+  public T getAndSet(Object instance, T newValue) {
+    return (T) getAtomicAccess().getAndSet(instance, newValue);
+  }
+
+  /**
+   * Atomically set the value of an int field, without boxing, if the current value is the expected
+   * value.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @param expected the expected current value
+   * @param newValue the field value to set
+   * @return true if the value was set
+   * @throws IllegalArgumentException if the field is not an int field
+   */
+  public boolean compareAndSetInt(Object instance, int expected, int newValue) {
+    return getAtomicAccess().compareAndSetInt(instance, expected, newValue);
+  }
+
+  /**
+   * Atomically add to the value of an int field.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @param delta the value to add
+   * @return the previous field value
+   * @throws IllegalArgumentException if the field is not an int field
+   */
+  public int getAndAddInt(Object instance, int delta) {
+    return getAtomicAccess().getAndAddInt(instance, delta);
+  }
+
+  /**
+   * Atomically increment the value of an int field by one.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @return the updated field value
+   * @throws IllegalArgumentException if the field is not an int field
+   */
+  public int incrementAndGetInt(Object instance) {
+    return getAtomicAccess().getAndAddInt(instance, 1) + 1;
+  }
+
+  /**
+   * Atomically set the value of a long field, without boxing, if the current value is the expected
+   * value.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @param expected the expected current value
+   * @param newValue the field value to set
+   * @return true if the value was set
+   * @throws IllegalArgumentException if the field is not a long field
+   */
+  public boolean compareAndSetLong(Object instance, long expected, long newValue) {
+    return getAtomicAccess().compareAndSetLong(instance, expected, newValue);
+  }
+
+  /**
+   * Atomically add to the value of a long field.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @param delta the value to add
+   * @return the previous field value
+   * @throws IllegalArgumentException if the field is not a long field
+   */
+  public long getAndAddLong(Object instance, long delta) {
+    return getAtomicAccess().getAndAddLong(instance, delta);
+  }
+
+  /**
+   * Atomically increment the value of a long field by one.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @return the updated field value
+   * @throws IllegalArgumentException if the field is not a long field
+   */
+  public long incrementAndGetLong(Object instance) {
+    return getAtomicAccess().getAndAddLong(instance, 1L) + 1L;
+  }
+
+  /**
+   * Get the field value with volatile memory semantics, as if the field was declared volatile. On
+   * Java 8 only volatile fields are supported.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @return the field value
+   * @throws UnsupportedOperationException if the access mode is not supported for the field
+   */
+  @SuppressWarnings("unchecked")
+  public T getVolatile(Object instance) {
+    return (T) getAccessModes().getVolatile(instance);
+  }
+
+  /**
+   * Set the field value with volatile memory semantics, as if the field was declared volatile. On
+   * Java 8 only volatile fields are supported.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @param value the field value to set
+   * @throws UnsupportedOperationException if the field is final or the access mode is not supported
+   */
+  public void setVolatile(Object instance, T value) {
+    getAccessModes().setVolatile(instance, value);
+  }
+
+  /**
+   * Get the field value with acquire semantics. Reads and writes after this call cannot be
+   * reordered before it. Pairs with setRelease. On Java 8 only volatile fields are supported.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @return the field value
+   * @throws UnsupportedOperationException if the access mode is not supported for the field
+   */
+  @SuppressWarnings("unchecked")
+  public T getAcquire(Object instance) {
+    return (T) getAccessModes().getAcquire(instance);
+  }
+
+  /**
+   * Set the field value with release semantics. Reads and writes before this call cannot be
+   * reordered after it, so state written before is visible to a thread that reads the value with
+   * getAcquire. On Java 8 only volatile fields are supported.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @param value the field value to set
+   * @throws UnsupportedOperationException if the field is final or the access mode is not supported
+   */
+  public void setRelease(Object instance, T value) {
+    getAccessModes().setRelease(instance, value);
+  }
+
+  /**
+   * Get the field value in opaque mode. The read is not cached or removed by the compiler, but no
+   * ordering with other fields is guaranteed. On Java 8 only volatile fields are supported.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @return the field value
+   * @throws UnsupportedOperationException if the access mode is not supported for the field
+   */
+  @SuppressWarnings("unchecked")
+  public T getOpaque(Object instance) {
+    return (T) getAccessModes().getOpaque(instance);
+  }
+
+  /**
+   * Set the field value in opaque mode. The write eventually becomes visible to other threads, but
+   * no ordering with other fields is guaranteed. On Java 8 only volatile fields are supported.
+   *
+   * @param instance the instance containing the field, ignored for static fields
+   * @param value the field value to set
+   * @throws UnsupportedOperationException if the field is final or the access mode is not supported
+   */
+  public void setOpaque(Object instance, T value) {
+    getAccessModes().setOpaque(instance, value);
+  }
+
+  private AccessModeHandles getAccessModes() {
+    AccessModeHandles modes = accessModes;
+    if (modes == null) {
+      // Benign race, creating the handles more than once does no harm
+      modes = AccessModeHandles.create(field);
+      accessModes = modes;
+    }
+    return modes;
+  }
+
+  private AtomicFieldAccess getAtomicAccess() {
+    AtomicFieldAccess access = atomicAccess;
+    if (access == null) {
+      // Benign race, creating the access more than once does no harm
+      access = AtomicFieldAccess.create(field);
+      atomicAccess = access;
+    }
+    return access;
+  }
+
+  /**
+   * Returns normally if the method handle failed on a type mismatch or a null instance, so that
+   * reflection can do the conversions, such as int to long, and produce the same errors as Field.
+   * Other failures are rethrown.
+   */
+  private static void fallBackOn(Throwable ex) {
+    if (!(ex instanceof ClassCastException || ex instanceof NullPointerException)) {
+      throw propagate(ex);
+    }
+  }
+
+  private <R> R reflectiveGet(ReflectiveGet<R> get) {
+    try {
+      return get.apply(field);
+    } catch (IllegalAccessException ex) {
+      throw neverInaccessible(ex);
+    }
+  }
+
+  private void reflectiveSet(ReflectiveSet set) {
+    try {
+      set.apply(field);
+    } catch (IllegalAccessException ex) {
+      throw cannotSet(ex);
+    }
+  }
+
+  private Setters setters() {
+    Setters fieldSetters = setters;
+    if (fieldSetters == null) {
+      // Benign race, creating the handles more than once does no harm
+      fieldSetters = new Setters(field, unreflectSetter(field));
+      setters = fieldSetters;
+    }
+    return fieldSetters;
+  }
+
+  private static MethodHandle unreflectSetter(Field field) {
+    try {
+      return MethodHandles.lookup().unreflectSetter(field);
+    } catch (IllegalAccessException ex) {
+      // Final fields of records and hidden classes can be read but never written
+      throw new UnsupportedOperationException(
+          String.format("Cannot set final field %s", field), ex);
+    }
+  }
+
+  /** Field.set only fails on an accessible field if the field can never be written. */
+  private UnsupportedOperationException cannotSet(IllegalAccessException ex) {
+    return new UnsupportedOperationException(String.format("Cannot set final field %s", field), ex);
+  }
+
+  private static IllegalStateException neverInaccessible(IllegalAccessException ex) {
+    return new IllegalStateException(
+        "This should never happen, since the field is always made accessible", ex);
+  }
+
+  static RuntimeException propagate(Throwable ex) {
+    if (ex instanceof Error) {
+      throw (Error) ex;
+    }
+    if (ex instanceof RuntimeException) {
+      return (RuntimeException) ex;
+    }
+    return new IllegalStateException(ex);
+  }
+
+  /** A read through java.lang.reflect.Field, used for conversions and errors. */
+  @FunctionalInterface
+  private interface ReflectiveGet<R> {
+    R apply(Field field) throws IllegalAccessException;
+  }
+
+  /** A write through java.lang.reflect.Field, used for conversions and errors. */
+  @FunctionalInterface
+  private interface ReflectiveSet {
+    void apply(Field field) throws IllegalAccessException;
+  }
+
+  /** Getter method handles for the field. */
+  private static final class Handles {
+    /** Getter with the exact field type, (Object)type. */
+    final MethodHandle exactGetter;
+
+    final MethodHandle getter;
+
+    Handles(Field field, MethodHandle fieldGetter) {
+      if (Modifier.isStatic(field.getModifiers())) {
+        fieldGetter = MethodHandles.dropArguments(fieldGetter, 0, Object.class);
+      }
+      this.exactGetter = fieldGetter.asType(MethodType.methodType(field.getType(), Object.class));
+      this.getter = fieldGetter.asType(GETTER_TYPE);
+    }
+  }
+
+  /** Setter method handles for the field. */
+  private static final class Setters {
+    /** Setter with the exact field type, (Object,type)void. */
+    final MethodHandle exactSetter;
+
+    final MethodHandle setter;
+
+    Setters(Field field, MethodHandle fieldSetter) {
+      if (Modifier.isStatic(field.getModifiers())) {
+        fieldSetter = MethodHandles.dropArguments(fieldSetter, 0, Object.class);
+      }
+      this.exactSetter =
+          fieldSetter.asType(MethodType.methodType(void.class, Object.class, field.getType()));
+      this.setter = fieldSetter.asType(SETTER_TYPE);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "FieldAccessor{" + field + "}";
+  }
+}
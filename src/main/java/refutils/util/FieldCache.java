@@ -0,0 +1,253 @@
+package refutils.util;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process wide cache of field metadata. The metadata is stored with a ClassValue, so that it is
+ * computed once per class and released together with the class. The cached classes are also kept in
+ * a registry with weak keys, so that the cache can be cleared per class or class loader, and so
+ * that the least recently used classes can be evicted when the cache has a maximum size.
+ *
+ * <p>Recency is measured with a coarse clock that ticks with every class added to the cache, rather
+ * than with the system time, so that a lookup only writes to the entry of the class when a class
+ * has been added since the previous lookup. Classes that are used between the same two additions
+ * are equally recent. Classes are registered, and others evicted, after the ClassValue has stored
+ * the metadata, never while it is being computed.
+ */
+final class FieldCache {
+  /** System property with the initial maximum number of cached classes, 0 means unbounded. */
+  static final String MAXIMUM_SIZE_PROPERTY = "refutils.cache.maximumSize";
+
+  private static final LongAdder HITS = new LongAdder();
+  private static final LongAdder MISSES = new LongAdder();
+  private static final LongAdder EVICTIONS = new LongAdder();
+
+  /** All classes in the cache. Guarded by itself. */
+  private static final Map<Class<?>, CacheEntry> REGISTRY = new WeakHashMap<>();
+
+  /** Ticks with every registered class. Written while holding the registry. */
+  private static volatile long clock;
+
+  private static volatile int maximumSize =
+      Math.max(0, Integer.getInteger(MAXIMUM_SIZE_PROPERTY, 0));
+
+  private static final ClassValue<ClassFields> CLASS_FIELDS =
+      new ClassValue<ClassFields>() {
+        @Override
+        protected ClassFields computeValue(Class<?> type) {
+          return new ClassFields(type);
+        }
+      };
+
+  private FieldCache() {}
+
+  /**
+   * Get the field metadata for a class, the metadata is extracted the first time the class is
+   * requested. The lookup is counted in the statistics.
+   *
+   * @param type the class containing the fields
+   * @return the cached field metadata
+   */
+  static ClassFields get(Class<?> type) {
+    ClassFields classFields = lookup(type);
+    if (!classFields.getCacheEntry().takeFirstLookup()) {
+      HITS.increment();
+    }
+    return classFields;
+  }
+
+  /**
+   * Get the field metadata for a class as part of another lookup, such as the superclass of the
+   * requested class. The lookup is not counted in the statistics, but a miss still is.
+   *
+   * @param type the class containing the fields
+   * @return the cached field metadata
+   */
+  static ClassFields getNested(Class<?> type) {
+    return lookup(type);
+  }
+
+  /**
+   * Registers the metadata the first time it is found, which counts the miss once per extraction
+   * that is stored, and marks it as recently used otherwise.
+   */
+  private static ClassFields lookup(Class<?> type) {
+    ClassFields classFields = CLASS_FIELDS.get(type);
+    CacheEntry entry = classFields.getCacheEntry();
+    if (entry.takeRegistration()) {
+      MISSES.increment();
+      register(type, entry);
+    } else {
+      accessed(classFields);
+    }
+    return classFields;
+  }
+
+  /**
+   * Marks the class as recently used, if the cache has a maximum size. Done on every lookup, and by
+   * holders of cached metadata, such as a FieldResolver, on every use.
+   *
+   * @param classFields the cached field metadata
+   */
+  static void accessed(ClassFields classFields) {
+    if (maximumSize > 0) {
+      classFields.getCacheEntry().accessed(clock);
+    }
+  }
+
+  /**
+   * Sets the maximum number of classes in the cache. The least recently used classes are evicted
+   * when the cache grows beyond the maximum size.
+   *
+   * @param size the maximum number of classes, 0 means unbounded
+   */
+  static void setMaximumSize(int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("The maximum cache size cannot be negative: " + size);
+    }
+    maximumSize = size;
+    synchronized (REGISTRY) {
+      evictLeastRecentlyUsed();
+    }
+  }
+
+  /**
+   * Removes a class, and all cached classes that extend it, from the cache. Subclasses are removed
+   * since their metadata includes the fields of the class. The cached constructor and plans of the
+   * removed classes are removed too, and so are the compiled paths and type matches of the other
+   * classes, since they may hold accessors of the removed classes.
+   *
+   * @param type the class to remove
+   */
+  static void clear(Class<?> type) {
+    synchronized (REGISTRY) {
+      for (Class<?> cachedType : new ArrayList<>(REGISTRY.keySet())) {
+        if (type.isAssignableFrom(cachedType)) {
+          remove(cachedType);
+          clearDerived(cachedType);
+        }
+      }
+      CLASS_FIELDS.remove(type);
+      clearDerived(type);
+      clearPathsAndTypeMatches();
+    }
+  }
+
+  /**
+   * Removes all classes that are defined by a class loader, or that extend such a class, from the
+   * cache.
+   *
+   * @param classLoader the class loader of the classes to remove, not the bootstrap class loader
+   */
+  static void clear(ClassLoader classLoader) {
+    if (classLoader == null) {
+      throw new NullPointerException("The class loader cannot be null");
+    }
+    synchronized (REGISTRY) {
+      boolean removed = false;
+      for (Class<?> cachedType : new ArrayList<>(REGISTRY.keySet())) {
+        if (isDefinedBy(cachedType, classLoader)) {
+          remove(cachedType);
+          clearDerived(cachedType);
+          removed = true;
+        }
+      }
+      if (removed) {
+        clearPathsAndTypeMatches();
+      }
+    }
+  }
+
+  static CacheStatistics statistics() {
+    int classCount;
+    long fieldCount = 0;
+    long accessorCount = 0;
+    synchronized (REGISTRY) {
+      classCount = REGISTRY.size();
+      for (CacheEntry entry : REGISTRY.values()) {
+        fieldCount += entry.getFieldCount();
+        accessorCount += entry.getAccessorCount();
+      }
+    }
+    return new CacheStatistics(
+        HITS.sum(), MISSES.sum(), EVICTIONS.sum(), classCount, fieldCount, accessorCount);
+  }
+
+  private static void register(Class<?> type, CacheEntry entry) {
+    synchronized (REGISTRY) {
+      // Ticks twice, so that lookups after this one are more recent than the registration
+      clock += 2;
+      entry.accessed(clock - 1);
+      REGISTRY.put(type, entry);
+      evictLeastRecentlyUsed();
+    }
+  }
+
+  /**
+   * Scans the registry for the oldest entries, which is linear in the cache size but only done when
+   * a new class is added to a full cache. Entries with the same tick are equally old.
+   */
+  private static void evictLeastRecentlyUsed() {
+    int size = maximumSize;
+    while (size > 0 && REGISTRY.size() > size) {
+      Class<?> oldestType = null;
+      long oldestAccess = Long.MAX_VALUE;
+      for (Map.Entry<Class<?>, CacheEntry> entry : REGISTRY.entrySet()) {
+        long lastAccess = entry.getValue().getLastAccess();
+        if (entry.getKey() != null && lastAccess < oldestAccess) {
+          oldestType = entry.getKey();
+          oldestAccess = lastAccess;
+        }
+      }
+      if (oldestType == null) {
+        return;
+      }
+      remove(oldestType);
+      EVICTIONS.increment();
+    }
+  }
+
+  private static void remove(Class<?> type) {
+    REGISTRY.remove(type);
+    CLASS_FIELDS.remove(type);
+  }
+
+  /** Removes what is cached for a cleared class outside of its field metadata. */
+  private static void clearDerived(Class<?> type) {
+    ConstructorHelper.clear(type);
+    CopyPlan.clear(type);
+    ComparePlan.clear(type);
+  }
+
+  /**
+   * Clears the compiled paths and type matches of the classes left in the cache, which may hold the
+   * accessors of cleared classes. The classes in the registry have their metadata stored, so
+   * getting it does not extract it again.
+   */
+  private static void clearPathsAndTypeMatches() {
+    for (Class<?> cachedType : new ArrayList<>(REGISTRY.keySet())) {
+      if (cachedType != null) {
+        CLASS_FIELDS.get(cachedType).clearPathsAndTypeMatches();
+      }
+    }
+  }
+
+  private static boolean isDefinedBy(Class<?> type, ClassLoader classLoader) {
+    for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+      if (current.getClassLoader() == classLoader) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns true if the class is in the cache. */
+  static boolean contains(Class<?> type) {
+    synchronized (REGISTRY) {
+      return REGISTRY.containsKey(type);
+    }
+  }
+}
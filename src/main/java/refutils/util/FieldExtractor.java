@@ -32,11 +32,7 @@ class FieldExtractor {
   }
 
   private void scanForFieldsWithoutPrivate(Class<?> clazz) {
-    if (clazz == null) {
-      return;
-    }
-    String packageName = clazz.getPackage().getName();
-    if (startsWith(packageName, "java.", "javax.", "sun.", "sunw.")) {
+    if (clazz == null || isPlatformClass(clazz)) {
       return;
     }
 
@@ -49,7 +45,15 @@ class FieldExtractor {
     scanForFieldsWithoutPrivate(clazz.getSuperclass());
   }
 
-  private boolean startsWith(String string, String... matches) {
+  /**
+   * Returns true for classes from Sun and the JDK, whose fields are not scanned in superclasses,
+   * and which are copied and compared as values by the deep copier and comparator.
+   */
+  static boolean isPlatformClass(Class<?> clazz) {
+    return startsWith(clazz.getName(), "java.", "javax.", "jdk.", "sun.", "sunw.", "com.sun.");
+  }
+
+  private static boolean startsWith(String string, String... matches) {
     for (String match : matches) {
       if (string.startsWith(match)) {
         return true;
@@ -1,18 +1,19 @@
 package refutils.util;
 
-import java.lang.reflect.Field;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * Contains utility methods to get and set field value from an instance of a class. The field can be
  * located by class type or field name.
  */
 public class FieldHelper {
+  private static final DeepComparator DEEP_COMPARATOR = new DeepComparator();
+
   private final Object instance;
-  private final Collection<Field> allFields;
-  private final Class<?> classContainingField;
+  private final FieldResolver fieldResolver;
 
   /**
    * Instantiates a FieldHelper. By specifying a superclass, the FieldHelper can be used to reach
@@ -29,8 +30,153 @@ public class FieldHelper {
               instance.getClass().getSimpleName(), classContainingField.getSimpleName()));
     }
     this.instance = instance;
-    this.allFields = new FieldExtractor(classContainingField).getAllFields();
-    this.classContainingField = classContainingField;
+    this.fieldResolver = new FieldResolver(classContainingField);
+  }
+
+  /**
+   * Returns hit and miss counts and the current size of the field metadata cache that is shared by
+   * all FieldHelpers.
+   *
+   * @return a snapshot of the cache statistics
+   */
+  public static CacheStatistics getCacheStatistics() {
+    return FieldCache.statistics();
+  }
+
+  /**
+   * Removes the cached field metadata of a class, and of all cached classes that extend it, see
+   * ReflectionHelper.clearCache.
+   *
+   * @param clazz the class to remove from the cache
+   */
+  public static void clearCache(Class<?> clazz) {
+    FieldCache.clear(clazz);
+  }
+
+  /**
+   * Removes the cached field metadata of all classes that are defined by a class loader, or that
+   * extend such a class.
+   *
+   * @param classLoader the class loader of the classes to remove from the cache
+   */
+  public static void clearCache(ClassLoader classLoader) {
+    FieldCache.clear(classLoader);
+  }
+
+  /**
+   * Limits the number of classes in the field metadata cache, the least recently used classes are
+   * evicted first.
+   *
+   * @param maximumSize the maximum number of cached classes, 0 means unbounded
+   */
+  public static void setMaximumCacheSize(int maximumSize) {
+    FieldCache.setMaximumSize(maximumSize);
+  }
+
+  /**
+   * Fills the field metadata cache with the fields and accessors of the given classes, in parallel
+   * on the common ForkJoinPool.
+   *
+   * @param classes the classes to scan for fields
+   * @return the number of classes and accessors, and how long it took
+   */
+  public static WarmUpReport warmUp(Collection<Class<?>> classes) {
+    return CacheWarmUp.warmUp(classes);
+  }
+
+  /**
+   * Fills the field metadata cache with the fields and accessors of all classes in a package and
+   * its subpackages, in parallel on the common ForkJoinPool. The classes are loaded but not
+   * initialized.
+   *
+   * @param packagePrefix the package name, like com.example
+   * @param classLoader the class loader that finds and loads the classes
+   * @return the number of classes and accessors, and how long it took
+   */
+  public static WarmUpReport warmUp(String packagePrefix, ClassLoader classLoader) {
+    return CacheWarmUp.warmUp(packagePrefix, classLoader);
+  }
+
+  /**
+   * Creates a deep copy of an object graph, see ReflectionHelper.deepCopy.
+   *
+   * @param source the root of the graph, can be null
+   * @param <T> the class of the root
+   * @return the copy
+   */
+  public static <T> T deepCopy(T source) {
+    return DeepCopier.deepCopy(source);
+  }
+
+  /**
+   * Compares two object graphs field by field, see ReflectionHelper.deepEquals.
+   *
+   * @param first the first graph, can be null
+   * @param second the second graph, can be null
+   * @return true if all fields are equal
+   */
+  public static boolean deepEquals(Object first, Object second) {
+    return DEEP_COMPARATOR.deepEquals(first, second);
+  }
+
+  /**
+   * Returns a hash code that is consistent with deepEquals, see ReflectionHelper.deepHashCode.
+   *
+   * @param value the graph, can be null
+   * @return the hash code
+   */
+  public static int deepHashCode(Object value) {
+    return DEEP_COMPARATOR.deepHashCode(value);
+  }
+
+  /**
+   * Lists the paths of the fields that differ between two object graphs, see
+   * ReflectionHelper.deepDiff.
+   *
+   * @param first the first graph, can be null
+   * @param second the second graph, can be null
+   * @return the differing paths, empty if the graphs are equal
+   */
+  public static List<String> deepDiff(Object first, Object second) {
+    return DEEP_COMPARATOR.diff(first, second);
+  }
+
+  /**
+   * Returns the values of all instance fields, see ReflectionHelper.toMap.
+   *
+   * @param instance the object to read
+   * @return the field values, keyed by field name
+   */
+  public static Map<String, Object> toMap(Object instance) {
+    return FieldCache.get(instance.getClass()).getMapPlan().toMap(instance);
+  }
+
+  /**
+   * Passes the name and value of all instance fields to a visitor, see
+   * ReflectionHelper.visitFields.
+   *
+   * @param instance the object to read
+   * @param visitor receives the field name and value
+   */
+  public static void visitFields(Object instance, BiConsumer<String, Object> visitor) {
+    FieldCache.get(instance.getClass()).getMapPlan().visit(instance, visitor);
+  }
+
+  /**
+   * Sets the instance fields named by the keys, see ReflectionHelper.populate.
+   *
+   * @param instance the object to fill
+   * @param fieldValues field values, keyed by field name
+   * @throws NoSuchFieldException if any key is null or does not name an instance field, no field is
+   *     set then
+   * @throws IllegalArgumentException if any value does not fit its field, after the other values
+   *     are set
+   * @throws UnsupportedOperationException if any field can never be written, after the other values
+   *     are set
+   */
+  public static void populate(Object instance, Map<String, ?> fieldValues)
+      throws NoSuchFieldException {
+    FieldCache.get(instance.getClass()).getMapPlan().populate(instance, fieldValues);
   }
 
   /**
@@ -43,14 +189,41 @@ public class FieldHelper {
    */
   public Object getValueByName(String fieldName)
       throws IllegalAccessException, NoSuchFieldException {
-    Field field = getFieldByName(fieldName, classContainingField, allFields);
-    MakeFieldAccessible makeFieldAccessible = new MakeFieldAccessible(field);
-
-    Object returnValue = field.get(instance);
+    return fieldResolver.getAccessorByName(fieldName).get(instance);
+  }
 
-    makeFieldAccessible.restoreAccessState();
+  /**
+   * Get the value at the end of a dotted path of field names, like {@code customer.address.zip}.
+   *
+   * @param path the field names separated by dots
+   * @param nullSafe true to return null, instead of throwing NullPointerException, when a field on
+   *     the way is null
+   * @return the value of the last field
+   * @throws NoSuchFieldException thrown if a field cannot be located
+   */
+  public Object getValueByPath(String path, boolean nullSafe) throws NoSuchFieldException {
+    FieldPath fieldPath = fieldResolver.getAccessorByPath(path);
+    return nullSafe ? fieldPath.getNullSafe(instance) : fieldPath.get(instance);
+  }
 
-    return returnValue;
+  /**
+   * Inserts a value for the last field of a dotted path of field names.
+   *
+   * @param path the field names separated by dots
+   * @param value the field value to set
+   * @param nullSafe true to skip, instead of throwing NullPointerException, when a field on the way
+   *     is null
+   * @return true if the field was set
+   * @throws NoSuchFieldException thrown if a field cannot be located
+   */
+  public boolean setValueByPath(String path, Object value, boolean nullSafe)
+      throws NoSuchFieldException {
+    FieldPath fieldPath = fieldResolver.getAccessorByPath(path);
+    if (nullSafe) {
+      return fieldPath.setNullSafe(instance, value);
+    }
+    fieldPath.set(instance, value);
+    return true;
   }
 
   /**
@@ -63,19 +236,9 @@ public class FieldHelper {
    *     accessible.
    * @throws NoSuchFieldException thrown if field cannot be located
    */
-  @SuppressWarnings("unchecked")
   public <T> T getValueByType(Class<T> valueClass)
       throws IllegalAccessException, NoSuchFieldException {
-    checkForObjectValueClass(valueClass);
-
-    Field field = getFieldByType(valueClass, classContainingField, allFields);
-    MakeFieldAccessible makeFieldAccessible = new MakeFieldAccessible(field);
-
-    Object returnValue = field.get(instance);
-
-    makeFieldAccessible.restoreAccessState();
-
-    return (T) returnValue;
+    return fieldResolver.getAccessorByType(valueClass).get(instance);
   }
 
   /**
@@ -89,12 +252,7 @@ public class FieldHelper {
    */
   public void setValueByName(String fieldName, Object value)
       throws IllegalAccessException, NoSuchFieldException {
-    Field field = getFieldByName(fieldName, classContainingField, allFields);
-    MakeFieldAccessible makeFieldAccessible = new MakeFieldAccessible(field);
-
-    field.set(instance, value);
-
-    makeFieldAccessible.restoreAccessState();
+    fieldResolver.getAccessorByName(fieldName).set(instance, value);
   }
 
   /**
@@ -105,85 +263,45 @@ public class FieldHelper {
    * @throws NoSuchFieldException thrown if field cannot be located
    */
   public void setValueByType(Object value) throws IllegalAccessException, NoSuchFieldException {
-    checkForObjectValueClass(value.getClass());
-
-    Field field = getFieldByType(value.getClass(), classContainingField, allFields);
-    MakeFieldAccessible makeFieldAccessible = new MakeFieldAccessible(field);
-
-    field.set(instance, value);
-
-    makeFieldAccessible.restoreAccessState();
+    @SuppressWarnings("unchecked")
+    FieldAccessor<Object> accessor =
+        (FieldAccessor<Object>) fieldResolver.getAccessorByType(value.getClass());
+    accessor.set(instance, value);
   }
 
-  private void checkForObjectValueClass(Class valueClass) {
-    if (valueClass == Object.class) {
-      throw new IllegalArgumentException(
-          "Cannot match Object.class type parameter, you must specify it by name");
-    }
-  }
-
-  private Field getFieldByName(
-      String fieldName, Class<?> classContainingField, Collection<Field> classFields)
-      throws NoSuchFieldException {
-    for (Field potentialField : classFields) {
-      if (potentialField.getName().equals(fieldName)) {
-        return potentialField;
-      }
-    }
-
-    Class<?> superclass = classContainingField.getSuperclass();
-    if (superclass == null) {
-      throw new NoSuchFieldException(
-          String.format("Cannot find visible field named %s", fieldName));
-    }
-
-    return getFieldByName(fieldName, superclass, new FieldExtractor(superclass).getAllFields());
-  }
-
-  private Field getFieldByType(
-      Class valueClass, Class<?> classContainingField, Collection<Field> classFields)
-      throws NoSuchFieldException {
-    Collection<Field> matchingFields = filterOnTypeMatches(classFields, valueClass);
-
-    if (matchingFields.size() > 1) {
-      throw new IllegalArgumentException(
-          String.format(
-              "Found too many (%s) matches for field %s %s, specify the field by name instead",
-              matchingFields.size(), valueClass, extractFieldNames(matchingFields)));
-    }
-
-    if (matchingFields.size() == 1) {
-      return matchingFields.iterator().next();
-    }
-
-    Class<?> superclass = classContainingField.getSuperclass();
-    if (superclass == null) {
-      throw new NoSuchFieldException(String.format("Cannot find visible field for %s", valueClass));
-    }
-
-    return getFieldByType(valueClass, superclass, new FieldExtractor(superclass).getAllFields());
+  /**
+   * Resolve the named field to an accessor that can be used repeatedly and on other instances of
+   * the same class.
+   *
+   * @param fieldName the name of the field
+   * @return the accessor for the field
+   * @throws NoSuchFieldException thrown if field cannot be located
+   */
+  public FieldAccessor<Object> getAccessorByName(String fieldName) throws NoSuchFieldException {
+    return fieldResolver.getAccessorByName(fieldName);
   }
 
-  private Collection<Field> filterOnTypeMatches(
-      Collection<Field> matchingFields, Class valueClass) {
-    List<Field> returnValue = new ArrayList<>();
-    PrimitiveMatcher primitiveMatcher = new PrimitiveMatcher(valueClass);
-
-    for (Field matchingField : matchingFields) {
-      if (matchingField.getType() != Object.class
-          && (primitiveMatcher.isMatchedPrimitive(matchingField.getType())
-              || matchingField.getType().isAssignableFrom(valueClass))) {
-        returnValue.add(matchingField);
-      }
-    }
-    return returnValue;
+  /**
+   * Resolve the named field to an accessor, without throwing an exception if the field does not
+   * exist.
+   *
+   * @param fieldName the name of the field
+   * @return the accessor for the field, or null if field cannot be located
+   */
+  public FieldAccessor<Object> findAccessorByName(String fieldName) {
+    return fieldResolver.findAccessorByName(fieldName);
   }
 
-  private String extractFieldNames(Collection<Field> matchingFields) {
-    List<String> fieldNames = new ArrayList<>();
-    for (Field matchingField : matchingFields) {
-      fieldNames.add(matchingField.getName());
-    }
-    return fieldNames.toString();
+  /**
+   * Resolve the matching field by looking at class type to an accessor that can be used repeatedly
+   * and on other instances of the same class.
+   *
+   * @param <T> the type of the field
+   * @param valueClass the class type of field
+   * @return the accessor for the field
+   * @throws NoSuchFieldException thrown if field cannot be located
+   */
+  public <T> FieldAccessor<T> getAccessorByType(Class<T> valueClass) throws NoSuchFieldException {
+    return fieldResolver.getAccessorByType(valueClass);
   }
 }
@@ -0,0 +1,116 @@
+package refutils.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+/**
+ * How instances of one class are converted to and from maps of field values, computed once per
+ * class. The plan holds the accessors of all instance fields that can be reached by name, sorted on
+ * name. The keys are the field names from the class metadata, so all maps share the same key
+ * strings.
+ */
+final class FieldMapPlan {
+  private final Class<?> type;
+  private final String[] names;
+  private final FieldAccessor<Object>[] accessors;
+
+  /** Initial capacity of a LinkedHashMap that holds all fields without rehashing. */
+  private final int mapCapacity;
+
+  private FieldMapPlan(Class<?> type, String[] names, FieldAccessor<Object>[] accessors) {
+    this.type = type;
+    this.names = names;
+    this.accessors = accessors;
+    this.mapCapacity = names.length * 4 / 3 + 1;
+  }
+
+  @SuppressWarnings("unchecked")
+  static FieldMapPlan create(ClassFields classFields) {
+    Map<String, FieldAccessor<?>> instanceAccessors = new TreeMap<>();
+    classFields.collectInstanceAccessors(instanceAccessors);
+    instanceAccessors.values().removeIf(accessor -> accessor == null);
+
+    String[] names = instanceAccessors.keySet().toArray(new String[0]);
+    FieldAccessor<Object>[] accessors =
+        instanceAccessors
+            .values()
+            .toArray((FieldAccessor<Object>[]) new FieldAccessor<?>[instanceAccessors.size()]);
+    return new FieldMapPlan(classFields.getType(), names, accessors);
+  }
+
+  /** Returns the values of all instance fields, keyed by field name in name order. */
+  Map<String, Object> toMap(Object instance) {
+    Map<String, Object> fieldValues = new LinkedHashMap<>(mapCapacity);
+    for (int index = 0; index < names.length; index++) {
+      fieldValues.put(names[index], accessors[index].get(instance));
+    }
+    return fieldValues;
+  }
+
+  /** Passes the name and value of all instance fields to the visitor, in name order. */
+  void visit(Object instance, BiConsumer<String, Object> visitor) {
+    for (int index = 0; index < names.length; index++) {
+      visitor.accept(names[index], accessors[index].get(instance));
+    }
+  }
+
+  /**
+   * Sets the instance fields named by the keys. All fields are located before any value is set. A
+   * value that cannot be set does not stop the other values from being set.
+   *
+   * @throws NoSuchFieldException if any key is null or does not name an instance field, listing all
+   *     such keys
+   * @throws IllegalArgumentException if any value does not fit its field, or
+   *     UnsupportedOperationException if any field can never be written, like a record field. The
+   *     first such error is thrown with the others suppressed
+   */
+  void populate(Object instance, Map<String, ?> fieldValues) throws NoSuchFieldException {
+    // The accessor of each entry is kept as its index, together with the value
+    int[] indexes = new int[fieldValues.size()];
+    Object[] values = new Object[indexes.length];
+    List<String> missingNames = null;
+    int position = 0;
+    for (Map.Entry<String, ?> entry : fieldValues.entrySet()) {
+      String name = entry.getKey();
+      // A map from toMap has the same keys in the same order, which is checked by identity
+      int index =
+          position < names.length && names[position] == name
+              ? position
+              : name == null ? -1 : Arrays.binarySearch(names, name);
+      if (index < 0) {
+        if (missingNames == null) {
+          missingNames = new ArrayList<>();
+        }
+        missingNames.add(name);
+      }
+      indexes[position] = index;
+      values[position++] = entry.getValue();
+    }
+    if (missingNames != null) {
+      throw new NoSuchFieldException(
+          String.format(
+              "Cannot find instance fields named %s in %s", missingNames, type.getName()));
+    }
+
+    RuntimeException setError = null;
+    for (position = 0; position < indexes.length; position++) {
+      try {
+        accessors[indexes[position]].set(instance, values[position]);
+      } catch (IllegalArgumentException | UnsupportedOperationException ex) {
+        if (setError == null) {
+          setError = ex;
+        } else {
+          setError.addSuppressed(ex);
+        }
+      }
+    }
+    if (setError != null) {
+      throw setError;
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package refutils.util;
+
+/**
+ * A compiled chain of field accessors for a dotted path, like {@code order.customer.address.zip}.
+ * The path is compiled once per root class. Each step after the first remembers the class it was
+ * last resolved against, so following the path costs one class check and one field load per step.
+ * When the value of a step has another runtime class, the next field is resolved in that class,
+ * where also its private fields can be reached. A class that is not visible from the class loader
+ * of the root class, like a class from a child class loader, is resolved on every use instead of
+ * remembered, so that the path never keeps that class loader alive. The path is thread safe and can
+ * be stored in static fields.
+ */
+public final class FieldPath {
+  private final String path;
+  private final FieldAccessor<Object> rootAccessor;
+  private final Step[] steps;
+
+  private FieldPath(String path, FieldAccessor<Object> rootAccessor, Step[] steps) {
+    this.path = path;
+    this.rootAccessor = rootAccessor;
+    this.steps = steps;
+  }
+
+  /**
+   * Compiles a path, the first field is resolved in the root class.
+   *
+   * @throws NoSuchFieldException if the first field cannot be located
+   */
+  static FieldPath compile(ClassFields rootFields, String path) throws NoSuchFieldException {
+    String[] names = split(path);
+    FieldAccessor<Object> rootAccessor = findAccessor(rootFields, names[0]);
+    if (rootAccessor == null) {
+      throw new NoSuchFieldException(
+          String.format("Cannot find visible field named %s in path %s", names[0], path));
+    }
+    Step[] steps = new Step[names.length - 1];
+    Class<?> declaredType = rootAccessor.getType();
+    for (int i = 0; i < steps.length; i++) {
+      steps[i] = new Step(path, names[i + 1], rootFields.getType());
+      // Most values have the declared class, so the step is resolved in advance when it can be
+      declaredType = steps[i].prime(declaredType);
+    }
+    return new FieldPath(path, rootAccessor, steps);
+  }
+
+  private static String[] split(String path) {
+    String[] names = path.split("\\.", -1);
+    for (String name : names) {
+      if (name.isEmpty()) {
+        throw new IllegalArgumentException(String.format("Invalid field path '%s'", path));
+      }
+    }
+    return names;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static FieldAccessor<Object> findAccessor(ClassFields classFields, String name) {
+    return (FieldAccessor<Object>) classFields.getAccessorByName(name);
+  }
+
+  /** Returns the dotted path. */
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * Gets the value at the end of the path.
+   *
+   * @param root an instance of the root class
+   * @return the value of the last field
+   * @throws NullPointerException if a field before the last one is null
+   * @throws NoSuchFieldException if the runtime class of a value does not have the next field
+   */
+  public Object get(Object root) throws NoSuchFieldException {
+    Object owner = root;
+    Object value = rootAccessor.get(owner);
+    for (int i = 0; i < steps.length; i++) {
+      owner = requireOwner(value, i);
+      value = steps[i].accessor(owner).get(owner);
+    }
+    return value;
+  }
+
+  /**
+   * Gets the value at the end of the path, or null if any field on the way is null.
+   *
+   * @param root an instance of the root class
+   * @return the value of the last field, or null
+   * @throws NoSuchFieldException if the runtime class of a value does not have the next field
+   */
+  public Object getNullSafe(Object root) throws NoSuchFieldException {
+    Object value = rootAccessor.get(root);
+    for (int i = 0; i < steps.length && value != null; i++) {
+      value = steps[i].accessor(value).get(value);
+    }
+    return value;
+  }
+
+  /**
+   * Sets the last field of the path.
+   *
+   * @param root an instance of the root class
+   * @param value the value to set
+   * @throws NullPointerException if a field before the last one is null
+   * @throws NoSuchFieldException if the runtime class of a value does not have the next field
+   */
+  public void set(Object root, Object value) throws NoSuchFieldException {
+    if (steps.length == 0) {
+      rootAccessor.set(root, value);
+      return;
+    }
+    Object owner = requireOwner(rootAccessor.get(root), 0);
+    for (int i = 0; i < steps.length - 1; i++) {
+      owner = requireOwner(steps[i].accessor(owner).get(owner), i + 1);
+    }
+    steps[steps.length - 1].accessor(owner).set(owner, value);
+  }
+
+  /**
+   * Sets the last field of the path, unless a field on the way is null.
+   *
+   * @param root an instance of the root class
+   * @param value the value to set
+   * @return true if the field was set, false if a field before the last one is null
+   * @throws NoSuchFieldException if the runtime class of a value does not have the next field
+   */
+  public boolean setNullSafe(Object root, Object value) throws NoSuchFieldException {
+    if (steps.length == 0) {
+      rootAccessor.set(root, value);
+      return true;
+    }
+    Object owner = rootAccessor.get(root);
+    for (int i = 0; i < steps.length - 1 && owner != null; i++) {
+      owner = steps[i].accessor(owner).get(owner);
+    }
+    if (owner == null) {
+      return false;
+    }
+    steps[steps.length - 1].accessor(owner).set(owner, value);
+    return true;
+  }
+
+  private Object requireOwner(Object value, int step) {
+    if (value == null) {
+      throw new NullPointerException(
+          String.format("Cannot follow path %s, %s is null", path, subPath(step)));
+    }
+    return value;
+  }
+
+  /** Returns the path up to, and including, the field before the step. */
+  private String subPath(int step) {
+    int end = -1;
+    for (int i = 0; i <= step; i++) {
+      end = path.indexOf('.', end + 1);
+    }
+    return path.substring(0, end);
+  }
+
+  @Override
+  public String toString() {
+    return "FieldPath{" + path + '}';
+  }
+
+  /** One field after the root, resolved in the runtime class of the value before it. */
+  private static final class Step {
+    private final String path;
+    private final String name;
+    private final Class<?> rootClass;
+
+    /**
+     * The last resolved class and accessor, replaced when the runtime class changes. Only classes
+     * that are visible from the root class are linked.
+     */
+    private volatile Link link;
+
+    Step(String path, String name, Class<?> rootClass) {
+      this.path = path;
+      this.name = name;
+      this.rootClass = rootClass;
+    }
+
+    /** Resolves the step in the declared class, returns the declared class of the field or null. */
+    Class<?> prime(Class<?> declaredType) {
+      if (declaredType == null || declaredType.isPrimitive()) {
+        return null;
+      }
+      FieldAccessor<Object> accessor = findAccessor(FieldCache.getNested(declaredType), name);
+      if (accessor == null) {
+        return null;
+      }
+      linkTo(declaredType, accessor);
+      return accessor.getType();
+    }
+
+    FieldAccessor<Object> accessor(Object owner) throws NoSuchFieldException {
+      Class<?> ownerClass = owner.getClass();
+      Link current = link;
+      if (current != null && current.ownerClass == ownerClass) {
+        return current.accessor;
+      }
+      FieldAccessor<Object> accessor = findAccessor(FieldCache.getNested(ownerClass), name);
+      if (accessor == null) {
+        throw new NoSuchFieldException(
+            String.format(
+                "Cannot find visible field named %s in %s, in path %s",
+                name, ownerClass.getName(), path));
+      }
+      linkTo(ownerClass, accessor);
+      return accessor;
+    }
+
+    private void linkTo(Class<?> ownerClass, FieldAccessor<Object> accessor) {
+      // The accessor belongs to the owner class or a superclass, which are as visible as the owner
+      if (ClassFields.isVisible(ownerClass, rootClass)) {
+        link = new Link(ownerClass, accessor);
+      }
+    }
+  }
+
+  private static final class Link {
+    private final Class<?> ownerClass;
+    private final FieldAccessor<Object> accessor;
+
+    Link(Class<?> ownerClass, FieldAccessor<Object> accessor) {
+      this.ownerClass = ownerClass;
+      this.accessor = accessor;
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package refutils.util;
+
+/**
+ * Resolves fields in a class to accessors, without being tied to a specific instance. The field can
+ * be located by class type or field name. The accessors can then be used on any instance of the
+ * class. Every resolution marks the class as recently used in the field metadata cache.
+ */
+public final class FieldResolver {
+  private final ClassFields classFields;
+  private final Class<?> classContainingField;
+
+  /**
+   * Instantiates a FieldResolver. By specifying a superclass, the FieldResolver can be used to
+   * reach hidden private variables in the super class
+   *
+   * @param classContainingField the class where the fields are defined
+   */
+  public FieldResolver(Class<?> classContainingField) {
+    this(FieldCache.get(classContainingField));
+  }
+
+  FieldResolver(ClassFields classFields) {
+    this.classFields = classFields;
+    this.classContainingField = classFields.getType();
+  }
+
+  /**
+   * Returns the resolver for the class, which is cached with the field metadata of the class, so
+   * that no resolver is allocated.
+   *
+   * @param classContainingField the class where the fields are defined
+   * @return the shared resolver
+   */
+  public static FieldResolver of(Class<?> classContainingField) {
+    return FieldCache.get(classContainingField).getResolver();
+  }
+
+  /** Returns the class where the fields are defined. */
+  public Class<?> getClassContainingField() {
+    return classContainingField;
+  }
+
+  /**
+   * Resolve the named field to an accessor that can be used repeatedly and on any instance of the
+   * class.
+   *
+   * @param fieldName the name of the field
+   * @return the accessor for the field
+   * @throws NoSuchFieldException thrown if field cannot be located
+   */
+  public FieldAccessor<Object> getAccessorByName(String fieldName) throws NoSuchFieldException {
+    FieldAccessor<Object> accessor = findAccessorByName(fieldName);
+    if (accessor == null) {
+      throw new NoSuchFieldException(
+          String.format("Cannot find visible field named %s", fieldName));
+    }
+    return accessor;
+  }
+
+  /**
+   * Resolve the named field to an accessor, without throwing an exception if the field does not
+   * exist. Misses are as cheap as hits, one binary search, since the names of the whole class
+   * hierarchy are indexed per class.
+   *
+   * @param fieldName the name of the field
+   * @return the accessor for the field, or null if field cannot be located
+   */
+  @SuppressWarnings("unchecked")
+  public FieldAccessor<Object> findAccessorByName(String fieldName) {
+    FieldCache.accessed(classFields);
+    return (FieldAccessor<Object>) classFields.getAccessorByName(fieldName);
+  }
+
+  /**
+   * Resolve the matching field by looking at class type to an accessor that can be used repeatedly
+   * and on any instance of the class.
+   *
+   * @param <T> the type of the field
+   * @param valueClass the class type of field
+   * @return the accessor for the field
+   * @throws NoSuchFieldException thrown if field cannot be located
+   */
+  @SuppressWarnings("unchecked")
+  public <T> FieldAccessor<T> getAccessorByType(Class<T> valueClass) throws NoSuchFieldException {
+    checkForObjectValueClass(valueClass);
+    FieldCache.accessed(classFields);
+    return (FieldAccessor<T>) classFields.getFieldByType(valueClass).getAccessor();
+  }
+
+  /**
+   * Resolve a dotted path of field names, like {@code order.customer.address.zip}, to a compiled
+   * path that can be used repeatedly and on any instance of the class. The first field is resolved
+   * in this class, the other fields in the runtime class of the value before them. The path is
+   * compiled once per class, for up to 64 different paths per class.
+   *
+   * @param path the field names separated by dots
+   * @return the compiled path
+   * @throws NoSuchFieldException thrown if the first field cannot be located
+   */
+  public FieldPath getAccessorByPath(String path) throws NoSuchFieldException {
+    FieldCache.accessed(classFields);
+    return classFields.getPath(path);
+  }
+
+  private void checkForObjectValueClass(Class valueClass) {
+    if (valueClass == Object.class) {
+      throw new IllegalArgumentException(
+          "Cannot match Object.class type parameter, you must specify it by name");
+    }
+  }
+}
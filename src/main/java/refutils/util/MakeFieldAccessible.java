@@ -4,35 +4,28 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 
 /**
+ * Makes cached fields accessible. The field is made accessible once, when its accessor is created,
+ * and stays accessible for as long as the field metadata is cached. Since the access state is never
+ * restored, threads that share the cached field cannot undo each other's access.
+ *
  * @author bjorn
  * @since 2013-10-17
  */
-class MakeFieldAccessible {
-  private final Field field;
-  private final boolean accessibleState;
-  private Field staticFinalModifierField = null;
+final class MakeFieldAccessible {
+  private MakeFieldAccessible() {}
 
   /**
-   * Creates entity and makes the field supplied accessible to set values.
+   * Makes the field supplied accessible to get and set values.
    *
    * @param field the field to modify
    */
-  MakeFieldAccessible(Field field) {
-    this.field = field;
+  static void makeAccessible(Field field) {
     boolean fieldIsStaticField = Modifier.isStatic(field.getModifiers());
 
-    accessibleState = field.isAccessible();
-    field.setAccessible(true);
-
     if (fieldIsStaticField && Modifier.isFinal(field.getModifiers())) {
       throw new IllegalArgumentException("Cannot make final static field accessible");
     }
-  }
 
-  void restoreAccessState() throws IllegalAccessException {
-    field.setAccessible(accessibleState);
-    if (staticFinalModifierField != null) {
-      staticFinalModifierField.setInt(field, field.getModifiers() | ~Modifier.FINAL);
-    }
+    field.setAccessible(true);
   }
 }
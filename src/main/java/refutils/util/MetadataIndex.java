@@ -0,0 +1,346 @@
+package refutils.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.CodeSource;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+/**
+ * Reads the field metadata index that is written at build time by the
+ * reflection-utils-maven-plugin. The index files of a class loader are read once, and each class
+ * entry is decoded when the class is first cached.
+ *
+ * <p>An entry only lists the fields that the class itself declares, so an entry never goes stale
+ * when a superclass in another jar changes. The visible fields are put together per class in the
+ * hierarchy, from the entry of the class or from getDeclaredFields, with the same rules as the
+ * FieldExtractor. An entry is only used for a class that was loaded from the same jar or directory
+ * as the index, so that another class with the same name is never described by it, and only if the
+ * class file still has the checksum that it had when the index was written. A class that has been
+ * recompiled since then, by an IDE for instance, is scanned instead. The checksums of a jar are
+ * read from its central directory, while a class file in a directory is read and summed when the
+ * class is first cached.
+ *
+ * <p>The file starts with a magic number, a format version and the number of classes. Each class
+ * has its name, the CRC-32 checksum of its class file and the byte length of its entry, followed by
+ * the number of declared fields and, for each field, the name, the type name and the modifiers.
+ * Files that cannot be read, or that have another magic number or version, are skipped, and their
+ * classes are scanned instead.
+ */
+final class MetadataIndex {
+  /** Location of the index, relative to the class path root. */
+  static final String RESOURCE_NAME = "META-INF/refutils/field-metadata.idx";
+
+  static final int MAGIC = 0x52554649;
+  static final int VERSION = 3;
+
+  /** The indexes per class loader. Guarded by itself. */
+  private static final Map<ClassLoader, MetadataIndex> INDEXES = new WeakHashMap<>();
+
+  private static final Map<String, Class<?>> PRIMITIVES = new HashMap<>();
+
+  /** The checksum of the class file has not been read yet. */
+  private static final long UNKNOWN_CHECKSUM = -1;
+
+  /** The class file cannot be read, so the entry does not describe the class. */
+  private static final long MISSING_CHECKSUM = -2;
+
+  static {
+    for (Class<?> primitive :
+        new Class<?>[] {
+          boolean.class, byte.class, char.class, short.class,
+          int.class, long.class, float.class, double.class
+        }) {
+      PRIMITIVES.put(primitive.getName(), primitive);
+    }
+  }
+
+  /** Class name to its entry, the first index on the class path wins. */
+  private final Map<String, Entry> entries = new HashMap<>();
+
+  private MetadataIndex(ClassLoader classLoader) {
+    Enumeration<URL> resources;
+    try {
+      resources = classLoader.getResources(RESOURCE_NAME);
+    } catch (IOException ex) {
+      // Without an index all classes are scanned
+      return;
+    }
+    while (resources.hasMoreElements()) {
+      URL resource = resources.nextElement();
+      try {
+        read(resource);
+      } catch (IOException ex) {
+        // A broken index is skipped, its classes are scanned instead
+      }
+    }
+  }
+
+  /**
+   * Returns the visible fields of a class, if the class is indexed.
+   *
+   * @param type the class containing the fields
+   * @return the visible fields, or null if the class is not indexed, or an indexed field type
+   *     cannot be resolved
+   */
+  static VisibleFields find(Class<?> type) {
+    DeclaredField[] declaredFields = findDeclaredFields(type);
+    if (declaredFields == null) {
+      return null;
+    }
+    // Fields of a class hide the fields with the same name in the superclasses
+    Map<String, DeclaredField> visibleFields = new TreeMap<>();
+    addFields(visibleFields, declaredFields, true);
+    for (Class<?> superclass = type.getSuperclass();
+        superclass != null && !FieldExtractor.isPlatformClass(superclass);
+        superclass = superclass.getSuperclass()) {
+      DeclaredField[] inheritedFields = findDeclaredFields(superclass);
+      addFields(
+          visibleFields,
+          inheritedFields == null ? DeclaredField.of(superclass) : inheritedFields,
+          false);
+    }
+
+    String[] names = new String[visibleFields.size()];
+    Class<?>[] types = new Class<?>[names.length];
+    Class<?>[] declaringClasses = new Class<?>[names.length];
+    int index = 0;
+    for (DeclaredField field : visibleFields.values()) {
+      names[index] = field.name;
+      types[index] = field.type;
+      declaringClasses[index] = field.declaringClass;
+      index++;
+    }
+    return new VisibleFields(names, types, declaringClasses);
+  }
+
+  private static void addFields(
+      Map<String, DeclaredField> visibleFields, DeclaredField[] fields, boolean includePrivate) {
+    for (DeclaredField field : fields) {
+      if (includePrivate || !Modifier.isPrivate(field.modifiers)) {
+        visibleFields.putIfAbsent(field.name, field);
+      }
+    }
+  }
+
+  /** Returns the declared fields of a class from the index, or null if it is not indexed. */
+  private static DeclaredField[] findDeclaredFields(Class<?> type) {
+    ClassLoader classLoader = type.getClassLoader();
+    if (classLoader == null) {
+      return null;
+    }
+    MetadataIndex index;
+    synchronized (INDEXES) {
+      index = INDEXES.get(classLoader);
+      if (index == null) {
+        index = new MetadataIndex(classLoader);
+        INDEXES.put(classLoader, index);
+      }
+    }
+    Entry entry = index.entries.get(type.getName());
+    return entry == null || !entry.describes(type) ? null : entry.decode(type);
+  }
+
+  private void read(URL resource) throws IOException {
+    URLConnection connection = resource.openConnection();
+    // Do not keep the jar open, the whole index is read into memory
+    connection.setUseCaches(false);
+    Map<String, Entry> fileEntries = new HashMap<>();
+    try (InputStream inputStream = connection.getInputStream()) {
+      byte[] data = readFully(inputStream);
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+      if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+        // Not an index, or written by another version of the library
+        return;
+      }
+      // The jar is open until the stream is closed
+      JarFile jarFile =
+          connection instanceof JarURLConnection
+              ? ((JarURLConnection) connection).getJarFile()
+              : null;
+      String location = locationOf(resource);
+      int classCount = in.readInt();
+      for (int i = 0; i < classCount; i++) {
+        String className = in.readUTF();
+        long checksum = in.readInt() & 0xFFFFFFFFL;
+        int length = in.readInt();
+        int offset = data.length - in.available();
+        if (length < 0 || in.skipBytes(length) != length) {
+          throw new IOException(String.format("%s is truncated", resource));
+        }
+        fileEntries.put(
+            className,
+            new Entry(
+                location,
+                checksum,
+                jarFile == null ? UNKNOWN_CHECKSUM : jarChecksumOf(jarFile, className),
+                data,
+                offset,
+                length));
+      }
+    }
+    for (Map.Entry<String, Entry> entry : fileEntries.entrySet()) {
+      entries.putIfAbsent(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /** Returns the checksum of a class file in a jar, or MISSING_CHECKSUM if it is not there. */
+  private static long jarChecksumOf(JarFile jarFile, String className) {
+    ZipEntry zipEntry = jarFile.getEntry(classFileName(className));
+    return zipEntry == null || zipEntry.getCrc() == -1 ? MISSING_CHECKSUM : zipEntry.getCrc();
+  }
+
+  private static String classFileName(String className) {
+    return className.replace('.', '/') + ".class";
+  }
+
+  /**
+   * Returns the location of the jar or directory that contains the index, in the form of a code
+   * source location.
+   */
+  private static String locationOf(URL resource) {
+    String url = resource.toExternalForm();
+    String location = url.substring(0, url.length() - RESOURCE_NAME.length());
+    if (location.startsWith("jar:") && location.endsWith("!/")) {
+      return location.substring("jar:".length(), location.length() - "!/".length());
+    }
+    return location;
+  }
+
+  private static byte[] readFully(InputStream inputStream) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = inputStream.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+    }
+    return out.toByteArray();
+  }
+
+  /** A field that a class declares, from the index or from getDeclaredFields. */
+  private static final class DeclaredField {
+    private final String name;
+    private final Class<?> type;
+    private final int modifiers;
+    private final Class<?> declaringClass;
+
+    DeclaredField(String name, Class<?> type, int modifiers, Class<?> declaringClass) {
+      this.name = name;
+      this.type = type;
+      this.modifiers = modifiers;
+      this.declaringClass = declaringClass;
+    }
+
+    static DeclaredField[] of(Class<?> type) {
+      Field[] fields = type.getDeclaredFields();
+      DeclaredField[] declaredFields = new DeclaredField[fields.length];
+      for (int i = 0; i < fields.length; i++) {
+        declaredFields[i] =
+            new DeclaredField(
+                fields[i].getName(), fields[i].getType(), fields[i].getModifiers(), type);
+      }
+      return declaredFields;
+    }
+  }
+
+  /** The encoded fields of one class, a slice of the index file. */
+  private static final class Entry {
+    private final String location;
+    private final long indexedChecksum;
+    private final byte[] data;
+    private final int offset;
+    private final int length;
+
+    /** The checksum of the class file as it is now, read once. */
+    private volatile long currentChecksum;
+
+    Entry(
+        String location,
+        long indexedChecksum,
+        long currentChecksum,
+        byte[] data,
+        int offset,
+        int length) {
+      this.location = location;
+      this.indexedChecksum = indexedChecksum;
+      this.currentChecksum = currentChecksum;
+      this.data = data;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    /**
+     * Returns true if the class was loaded from the jar or directory that contains the index, and
+     * the class file has not changed since the index was written.
+     */
+    boolean describes(Class<?> type) {
+      CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+      if (codeSource == null
+          || codeSource.getLocation() == null
+          || !location.equals(codeSource.getLocation().toExternalForm())) {
+        return false;
+      }
+      if (currentChecksum == UNKNOWN_CHECKSUM) {
+        currentChecksum = checksumOf(type);
+      }
+      return currentChecksum == indexedChecksum;
+    }
+
+    /** Reads the class file from the location of the index and returns its checksum. */
+    private long checksumOf(Class<?> type) {
+      try {
+        URLConnection connection =
+            new URL(location + classFileName(type.getName())).openConnection();
+        connection.setUseCaches(false);
+        CRC32 checksum = new CRC32();
+        try (InputStream inputStream = connection.getInputStream()) {
+          byte[] classFile = readFully(inputStream);
+          checksum.update(classFile, 0, classFile.length);
+        }
+        return checksum.getValue();
+      } catch (IOException ex) {
+        return MISSING_CHECKSUM;
+      }
+    }
+
+    /** Returns the decoded fields, or null if the entry or a field type cannot be resolved. */
+    DeclaredField[] decode(Class<?> type) {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, offset, length));
+      try {
+        DeclaredField[] fields = new DeclaredField[in.readUnsignedShort()];
+        for (int i = 0; i < fields.length; i++) {
+          // Interned like the names of Field objects
+          String name = in.readUTF().intern();
+          String typeName = in.readUTF();
+          int modifiers = in.readInt();
+          fields[i] = new DeclaredField(name, resolve(typeName, type), modifiers, type);
+        }
+        return fields;
+      } catch (IOException | ClassNotFoundException | LinkageError ex) {
+        return null;
+      }
+    }
+
+    private static Class<?> resolve(String typeName, Class<?> declaringClass)
+        throws ClassNotFoundException {
+      Class<?> primitive = PRIMITIVES.get(typeName);
+      return primitive != null
+          ? primitive
+          : Class.forName(typeName, false, declaringClass.getClassLoader());
+    }
+  }
+}
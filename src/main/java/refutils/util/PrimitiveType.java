@@ -0,0 +1,297 @@
+package refutils.util;
+
+import java.util.Arrays;
+
+/**
+ * The operations on primitive fields and arrays that the deep copier and comparator need, one
+ * constant per primitive type. The type is matched once, by the FieldAccessor for fields, so the
+ * operations do not repeat a chain of type checks. Floating point values are compared like
+ * Double.equals and Float.equals, so NaN equals NaN.
+ */
+enum PrimitiveType {
+  BOOLEAN(boolean.class) {
+    @Override
+    void copyField(FieldAccessor<Object> field, Object source, Object target) {
+      field.setBoolean(target, field.getBoolean(source));
+    }
+
+    @Override
+    boolean fieldEquals(FieldAccessor<Object> field, Object first, Object second) {
+      return field.getBoolean(first) == field.getBoolean(second);
+    }
+
+    @Override
+    int fieldHashCode(FieldAccessor<Object> field, Object instance) {
+      return Boolean.hashCode(field.getBoolean(instance));
+    }
+
+    @Override
+    Object cloneArray(Object array) {
+      return ((boolean[]) array).clone();
+    }
+
+    @Override
+    boolean arrayEquals(Object first, Object second) {
+      return Arrays.equals((boolean[]) first, (boolean[]) second);
+    }
+
+    @Override
+    int arrayHashCode(Object array) {
+      return Arrays.hashCode((boolean[]) array);
+    }
+  },
+  BYTE(byte.class) {
+    @Override
+    void copyField(FieldAccessor<Object> field, Object source, Object target) {
+      field.setByte(target, field.getByte(source));
+    }
+
+    @Override
+    boolean fieldEquals(FieldAccessor<Object> field, Object first, Object second) {
+      return field.getByte(first) == field.getByte(second);
+    }
+
+    @Override
+    int fieldHashCode(FieldAccessor<Object> field, Object instance) {
+      return Byte.hashCode(field.getByte(instance));
+    }
+
+    @Override
+    Object cloneArray(Object array) {
+      return ((byte[]) array).clone();
+    }
+
+    @Override
+    boolean arrayEquals(Object first, Object second) {
+      return Arrays.equals((byte[]) first, (byte[]) second);
+    }
+
+    @Override
+    int arrayHashCode(Object array) {
+      return Arrays.hashCode((byte[]) array);
+    }
+  },
+  CHAR(char.class) {
+    @Override
+    void copyField(FieldAccessor<Object> field, Object source, Object target) {
+      field.setChar(target, field.getChar(source));
+    }
+
+    @Override
+    boolean fieldEquals(FieldAccessor<Object> field, Object first, Object second) {
+      return field.getChar(first) == field.getChar(second);
+    }
+
+    @Override
+    int fieldHashCode(FieldAccessor<Object> field, Object instance) {
+      return Character.hashCode(field.getChar(instance));
+    }
+
+    @Override
+    Object cloneArray(Object array) {
+      return ((char[]) array).clone();
+    }
+
+    @Override
+    boolean arrayEquals(Object first, Object second) {
+      return Arrays.equals((char[]) first, (char[]) second);
+    }
+
+    @Override
+    int arrayHashCode(Object array) {
+      return Arrays.hashCode((char[]) array);
+    }
+  },
+  SHORT(short.class) {
+    @Override
+    void copyField(FieldAccessor<Object> field, Object source, Object target) {
+      field.setShort(target, field.getShort(source));
+    }
+
+    @Override
+    boolean fieldEquals(FieldAccessor<Object> field, Object first, Object second) {
+      return field.getShort(first) == field.getShort(second);
+    }
+
+    @Override
+    int fieldHashCode(FieldAccessor<Object> field, Object instance) {
+      return Short.hashCode(field.getShort(instance));
+    }
+
+    @Override
+    Object cloneArray(Object array) {
+      return ((short[]) array).clone();
+    }
+
+    @Override
+    boolean arrayEquals(Object first, Object second) {
+      return Arrays.equals((short[]) first, (short[]) second);
+    }
+
+    @Override
+    int arrayHashCode(Object array) {
+      return Arrays.hashCode((short[]) array);
+    }
+  },
+  INT(int.class) {
+    @Override
+    void copyField(FieldAccessor<Object> field, Object source, Object target) {
+      field.setInt(target, field.getInt(source));
+    }
+
+    @Override
+    boolean fieldEquals(FieldAccessor<Object> field, Object first, Object second) {
+      return field.getInt(first) == field.getInt(second);
+    }
+
+    @Override
+    int fieldHashCode(FieldAccessor<Object> field, Object instance) {
+      return Integer.hashCode(field.getInt(instance));
+    }
+
+    @Override
+    Object cloneArray(Object array) {
+      return ((int[]) array).clone();
+    }
+
+    @Override
+    boolean arrayEquals(Object first, Object second) {
+      return Arrays.equals((int[]) first, (int[]) second);
+    }
+
+    @Override
+    int arrayHashCode(Object array) {
+      return Arrays.hashCode((int[]) array);
+    }
+  },
+  LONG(long.class) {
+    @Override
+    void copyField(FieldAccessor<Object> field, Object source, Object target) {
+      field.setLong(target, field.getLong(source));
+    }
+
+    @Override
+    boolean fieldEquals(FieldAccessor<Object> field, Object first, Object second) {
+      return field.getLong(first) == field.getLong(second);
+    }
+
+    @Override
+    int fieldHashCode(FieldAccessor<Object> field, Object instance) {
+      return Long.hashCode(field.getLong(instance));
+    }
+
+    @Override
+    Object cloneArray(Object array) {
+      return ((long[]) array).clone();
+    }
+
+    @Override
+    boolean arrayEquals(Object first, Object second) {
+      return Arrays.equals((long[]) first, (long[]) second);
+    }
+
+    @Override
+    int arrayHashCode(Object array) {
+      return Arrays.hashCode((long[]) array);
+    }
+  },
+  FLOAT(float.class) {
+    @Override
+    void copyField(FieldAccessor<Object> field, Object source, Object target) {
+      field.setFloat(target, field.getFloat(source));
+    }
+
+    @Override
+    boolean fieldEquals(FieldAccessor<Object> field, Object first, Object second) {
+      return Float.compare(field.getFloat(first), field.getFloat(second)) == 0;
+    }
+
+    @Override
+    int fieldHashCode(FieldAccessor<Object> field, Object instance) {
+      return Float.hashCode(field.getFloat(instance));
+    }
+
+    @Override
+    Object cloneArray(Object array) {
+      return ((float[]) array).clone();
+    }
+
+    @Override
+    boolean arrayEquals(Object first, Object second) {
+      return Arrays.equals((float[]) first, (float[]) second);
+    }
+
+    @Override
+    int arrayHashCode(Object array) {
+      return Arrays.hashCode((float[]) array);
+    }
+  },
+  DOUBLE(double.class) {
+    @Override
+    void copyField(FieldAccessor<Object> field, Object source, Object target) {
+      field.setDouble(target, field.getDouble(source));
+    }
+
+    @Override
+    boolean fieldEquals(FieldAccessor<Object> field, Object first, Object second) {
+      return Double.compare(field.getDouble(first), field.getDouble(second)) == 0;
+    }
+
+    @Override
+    int fieldHashCode(FieldAccessor<Object> field, Object instance) {
+      return Double.hashCode(field.getDouble(instance));
+    }
+
+    @Override
+    Object cloneArray(Object array) {
+      return ((double[]) array).clone();
+    }
+
+    @Override
+    boolean arrayEquals(Object first, Object second) {
+      return Arrays.equals((double[]) first, (double[]) second);
+    }
+
+    @Override
+    int arrayHashCode(Object array) {
+      return Arrays.hashCode((double[]) array);
+    }
+  };
+
+  /** Kept, since values() clones the array on every call. */
+  private static final PrimitiveType[] TYPES = values();
+
+  private final Class<?> type;
+
+  PrimitiveType(Class<?> type) {
+    this.type = type;
+  }
+
+  /** Returns the constant for a primitive class, or null for any other class. */
+  static PrimitiveType of(Class<?> type) {
+    for (PrimitiveType primitiveType : TYPES) {
+      if (primitiveType.type == type) {
+        return primitiveType;
+      }
+    }
+    return null;
+  }
+
+  /** Returns the constant for the elements of a primitive array. */
+  static PrimitiveType ofArray(Object array) {
+    return of(array.getClass().getComponentType());
+  }
+
+  /** Copies the value of the field from the source to the target. */
+  abstract void copyField(FieldAccessor<Object> field, Object source, Object target);
+
+  abstract boolean fieldEquals(FieldAccessor<Object> field, Object first, Object second);
+
+  abstract int fieldHashCode(FieldAccessor<Object> field, Object instance);
+
+  abstract Object cloneArray(Object array);
+
+  abstract boolean arrayEquals(Object first, Object second);
+
+  abstract int arrayHashCode(Object array);
+}
@@ -0,0 +1,41 @@
+package refutils.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.concurrent.Callable;
+
+/**
+ * Creates instantiators for empty constructors. This implementation invokes the constructor through
+ * a method handle. The multi-release jar replaces this class on Java 17 and later with one that
+ * generates a direct call to the constructor.
+ */
+final class PrivateConstructors {
+  private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+  private PrivateConstructors() {}
+
+  /**
+   * Creates an instantiator for an empty constructor. Exceptions thrown by the constructor are
+   * thrown unwrapped by the instantiator.
+   *
+   * @param constructor an accessible empty constructor
+   * @return the instantiator
+   * @throws IllegalAccessException if the constructor is not accessible
+   */
+  static Callable<Object> instantiator(Constructor<?> constructor) throws IllegalAccessException {
+    MethodHandle methodHandle =
+        MethodHandles.lookup().unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+    return () -> {
+      try {
+        return (Object) methodHandle.invokeExact();
+      } catch (Exception | Error ex) {
+        throw ex;
+      } catch (Throwable ex) {
+        throw new UndeclaredThrowableException(ex);
+      }
+    };
+  }
+}
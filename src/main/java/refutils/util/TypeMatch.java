@@ -0,0 +1,45 @@
+package refutils.util;
+
+/**
+ * The outcome of matching a value type against the fields of a class. The outcome is cached per
+ * class and value type, so that failed matches are as cheap to repeat as successful ones.
+ */
+final class TypeMatch {
+  private final FieldAccessor<?> accessor;
+  private final String errorMessage;
+  private final boolean tooManyMatches;
+
+  private TypeMatch(FieldAccessor<?> accessor, String errorMessage, boolean tooManyMatches) {
+    this.accessor = accessor;
+    this.errorMessage = errorMessage;
+    this.tooManyMatches = tooManyMatches;
+  }
+
+  static TypeMatch found(FieldAccessor<?> accessor) {
+    return new TypeMatch(accessor, null, false);
+  }
+
+  static TypeMatch tooManyMatches(String errorMessage) {
+    return new TypeMatch(null, errorMessage, true);
+  }
+
+  static TypeMatch notFound(String errorMessage) {
+    return new TypeMatch(null, errorMessage, false);
+  }
+
+  /**
+   * Returns the accessor of the matched field.
+   *
+   * @throws NoSuchFieldException if no field matched
+   * @throws IllegalArgumentException if more than one field matched
+   */
+  FieldAccessor<?> getAccessor() throws NoSuchFieldException {
+    if (accessor != null) {
+      return accessor;
+    }
+    if (tooManyMatches) {
+      throw new IllegalArgumentException(errorMessage);
+    }
+    throw new NoSuchFieldException(errorMessage);
+  }
+}
@@ -0,0 +1,91 @@
+package refutils.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Creates method handles for VarHandle access modes, such as compare and set. The library is
+ * compiled for Java 8, so the VarHandle API is located with reflection and is only available when
+ * running on Java 9 or later.
+ */
+final class VarHandleSupport {
+  private static final MethodHandle PRIVATE_LOOKUP_IN;
+  private static final MethodHandle UNREFLECT_VAR_HANDLE;
+  private static final MethodHandle TO_METHOD_HANDLE;
+  private static final Class<?> ACCESS_MODE_CLASS;
+
+  static {
+    MethodHandle privateLookupIn = null;
+    MethodHandle unreflectVarHandle = null;
+    MethodHandle toMethodHandle = null;
+    Class<?> accessModeClass = null;
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      Class<?> varHandleClass = Class.forName("java.lang.invoke.VarHandle");
+      accessModeClass = Class.forName("java.lang.invoke.VarHandle$AccessMode");
+      privateLookupIn =
+          lookup.findStatic(
+              MethodHandles.class,
+              "privateLookupIn",
+              MethodType.methodType(
+                  MethodHandles.Lookup.class, Class.class, MethodHandles.Lookup.class));
+      unreflectVarHandle =
+          lookup.findVirtual(
+              MethodHandles.Lookup.class,
+              "unreflectVarHandle",
+              MethodType.methodType(varHandleClass, Field.class));
+      toMethodHandle =
+          lookup.findVirtual(
+              varHandleClass,
+              "toMethodHandle",
+              MethodType.methodType(MethodHandle.class, accessModeClass));
+    } catch (ReflectiveOperationException ex) {
+      // Running on Java 8
+      privateLookupIn = null;
+    }
+    PRIVATE_LOOKUP_IN = privateLookupIn;
+    UNREFLECT_VAR_HANDLE = unreflectVarHandle;
+    TO_METHOD_HANDLE = toMethodHandle;
+    ACCESS_MODE_CLASS = accessModeClass;
+  }
+
+  private VarHandleSupport() {}
+
+  /** Returns true if the VarHandle API is available, i.e. when running on Java 9 or later. */
+  static boolean isAvailable() {
+    return PRIVATE_LOOKUP_IN != null;
+  }
+
+  /**
+   * Creates a method handle for an access mode of the field. The first parameter of the handle is
+   * always the instance, which is ignored for static fields. The other parameters are the ones
+   * specified by the access mode, for example (instance, expected, newValue) for COMPARE_AND_SET.
+   *
+   * @param field the field to access
+   * @param accessModeName the name of a java.lang.invoke.VarHandle.AccessMode constant
+   * @return the method handle, where the instance type is Object
+   */
+  static MethodHandle accessModeHandle(Field field, String accessModeName) {
+    if (!isAvailable()) {
+      throw new UnsupportedOperationException("VarHandle is not available before Java 9");
+    }
+    try {
+      Object lookup = PRIVATE_LOOKUP_IN.invoke(field.getDeclaringClass(), MethodHandles.lookup());
+      Object varHandle = UNREFLECT_VAR_HANDLE.invoke(lookup, field);
+      Object accessMode = ACCESS_MODE_CLASS.getField(accessModeName).get(null);
+      MethodHandle methodHandle = (MethodHandle) TO_METHOD_HANDLE.invoke(varHandle, accessMode);
+      if (Modifier.isStatic(field.getModifiers())) {
+        return MethodHandles.dropArguments(methodHandle, 0, Object.class);
+      }
+      return methodHandle.asType(methodHandle.type().changeParameterType(0, Object.class));
+    } catch (RuntimeException | Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      throw new IllegalStateException(
+          String.format("Cannot create %s access for field %s", accessModeName, field), ex);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package refutils.util;
+
+import java.lang.reflect.Field;
+import java.util.Set;
+
+/**
+ * The visible fields of a class as parallel arrays sorted on name, either extracted from the class
+ * or read from the field metadata index.
+ */
+final class VisibleFields {
+  final String[] names;
+  final Class<?>[] types;
+  final Class<?>[] declaringClasses;
+
+  VisibleFields(String[] names, Class<?>[] types, Class<?>[] declaringClasses) {
+    this.names = names;
+    this.types = types;
+    this.declaringClasses = declaringClasses;
+  }
+
+  /**
+   * Returns the visible fields of a class, from the field metadata index if the class is indexed,
+   * otherwise from the FieldExtractor.
+   */
+  static VisibleFields of(Class<?> type) {
+    VisibleFields indexed = MetadataIndex.find(type);
+    return indexed == null ? extract(type) : indexed;
+  }
+
+  static VisibleFields extract(Class<?> type) {
+    // The extractor sorts on name, and the names are unique, see FieldComparator
+    Set<Field> allFields = new FieldExtractor(type).getAllFields();
+    String[] names = new String[allFields.size()];
+    Class<?>[] types = new Class<?>[allFields.size()];
+    Class<?>[] declaringClasses = new Class<?>[allFields.size()];
+    int index = 0;
+    for (Field field : allFields) {
+      names[index] = field.getName();
+      types[index] = field.getType();
+      declaringClasses[index] = field.getDeclaringClass();
+      index++;
+    }
+    return new VisibleFields(names, types, declaringClasses);
+  }
+}
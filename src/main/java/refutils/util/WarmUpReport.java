@@ -0,0 +1,69 @@
+package refutils.util;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** The outcome of filling the field metadata cache ahead of use, see FieldHelper.warmUp. */
+public final class WarmUpReport {
+  private final int classCount;
+  private final long accessorCount;
+  private final long skippedFieldCount;
+  private final List<String> failedClassNames;
+  private final long elapsedNanos;
+
+  WarmUpReport(
+      int classCount,
+      long accessorCount,
+      long skippedFieldCount,
+      List<String> failedClassNames,
+      long elapsedNanos) {
+    this.classCount = classCount;
+    this.accessorCount = accessorCount;
+    this.skippedFieldCount = skippedFieldCount;
+    this.failedClassNames = Collections.unmodifiableList(failedClassNames);
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  /** Number of classes whose field metadata is now cached. */
+  public int getClassCount() {
+    return classCount;
+  }
+
+  /** Number of field accessors that were created or found in the cache. */
+  public long getAccessorCount() {
+    return accessorCount;
+  }
+
+  /** Number of fields without accessor, since they cannot be accessed, like static final fields. */
+  public long getSkippedFieldCount() {
+    return skippedFieldCount;
+  }
+
+  /** Names of the classes that could not be loaded or scanned for fields. */
+  public List<String> getFailedClassNames() {
+    return failedClassNames;
+  }
+
+  /**
+   * Wall clock time of the warm up.
+   *
+   * @param unit the unit of the returned time
+   * @return the elapsed time, truncated to the unit
+   */
+  public long getElapsedTime(TimeUnit unit) {
+    return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "WarmUpReport{classCount=%s, accessorCount=%s, skippedFieldCount=%s, failedClassCount=%s,"
+            + " elapsedMillis=%s}",
+        classCount,
+        accessorCount,
+        skippedFieldCount,
+        failedClassNames.size(),
+        getElapsedTime(TimeUnit.MILLISECONDS));
+  }
+}
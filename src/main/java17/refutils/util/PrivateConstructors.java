@@ -0,0 +1,82 @@
+package refutils.util;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.concurrent.Callable;
+
+/**
+ * Creates instantiators for empty constructors. This is the Java 17 version of the class in the
+ * multi-release jar. The instantiator is a hidden class, spun by LambdaMetafactory as a nestmate of
+ * the instantiated class, that calls the private constructor directly. If the library does not have
+ * full access to the class, for example when it is in another module, a method handle is used.
+ */
+final class PrivateConstructors {
+  private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+  private static final MethodType FACTORY_TYPE = MethodType.methodType(Callable.class);
+
+  private PrivateConstructors() {}
+
+  /**
+   * Creates an instantiator for an empty constructor. Exceptions thrown by the constructor are
+   * thrown unwrapped by the instantiator.
+   *
+   * @param constructor an accessible empty constructor
+   * @return the instantiator
+   * @throws IllegalAccessException if the constructor is not accessible
+   */
+  static Callable<Object> instantiator(Constructor<?> constructor) throws IllegalAccessException {
+    Class<?> type = constructor.getDeclaringClass();
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+      return generatedInstantiator(lookup, type);
+    } catch (IllegalAccessException | LambdaConversionException ex) {
+      // No full access to the class, use the method handle instead
+      return methodHandleInstantiator(constructor);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Callable<Object> generatedInstantiator(MethodHandles.Lookup lookup, Class<?> type)
+      throws IllegalAccessException, LambdaConversionException {
+    MethodHandle constructorHandle;
+    try {
+      constructorHandle = lookup.findConstructor(type, MethodType.methodType(void.class));
+    } catch (NoSuchMethodException ex) {
+      throw new IllegalStateException("The constructor was found by reflection", ex);
+    }
+    CallSite callSite =
+        LambdaMetafactory.metafactory(
+            lookup,
+            "call",
+            FACTORY_TYPE,
+            CONSTRUCTOR_TYPE,
+            constructorHandle,
+            MethodType.methodType(type));
+    try {
+      return (Callable<Object>) callSite.getTarget().invokeExact();
+    } catch (Throwable ex) {
+      throw new IllegalStateException("Cannot create instantiator for " + type.getName(), ex);
+    }
+  }
+
+  private static Callable<Object> methodHandleInstantiator(Constructor<?> constructor)
+      throws IllegalAccessException {
+    MethodHandle methodHandle =
+        MethodHandles.lookup().unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+    return () -> {
+      try {
+        return (Object) methodHandle.invokeExact();
+      } catch (Exception | Error ex) {
+        throw ex;
+      } catch (Throwable ex) {
+        throw new UndeclaredThrowableException(ex);
+      }
+    };
+  }
+}
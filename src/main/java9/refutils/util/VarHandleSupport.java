@@ -0,0 +1,47 @@
+package refutils.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Creates method handles for VarHandle access modes, such as compare and set. This is the Java 9
+ * version of the class in the multi-release jar, which uses the VarHandle API directly.
+ */
+final class VarHandleSupport {
+
+  private VarHandleSupport() {}
+
+  /** Returns true if the VarHandle API is available, which it always is on Java 9 or later. */
+  static boolean isAvailable() {
+    return true;
+  }
+
+  /**
+   * Creates a method handle for an access mode of the field. The first parameter of the handle is
+   * always the instance, which is ignored for static fields. The other parameters are the ones
+   * specified by the access mode, for example (instance, expected, newValue) for COMPARE_AND_SET.
+   *
+   * @param field the field to access
+   * @param accessModeName the name of a java.lang.invoke.VarHandle.AccessMode constant
+   * @return the method handle, where the instance type is Object
+   */
+  static MethodHandle accessModeHandle(Field field, String accessModeName) {
+    try {
+      VarHandle varHandle =
+          MethodHandles.privateLookupIn(field.getDeclaringClass(), MethodHandles.lookup())
+              .unreflectVarHandle(field);
+      MethodHandle methodHandle =
+          varHandle.toMethodHandle(VarHandle.AccessMode.valueOf(accessModeName));
+      if (Modifier.isStatic(field.getModifiers())) {
+        return MethodHandles.dropArguments(methodHandle, 0, Object.class);
+      }
+      return methodHandle.asType(methodHandle.type().changeParameterType(0, Object.class));
+    } catch (IllegalAccessException ex) {
+      throw new IllegalStateException(
+          String.format("Cannot create %s access for field %s", accessModeName, field), ex);
+    }
+  }
+}
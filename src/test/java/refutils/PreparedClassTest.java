@@ -0,0 +1,86 @@
+package refutils;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.io.FileNotFoundException;
+import org.junit.Test;
+import refutils.testclasses.Order;
+import refutils.testclasses.Order.Address;
+import refutils.testclasses.Order.Customer;
+import refutils.testclasses.SubClass;
+import refutils.testclasses.SuperClass;
+import refutils.util.FieldAccessor;
+import refutils.util.FieldPath;
+
+public class PreparedClassTest {
+
+  @Test
+  public void preparedFieldShouldWorkOnManyInstances() {
+    FieldAccessor<Object> field = ReflectionHelper.forClass(SubClass.class).field("intPackage");
+    SubClass first = new SubClass();
+    SubClass second = new SubClass();
+
+    field.set(first, 1);
+    field.set(second, 2);
+
+    assertThat(first.getIntPackage(), is(1));
+    assertThat(field.get(second), is(2));
+  }
+
+  @Test
+  public void preparedTypedFieldShouldReachPrivateFieldInSuperClass() {
+    FieldAccessor<FileNotFoundException> field =
+        ReflectionHelper.forClass(SubClass.class).field(FileNotFoundException.class);
+    SubClass instance = new SubClass();
+
+    field.set(instance, new FileNotFoundException("Gurka"));
+
+    assertThat(field.get(instance).getMessage(), is("Gurka"));
+    assertThat(instance.getFnfex().getMessage(), is("Gurka"));
+  }
+
+  @Test
+  public void preparedFieldInSuperClassShouldWorkOnSubClassInstance() {
+    FieldAccessor<Object> field =
+        ReflectionHelper.forClass(SuperClass.class).field("stringPrivate");
+    SubClass instance = new SubClass();
+
+    field.set(instance, "Gurka");
+
+    assertThat(instance.getStringPrivate(), is("Gurka"));
+  }
+
+  @Test
+  public void missingFieldShouldThrowException() {
+    ReflectionHelperException exception =
+        assertThrows(
+            ReflectionHelperException.class,
+            () -> ReflectionHelper.forClass(SubClass.class).field("gurka"));
+    assertThat(
+        exception.getMessage(),
+        is("java.lang.NoSuchFieldException: Cannot find visible field named gurka"));
+  }
+
+  @SuppressWarnings("ConstantConditions")
+  @Test
+  public void nullClassShouldThrowException() {
+    NullPointerException exception =
+        assertThrows(NullPointerException.class, () -> ReflectionHelper.forClass(null));
+    assertThat(exception.getMessage(), is("The class in the PreparedClass cannot be null"));
+  }
+
+  @Test
+  public void preparedPathShouldBeCompiledOncePerClass() throws Exception {
+    FieldPath path = ReflectionHelper.forClass(Order.class).path("customer.location.zip");
+    Order order = new Order(new Customer(new Address("12345")));
+
+    path.set(order, "54321");
+
+    assertThat(
+        ReflectionHelper.forClass(Order.class).path("customer.location.zip"), sameInstance(path));
+    assertThat(path.get(order), is("54321"));
+  }
+}
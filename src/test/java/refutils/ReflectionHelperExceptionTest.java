@@ -1,8 +1,15 @@
 package refutils;
 
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertThrows;
 
 import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -48,6 +55,31 @@ public class ReflectionHelperExceptionTest {
     ReflectionHelper.instantiatePrivateConstructor(SneakyConstructor.class);
   }
 
+  @Test
+  public void factoryWithFaultyConstructorShouldThrowExceptionForEachInstance() {
+    Supplier<SneakyConstructor> factory =
+        ReflectionHelper.privateConstructorFactory(SneakyConstructor.class);
+
+    for (int i = 0; i < 2; i++) {
+      ReflectionHelperException exception =
+          assertThrows(ReflectionHelperException.class, factory::get);
+      assertThat(
+          exception.getMessage(),
+          is("Cannot instantiate Class: refutils.testclasses.SneakyConstructor constructor"));
+      assertThat(exception.getCause().getCause().getMessage(), is("Nah! Don't wanna"));
+    }
+  }
+
+  @Test
+  public void factoryWithNoDefaultConstructorShouldThrowException() {
+    Supplier<SubClassToThread> factory =
+        ReflectionHelper.privateConstructorFactory(SubClassToThread.class);
+
+    ReflectionHelperException exception =
+        assertThrows(ReflectionHelperException.class, factory::get);
+    assertThat(exception.getCause(), instanceOf(NoSuchMethodException.class));
+  }
+
   @SuppressWarnings("ConstantConditions")
   @Test
   public void nullInstanceShouldThrowException() {
@@ -102,4 +134,59 @@ public class ReflectionHelperExceptionTest {
     ReflectionHelper reflectionHelper = new ReflectionHelper(instance);
     reflectionHelper.getField(Calendar.class);
   }
+
+  @Test
+  public void settingSeveralNonExistingFieldsShouldReportAllErrors() {
+    SubClass instance = new SubClass();
+    Map<String, Object> fieldValues = new LinkedHashMap<>();
+    fieldValues.put("gurka", 42L);
+    fieldValues.put("stringPrivate", "Gurka");
+    fieldValues.put("tomat", 43L);
+
+    ReflectionHelperException exception =
+        assertThrows(
+            ReflectionHelperException.class,
+            () -> new ReflectionHelper(instance).setFields(fieldValues));
+    assertThat(
+        exception.getMessage(),
+        is(
+            "Cannot access 2 field(s): gurka (Cannot find visible field named gurka), "
+                + "tomat (Cannot find visible field named tomat)"));
+    assertThat(exception.getSuppressed().length, is(1));
+    assertThat(instance.getStringPrivate(), nullValue());
+  }
+
+  @Test
+  public void settingSeveralFieldsWithWrongTypeShouldReportAllErrors() {
+    SubClass instance = new SubClass();
+    Map<String, Object> fieldValues = new LinkedHashMap<>();
+    fieldValues.put("override", 42);
+    fieldValues.put("stringPrivate", "Gurka");
+    fieldValues.put("aDouble", "Tomat");
+
+    ReflectionHelperException exception =
+        assertThrows(
+            ReflectionHelperException.class,
+            () -> new ReflectionHelper(instance).setFields(fieldValues));
+    assertThat(
+        exception.getMessage(),
+        is(
+            "Cannot access 2 field(s): "
+                + "override (Can not set java.lang.Runnable field refutils.testclasses.SubClass.override to java.lang.Integer), "
+                + "aDouble (Can not set double field refutils.testclasses.SubClass.aDouble to java.lang.String)"));
+    assertThat(instance.getStringPrivate(), is("Gurka"));
+  }
+
+  @Test
+  public void gettingSeveralNonExistingFieldsShouldReportAllErrors() {
+    ReflectionHelperException exception =
+        assertThrows(
+            ReflectionHelperException.class,
+            () -> new ReflectionHelper(new SubClass()).getFields("gurka", "intPackage", "tomat"));
+    assertThat(
+        exception.getMessage(),
+        is(
+            "Cannot access 2 field(s): gurka (Cannot find visible field named gurka), "
+                + "tomat (Cannot find visible field named tomat)"));
+  }
 }
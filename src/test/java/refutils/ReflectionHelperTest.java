@@ -1,15 +1,28 @@
 package refutils;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.*;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assume.assumeTrue;
 
 import java.io.FileNotFoundException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import org.junit.Test;
+import refutils.testclasses.CounterClass;
+import refutils.testclasses.Order;
+import refutils.testclasses.Order.Address;
+import refutils.testclasses.Order.Customer;
+import refutils.testclasses.Order.PoBox;
 import refutils.testclasses.SubClass;
 import refutils.testclasses.SuperClass;
 import refutils.testclasses.SuperSuperClass;
+import refutils.util.WarmUpReport;
 
 public class ReflectionHelperTest {
 
@@ -18,6 +31,17 @@ public class ReflectionHelperTest {
     assertNotNull(ReflectionHelper.instantiatePrivateConstructor(SubClass.class));
   }
 
+  @Test
+  public void privateConstructorFactoryShouldCreateNewInstances() {
+    Supplier<SuperClass> factory = ReflectionHelper.privateConstructorFactory(SuperClass.class);
+
+    SuperClass first = factory.get();
+    SuperClass second = factory.get();
+
+    assertNotNull(first);
+    assertThat(first == second, is(false));
+  }
+
   @Test
   public void settingPrimitiveFieldShouldSetValue() {
     SuperClass instance = new SuperClass((byte) 0);
@@ -168,9 +192,243 @@ public class ReflectionHelperTest {
     assertThat(exception.getMessage(), is("Cannot make final static field accessible"));
   }
 
+  @Test
+  public void primitiveFieldsShouldBeSetAndGetWithoutBoxing() {
+    SubClass instance = new SubClass();
+    ReflectionHelper reflectionHelper = new ReflectionHelper(instance);
+
+    reflectionHelper.setLong("longPrivate", 42L);
+    reflectionHelper.setInt("intPackage", 34);
+    reflectionHelper.setChar("aChar", 'x');
+
+    assertThat(instance.getLongPrivate(), is(42L));
+    assertThat(instance.getIntPackage(), is(34));
+    assertThat(reflectionHelper.getLong("longPrivate"), is(42L));
+    assertThat(reflectionHelper.getInt("intPackage"), is(34));
+    assertThat(reflectionHelper.getChar("aChar"), is('x'));
+  }
+
+  @Test
+  public void settingSeveralFieldsShouldSetAllValues() {
+    SubClass instance = new SubClass();
+    Map<String, Object> fieldValues = new LinkedHashMap<>();
+    fieldValues.put("stringPrivate", "Gurka");
+    fieldValues.put("stringPrivate2", "Tomat");
+    fieldValues.put("intPackage", 34);
+
+    new ReflectionHelper(instance).setFields(fieldValues);
+
+    assertThat(instance.getStringPrivate(), is("Gurka"));
+    assertThat(instance.getStringPrivate2(), is("Tomat"));
+    assertThat(instance.getIntPackage(), is(34));
+    assertThat(
+        new ReflectionHelper(instance).getFields("intPackage", "stringPrivate2", "stringPrivate"),
+        is(fieldValues(34, "Tomat", "Gurka")));
+  }
+
+  @Test
+  public void probingExistingFieldShouldWork() {
+    SubClass instance = new SubClass();
+    ReflectionHelper reflectionHelper = new ReflectionHelper(instance);
+
+    assertThat(reflectionHelper.hasField("stringPrivate"), is(true));
+    assertThat(reflectionHelper.tryGetField("stringPrivate"), is(Optional.empty()));
+    assertThat(reflectionHelper.trySetField("stringPrivate", "Gurka"), is(true));
+    assertThat(reflectionHelper.tryGetField("stringPrivate"), is(Optional.of("Gurka")));
+    assertThat(instance.getStringPrivate(), is("Gurka"));
+  }
+
+  @Test
+  public void probingMissingFieldShouldNotThrowException() {
+    ReflectionHelper reflectionHelper = new ReflectionHelper(new SubClass());
+
+    assertThat(reflectionHelper.hasField("gurka"), is(false));
+    assertThat(reflectionHelper.tryGetField("gurka"), is(Optional.empty()));
+    assertThat(reflectionHelper.trySetField("gurka", "Tomat"), is(false));
+  }
+
+  @Test
+  public void atomicOperationsShouldUpdatePrivateFields() {
+    assumeTrue(isJava9OrLater());
+    CounterClass instance = new CounterClass();
+    ReflectionHelper reflectionHelper = new ReflectionHelper(instance);
+
+    assertThat(reflectionHelper.incrementAndGet("count"), is(1L));
+    assertThat(reflectionHelper.getAndAdd("count", 41), is(1L));
+    assertThat(reflectionHelper.getAndAdd("total", 5), is(0L));
+    assertThat(reflectionHelper.compareAndSet("count", 42, 43), is(true));
+    assertThat(reflectionHelper.getAndSet("name", "second"), is("first"));
+
+    assertThat(instance.getCount(), is(43));
+    assertThat(instance.getTotal(), is(5L));
+    assertThat(instance.getName(), is("second"));
+  }
+
+  @Test
+  public void clearedCacheShouldBeFilledAgain() {
+    SubClass instance = new SubClass();
+    new ReflectionHelper(instance).setField("stringPrivate2", "Gurka");
+
+    ReflectionHelper.clearCache(SubClass.class);
+    ReflectionHelper.clearCache(SubClass.class.getClassLoader());
+
+    assertThat(new ReflectionHelper(instance).getField("stringPrivate2"), is("Gurka"));
+    assertThat(ReflectionHelper.getCacheStatistics().getClassCount() > 0, is(true));
+  }
+
+  @Test
+  public void warmedUpPackageShouldBeCached() {
+    ReflectionHelper.clearCache(CounterClass.class);
+
+    WarmUpReport report = ReflectionHelper.warmUp("refutils.testclasses");
+
+    assertThat(report.getClassCount() > 0, is(true));
+    assertThat(
+        ReflectionHelper.getCacheStatistics().getClassCount() >= report.getClassCount(), is(true));
+    assertThat(new ReflectionHelper(new CounterClass()).getField("name"), is("first"));
+  }
+
+  @Test
+  public void pathShouldReachThroughPrivateFields() {
+    Order order = new Order(new Customer(new Address("12345")));
+    ReflectionHelper reflectionHelper = new ReflectionHelper(order);
+
+    reflectionHelper.setPath("customer.location.zip", "54321");
+
+    assertThat(reflectionHelper.getPath("customer.location.zip"), is("54321"));
+    assertThat(((Address) order.getCustomer().getLocation()).getZip(), is("54321"));
+  }
+
+  @Test
+  public void pathShouldFollowRuntimeClassOfValues() {
+    ReflectionHelper address = new ReflectionHelper(new Order(new Customer(new Address("1"))));
+    ReflectionHelper poBox = new ReflectionHelper(new Order(new Customer(new PoBox(7, "2"))));
+
+    assertThat(address.getPath("customer.location.zip"), is("1"));
+    assertThat(poBox.getPath("customer.location.zip"), is("2"));
+    assertThat(poBox.getPath("customer.location.box"), is(7));
+    assertThat(address.getPath("customer.location.zip"), is("1"));
+  }
+
+  @Test
+  public void pathShouldReportMissingFieldInRuntimeClass() {
+    ReflectionHelper reflectionHelper =
+        new ReflectionHelper(new Order(new Customer(new Address("1"))));
+
+    ReflectionHelperException exception =
+        assertThrows(
+            ReflectionHelperException.class,
+            () -> reflectionHelper.getPath("customer.location.box"));
+
+    assertThat(
+        exception.getMessage(),
+        is(
+            "java.lang.NoSuchFieldException: Cannot find visible field named box in "
+                + "refutils.testclasses.Order$Address, in path customer.location.box"));
+  }
+
+  @Test
+  public void pathShouldReportNullOnTheWay() {
+    ReflectionHelper reflectionHelper = new ReflectionHelper(new Order(new Customer(null)));
+
+    NullPointerException exception =
+        assertThrows(
+            NullPointerException.class, () -> reflectionHelper.getPath("customer.location.zip"));
+
+    assertThat(
+        exception.getMessage(),
+        is("Cannot follow path customer.location.zip, customer.location is null"));
+    assertThrows(
+        NullPointerException.class, () -> reflectionHelper.setPath("customer.location.zip", "1"));
+  }
+
+  @Test
+  public void nullSafePathShouldStopAtNull() {
+    ReflectionHelper reflectionHelper = new ReflectionHelper(new Order(null));
+
+    assertThat(reflectionHelper.getPathNullSafe("customer.location.zip"), is(nullValue()));
+    assertThat(reflectionHelper.setPathNullSafe("customer.location.zip", "1"), is(false));
+    assertThat(reflectionHelper.setPathNullSafe("customer", new Customer(null)), is(true));
+    assertThat(reflectionHelper.getPathNullSafe("customer.location"), is(nullValue()));
+  }
+
+  @Test
+  public void invalidPathShouldNotBeCompiled() {
+    ReflectionHelper reflectionHelper = new ReflectionHelper(new Order(null));
+
+    assertThrows(ReflectionHelperException.class, () -> reflectionHelper.getPath("gurka.zip"));
+    assertThrows(IllegalArgumentException.class, () -> reflectionHelper.getPath("customer..zip"));
+  }
+
+  @Test
+  public void deepCopyShouldCopyPrivateFields() {
+    Order order = new Order(new Customer(new Address("12345")));
+
+    Order copy = ReflectionHelper.deepCopy(order);
+
+    assertNotSame(order.getCustomer(), copy.getCustomer());
+    assertNotSame(order.getCustomer().getLocation(), copy.getCustomer().getLocation());
+    assertThat(new ReflectionHelper(copy).getPath("customer.location.zip"), is("12345"));
+  }
+
+  @Test
+  public void deepEqualsShouldCompareFieldsOfGraph() {
+    Order order = new Order(new Customer(new Address("12345")));
+    Order same = new Order(new Customer(new Address("12345")));
+    Order other = new Order(new Customer(new Address("54321")));
+
+    assertThat(ReflectionHelper.deepEquals(order, same), is(true));
+    assertThat(ReflectionHelper.deepHashCode(order), is(ReflectionHelper.deepHashCode(same)));
+    assertThat(ReflectionHelper.deepEquals(order, other), is(false));
+    assertThat(ReflectionHelper.deepDiff(order, other), contains("customer.location.zip"));
+  }
+
+  @Test
+  public void toMapAndPopulateShouldCopyFields() {
+    Order order = new Order(new Customer(new Address("12345")));
+    Map<String, Object> fieldValues = ReflectionHelper.toMap(order);
+
+    Order target = new Order(null);
+    ReflectionHelper.populate(target, fieldValues);
+
+    assertThat(fieldValues.keySet(), contains("customer"));
+    assertSame(order.getCustomer(), target.getCustomer());
+  }
+
+  @Test
+  public void populateWithUnknownFieldShouldThrowException() {
+    Map<String, Object> fieldValues = new LinkedHashMap<>();
+    fieldValues.put("gurka", 1);
+
+    ReflectionHelperException exception =
+        assertThrows(
+            ReflectionHelperException.class,
+            () -> ReflectionHelper.populate(new Order(null), fieldValues));
+
+    assertThat(
+        exception.getMessage(),
+        is(
+            "java.lang.NoSuchFieldException: Cannot find instance fields named [gurka] in "
+                + "refutils.testclasses.Order"));
+  }
+
+  private Map<String, Object> fieldValues(
+      Object intPackage, Object stringPrivate2, Object stringPrivate) {
+    Map<String, Object> fieldValues = new LinkedHashMap<>();
+    fieldValues.put("intPackage", intPackage);
+    fieldValues.put("stringPrivate2", stringPrivate2);
+    fieldValues.put("stringPrivate", stringPrivate);
+    return fieldValues;
+  }
+
   private void assertGetFieldWithBothTypedAndNamed(
       ReflectionHelper helper, String fieldName, Class<?> fieldType, Object expectedFieldValue) {
     assertThat(helper.getField(fieldName), is(expectedFieldValue));
     assertThat(helper.getField(fieldType), is(expectedFieldValue));
   }
+
+  /** Private fields are only supported by the atomic operations on Java 9 or later. */
+  private static boolean isJava9OrLater() {
+    return !System.getProperty("java.specification.version").startsWith("1.");
+  }
 }
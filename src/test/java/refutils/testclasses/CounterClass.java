@@ -0,0 +1,21 @@
+package refutils.testclasses;
+
+@SuppressWarnings("UnusedDeclaration")
+public class CounterClass {
+  private int count;
+  private long total;
+  private String name = "first";
+  private final int limit = 10;
+
+  public int getCount() {
+    return count;
+  }
+
+  public long getTotal() {
+    return total;
+  }
+
+  public String getName() {
+    return name;
+  }
+}
@@ -0,0 +1,8 @@
+package refutils.testclasses;
+
+/** A class whose constructor throws an error. */
+public class ErrorConstructor {
+  private ErrorConstructor() {
+    throw new AssertionError("Nah! Don't wanna");
+  }
+}
@@ -0,0 +1,13 @@
+package refutils.testclasses;
+
+/** A class that can never be initialized, since its static initializer throws an exception. */
+@SuppressWarnings("UnusedDeclaration")
+public class FailingInitializer {
+  private static final String NAME = fail();
+
+  private FailingInitializer() {}
+
+  private static String fail() {
+    throw new IllegalStateException("Nah! Don't wanna");
+  }
+}
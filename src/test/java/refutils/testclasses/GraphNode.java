@@ -0,0 +1,96 @@
+package refutils.testclasses;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A node in an object graph for deep copies. It has no empty constructor, and its hash code depends
+ * on a final field, so that it can be used in hash based collections.
+ */
+@SuppressWarnings("UnusedDeclaration")
+public class GraphNode {
+  private final String name;
+  private int weight;
+  private long[] samples = new long[0];
+  private GraphNode next;
+  private EnumType type = EnumType.FIELD;
+  private final List<GraphNode> children = new ArrayList<>();
+  private final Map<String, GraphNode> childrenByName = new HashMap<>();
+  private final Set<GraphNode> neighbours = new HashSet<>();
+  @Transient private String label;
+
+  public GraphNode(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getWeight() {
+    return weight;
+  }
+
+  public void setWeight(int weight) {
+    this.weight = weight;
+  }
+
+  public long[] getSamples() {
+    return samples;
+  }
+
+  public void setSamples(long[] samples) {
+    this.samples = samples;
+  }
+
+  public GraphNode getNext() {
+    return next;
+  }
+
+  public void setNext(GraphNode next) {
+    this.next = next;
+  }
+
+  public EnumType getType() {
+    return type;
+  }
+
+  public List<GraphNode> getChildren() {
+    return children;
+  }
+
+  public Map<String, GraphNode> getChildrenByName() {
+    return childrenByName;
+  }
+
+  public Set<GraphNode> getNeighbours() {
+    return neighbours;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  public void setLabel(String label) {
+    this.label = label;
+  }
+
+  public void addChild(GraphNode child) {
+    children.add(child);
+    childrenByName.put(child.name, child);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof GraphNode && ((GraphNode) obj).name.equals(name);
+  }
+
+  @Override
+  public int hashCode() {
+    return name.hashCode();
+  }
+}
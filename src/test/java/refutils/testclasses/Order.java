@@ -0,0 +1,53 @@
+package refutils.testclasses;
+
+/** An object graph for path access, where the location of a customer can have different classes. */
+@SuppressWarnings("UnusedDeclaration")
+public class Order {
+  private Customer customer;
+
+  public Order(Customer customer) {
+    this.customer = customer;
+  }
+
+  public Customer getCustomer() {
+    return customer;
+  }
+
+  public static class Customer {
+    private Object location;
+
+    public Customer(Object location) {
+      this.location = location;
+    }
+
+    public Object getLocation() {
+      return location;
+    }
+  }
+
+  public static class Address {
+    private String zip;
+
+    public Address(String zip) {
+      this.zip = zip;
+    }
+
+    public String getZip() {
+      return zip;
+    }
+  }
+
+  public static class PoBox {
+    private final int box;
+    private String zip;
+
+    public PoBox(int box, String zip) {
+      this.box = box;
+      this.zip = zip;
+    }
+
+    public String getZip() {
+      return zip;
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package refutils.testclasses;
+
+@SuppressWarnings("UnusedDeclaration")
+public class VolatileClass {
+  private volatile int hidden;
+  public volatile int visible;
+
+  public int getHidden() {
+    return hidden;
+  }
+}
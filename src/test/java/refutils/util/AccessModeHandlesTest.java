@@ -0,0 +1,84 @@
+package refutils.util;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import org.junit.Test;
+
+/**
+ * The tests run on Java 9 or later, where the VarHandle access modes are used, so the Java 8
+ * version is created directly.
+ */
+public class AccessModeHandlesTest {
+
+  @Test
+  public void plainAccessShouldReadAndWriteInEveryMode() throws Exception {
+    Flags instance = new Flags();
+    AccessModeHandles name = plainAccess("name");
+    AccessModeHandles total = plainAccess("total");
+
+    name.setRelease(instance, "released");
+    assertThat(name.getAcquire(instance), is("released"));
+    name.setOpaque(instance, "opaque");
+    assertThat(name.getVolatile(instance), is("opaque"));
+    total.setVolatile(instance, 42L);
+    assertThat(total.getOpaque(instance), is(42L));
+
+    assertThat(instance.name, is("opaque"));
+    assertThat(instance.total, is(42L));
+  }
+
+  @Test
+  public void plainAccessShouldIgnoreInstanceOfStaticField() throws Exception {
+    AccessModeHandles shared = plainAccess("shared");
+
+    shared.setRelease(null, 5);
+
+    assertThat(shared.getAcquire(new Flags()), is(5));
+    assertThat(Flags.shared, is(5));
+  }
+
+  @Test
+  public void releasedValueShouldBeVisibleToOtherThreadWithPlainAccess() throws Exception {
+    Flags instance = new Flags();
+    AccessModeHandles name = plainAccess("name");
+    Thread writer =
+        new Thread(
+            () -> {
+              instance.plain = 42;
+              name.setRelease(instance, "published");
+            });
+
+    writer.start();
+    while (!"published".equals(name.getAcquire(instance))) {
+      Thread.yield();
+    }
+    writer.join();
+
+    assertThat(instance.plain, is(42));
+  }
+
+  @Test
+  public void plainAccessShouldOnlyTakeVolatileFields() throws Exception {
+    UnsupportedOperationException exception =
+        assertThrows(UnsupportedOperationException.class, () -> plainAccess("plain"));
+    assertThat(
+        exception.getMessage(),
+        is(
+            "Access modes on field int refutils.util.AccessModeHandlesTest$Flags.plain"
+                + " require Java 9, or a volatile field"));
+  }
+
+  private static AccessModeHandles plainAccess(String fieldName) throws Exception {
+    return AccessModeHandles.createWithPlainAccess(Flags.class.getDeclaredField(fieldName));
+  }
+
+  @SuppressWarnings("unused")
+  static final class Flags {
+    static volatile int shared;
+    volatile String name;
+    volatile long total;
+    int plain;
+  }
+}
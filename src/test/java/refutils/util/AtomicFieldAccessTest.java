@@ -0,0 +1,154 @@
+package refutils.util;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.lang.reflect.Field;
+import org.junit.Test;
+import refutils.testclasses.VolatileClass;
+
+/**
+ * The tests run on Java 9 or later, where the VarHandle version is used, so the Java 8 version is
+ * created directly.
+ */
+public class AtomicFieldAccessTest {
+
+  @Test
+  public void updaterShouldCompareAndSetInt() throws Exception {
+    Counters instance = new Counters();
+    AtomicFieldAccess access = updaterAccess("count");
+
+    assertThat(access.compareAndSetInt(instance, 0, 5), is(true));
+    assertThat(access.compareAndSetInt(instance, 0, 6), is(false));
+    assertThat(access.compareAndSet(instance, 5, 7), is(true));
+    assertThat(access.getAndAddInt(instance, 3), is(7));
+    assertThat(access.getAndSet(instance, 1), is(10));
+
+    assertThat(instance.count, is(1));
+  }
+
+  @Test
+  public void updaterShouldCompareAndSetLong() throws Exception {
+    Counters instance = new Counters();
+    AtomicFieldAccess access = updaterAccess("total");
+
+    assertThat(access.getAndAddLong(instance, 40L), is(0L));
+    assertThat(access.compareAndSetLong(instance, 40L, 42L), is(true));
+    assertThat(access.compareAndSetLong(instance, 40L, 43L), is(false));
+    assertThat(access.compareAndSet(instance, 42L, 44L), is(true));
+
+    assertThat(instance.total, is(44L));
+  }
+
+  @Test
+  public void updaterShouldCompareAndSetReference() throws Exception {
+    Counters instance = new Counters();
+    AtomicFieldAccess access = updaterAccess("name");
+
+    assertThat(access.getAndSet(instance, "second"), is("first"));
+    assertThat(access.compareAndSet(instance, "first", "third"), is(false));
+    assertThat(access.compareAndSet(instance, "second", "third"), is(true));
+
+    assertThat(instance.name, is("third"));
+  }
+
+  @Test
+  public void updaterShouldNotAddConcurrentIncrementsTwice() throws Exception {
+    Counters instance = new Counters();
+    AtomicFieldAccess access = updaterAccess("count");
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] =
+          new Thread(
+              () -> {
+                for (int j = 0; j < 10000; j++) {
+                  access.getAndAddInt(instance, 1);
+                }
+              });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(instance.count, is(40000));
+  }
+
+  @Test
+  public void updaterWithWrongTypeShouldThrowException() throws Exception {
+    AtomicFieldAccess access = updaterAccess("total");
+
+    IllegalArgumentException exception =
+        assertThrows(IllegalArgumentException.class, () -> access.getAndAddInt(new Counters(), 1));
+    assertThat(
+        exception.getMessage(),
+        is(
+            "Field volatile long refutils.util.AtomicFieldAccessTest$Counters.total"
+                + " is not of type int"));
+  }
+
+  @Test
+  public void updaterShouldOnlyTakeVolatileInstanceFields() throws Exception {
+    UnsupportedOperationException plain =
+        assertThrows(UnsupportedOperationException.class, () -> updaterAccess("plain"));
+    assertThat(
+        plain.getMessage(),
+        is(
+            "Atomic operations on field int refutils.util.AtomicFieldAccessTest$Counters.plain"
+                + " require Java 9, or a volatile instance field"));
+    assertThrows(UnsupportedOperationException.class, () -> updaterAccess("shared"));
+  }
+
+  @Test
+  public void updaterShouldOnlyTakeIntLongAndReferenceFields() throws Exception {
+    UnsupportedOperationException exception =
+        assertThrows(UnsupportedOperationException.class, () -> updaterAccess("flag"));
+    assertThat(
+        exception.getMessage(),
+        is(
+            "Atomic operations on field volatile boolean"
+                + " refutils.util.AtomicFieldAccessTest$Counters.flag require Java 9"));
+  }
+
+  @Test
+  public void updaterShouldOnlyTakeFieldsThatTheLibraryCanAccess() throws Exception {
+    Field hidden = VolatileClass.class.getDeclaredField("hidden");
+    hidden.setAccessible(true);
+
+    UnsupportedOperationException exception =
+        assertThrows(
+            UnsupportedOperationException.class, () -> new AtomicFieldAccess.UpdaterAccess(hidden));
+    assertThat(
+        exception.getMessage(),
+        is(
+            "Atomic operations on field private volatile int"
+                + " refutils.testclasses.VolatileClass.hidden require Java 9"));
+  }
+
+  @Test
+  public void updaterShouldTakePublicFieldsOfPublicClasses() throws Exception {
+    VolatileClass instance = new VolatileClass();
+    AtomicFieldAccess access =
+        new AtomicFieldAccess.UpdaterAccess(VolatileClass.class.getDeclaredField("visible"));
+
+    assertThat(access.compareAndSetInt(instance, 0, 5), is(true));
+
+    assertThat(instance.visible, is(5));
+  }
+
+  private static AtomicFieldAccess updaterAccess(String fieldName) throws Exception {
+    return new AtomicFieldAccess.UpdaterAccess(Counters.class.getDeclaredField(fieldName));
+  }
+
+  /** The fields must be accessible from the library for the updaters. */
+  @SuppressWarnings("unused")
+  static final class Counters {
+    static volatile int shared;
+    volatile int count;
+    volatile long total;
+    volatile String name = "first";
+    volatile boolean flag;
+    int plain;
+  }
+}
@@ -0,0 +1,67 @@
+package refutils.util;
+
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import refutils.testclasses.CounterClass;
+import refutils.testclasses.EnumType;
+import refutils.testclasses.FieldClass;
+import refutils.testclasses.SubClass;
+import refutils.testclasses.SuperClass;
+
+public class CacheWarmUpTest {
+
+  @Test
+  public void warmUpShouldCacheClassesAndAccessors() {
+    FieldCache.clear(SuperClass.class);
+    FieldCache.clear(FieldClass.class);
+
+    WarmUpReport report = CacheWarmUp.warmUp(Arrays.asList(SubClass.class, FieldClass.class));
+
+    assertThat(FieldCache.contains(SubClass.class), is(true));
+    assertThat(FieldCache.contains(FieldClass.class), is(true));
+    assertThat(FieldCache.contains(SuperClass.class), is(true));
+    assertThat(report.getClassCount(), is(2));
+    assertThat(
+        report.getAccessorCount() + report.getSkippedFieldCount(),
+        is(
+            (long)
+                (FieldCache.get(SubClass.class).getAllFields().size()
+                    + FieldCache.get(FieldClass.class).getAllFields().size())));
+    assertThat(report.getFailedClassNames(), is(empty()));
+    assertThat(report.getElapsedTime(TimeUnit.NANOSECONDS), greaterThan(0L));
+  }
+
+  @Test
+  public void staticFinalFieldsShouldBeSkipped() {
+    WarmUpReport report = CacheWarmUp.warmUp(Arrays.asList(EnumType.class));
+
+    assertThat(report.getClassCount(), is(1));
+    assertThat(report.getSkippedFieldCount(), is(2L));
+  }
+
+  @Test
+  public void packageWarmUpShouldFindClassesInDirectories() {
+    FieldCache.clear(CounterClass.class);
+
+    WarmUpReport report =
+        CacheWarmUp.warmUp("refutils.testclasses", CacheWarmUpTest.class.getClassLoader());
+
+    assertThat(FieldCache.contains(CounterClass.class), is(true));
+    assertThat(report.getClassCount(), greaterThan(10));
+    assertThat(report.getFailedClassNames(), is(empty()));
+  }
+
+  @Test
+  public void packageWarmUpShouldFindClassesInJars() {
+    WarmUpReport report = CacheWarmUp.warmUp("org.junit", Test.class.getClassLoader());
+
+    assertThat(FieldCache.contains(Test.class), is(true));
+    assertThat(report.getClassCount(), greaterThan(100));
+  }
+}
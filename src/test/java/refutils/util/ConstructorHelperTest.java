@@ -1,10 +1,19 @@
 package refutils.util;
 
+import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertThrows;
 
+import java.lang.reflect.InvocationTargetException;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import refutils.testclasses.AbstractClass;
+import refutils.testclasses.ErrorConstructor;
+import refutils.testclasses.FailingInitializer;
+import refutils.testclasses.Interface;
+import refutils.testclasses.SneakyConstructor;
 import refutils.testclasses.SuperClass;
 
 @SuppressWarnings("unchecked")
@@ -16,4 +25,62 @@ public class ConstructorHelperTest {
   public void instantiatePrivateNonArgConstructorShouldWork() throws Exception {
     assertNotNull(new ConstructorHelper(SuperClass.class).instantiatePrivate());
   }
+
+  @Test
+  public void repeatedInstantiationShouldCreateNewInstances() throws Exception {
+    ConstructorHelper<SuperClass> constructorHelper = new ConstructorHelper<>(SuperClass.class);
+
+    assertNotSame(constructorHelper.instantiatePrivate(), constructorHelper.instantiatePrivate());
+  }
+
+  @Test
+  public void abstractClassShouldNotBeInstantiated() throws Exception {
+    expectedException.expect(InstantiationException.class);
+    expectedException.expectMessage("refutils.testclasses.AbstractClass");
+
+    new ConstructorHelper<>(AbstractClass.class).instantiatePrivate();
+  }
+
+  @Test
+  public void interfaceShouldHaveNoConstructor() throws Exception {
+    expectedException.expect(NoSuchMethodException.class);
+
+    new ConstructorHelper<>(Interface.class).instantiatePrivate();
+  }
+
+  @Test
+  public void abstractClassWithoutEmptyConstructorShouldHaveNoConstructor() throws Exception {
+    expectedException.expect(NoSuchMethodException.class);
+
+    new ConstructorHelper<>(AbstractWithArgument.class).instantiatePrivate();
+  }
+
+  @Test
+  public void exceptionInConstructorShouldBeWrapped() throws Exception {
+    expectedException.expect(InvocationTargetException.class);
+    expectedException.expectCause(instanceOf(NullPointerException.class));
+
+    new ConstructorHelper<>(SneakyConstructor.class).instantiatePrivate();
+  }
+
+  @Test
+  public void errorInConstructorShouldBeWrapped() throws Exception {
+    expectedException.expect(InvocationTargetException.class);
+    expectedException.expectCause(instanceOf(AssertionError.class));
+
+    new ConstructorHelper<>(ErrorConstructor.class).instantiatePrivate();
+  }
+
+  @Test
+  public void failingStaticInitializerShouldNotBeWrapped() throws Exception {
+    ConstructorHelper<FailingInitializer> constructorHelper =
+        new ConstructorHelper<>(FailingInitializer.class);
+
+    assertThrows(ExceptionInInitializerError.class, constructorHelper::instantiatePrivate);
+    assertThrows(NoClassDefFoundError.class, constructorHelper::instantiatePrivate);
+  }
+
+  private abstract static class AbstractWithArgument {
+    AbstractWithArgument(String argument) {}
+  }
 }
@@ -0,0 +1,180 @@
+package refutils.util;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+import refutils.testclasses.GraphNode;
+import refutils.testclasses.Transient;
+
+public class DeepComparatorTest {
+  private final DeepComparator comparator = new DeepComparator();
+
+  @Test
+  public void equalGraphsShouldBeEqualWithSameHashCode() {
+    GraphNode first = graph("root", 1);
+    GraphNode second = graph("root", 1);
+
+    assertThat(comparator.deepEquals(first, second), is(true));
+    assertThat(comparator.deepHashCode(first), is(comparator.deepHashCode(second)));
+    assertThat(comparator.diff(first, second), is(empty()));
+  }
+
+  @Test
+  public void differentFieldsShouldBeListedByPath() {
+    GraphNode first = graph("root", 1);
+    GraphNode second = graph("root", 1);
+    second.setWeight(2);
+    second.getChildren().get(0).setSamples(new long[] {7});
+    second.getChildrenByName().get("child").setNext(new GraphNode("other"));
+
+    assertThat(comparator.deepEquals(first, second), is(false));
+    assertThat(comparator.deepHashCode(first), is(not(comparator.deepHashCode(second))));
+    assertThat(
+        comparator.diff(first, second),
+        contains("weight", "children[0].next", "children[0].samples"));
+  }
+
+  @Test
+  public void equalsMethodOfGraphClassesShouldNotBeUsed() {
+    // GraphNode.equals only compares names
+    GraphNode first = new GraphNode("same");
+    GraphNode second = new GraphNode("same");
+    second.setWeight(3);
+
+    assertThat(comparator.deepEquals(first, second), is(false));
+    assertThat(comparator.diff(null, second), contains(DeepComparator.ROOT_PATH));
+    assertThat(comparator.deepEquals(null, null), is(true));
+  }
+
+  @Test
+  public void cyclesShouldBeFollowedOnce() {
+    GraphNode first = cycle();
+    GraphNode second = cycle();
+
+    assertThat(comparator.deepEquals(first, second), is(true));
+    assertThat(comparator.deepHashCode(first), is(comparator.deepHashCode(second)));
+
+    second.getNext().setWeight(5);
+    assertThat(comparator.diff(first, second), contains("children[0].weight"));
+  }
+
+  @Test
+  public void cyclesOfDifferentLengthWithEqualValuesShouldHaveSameHashCode() {
+    GraphNode selfLoop = new GraphNode("node");
+    selfLoop.setNext(selfLoop);
+    GraphNode first = new GraphNode("node");
+    GraphNode second = new GraphNode("node");
+    first.setNext(second);
+    second.setNext(first);
+
+    assertThat(comparator.deepEquals(selfLoop, first), is(true));
+    assertThat(comparator.deepHashCode(selfLoop), is(comparator.deepHashCode(first)));
+
+    second.setWeight(5);
+    assertThat(comparator.deepEquals(selfLoop, first), is(false));
+    assertThat(comparator.deepHashCode(selfLoop), is(not(comparator.deepHashCode(first))));
+  }
+
+  @Test
+  public void excludedFieldsShouldBeSkipped() {
+    GraphNode first = graph("root", 1);
+    GraphNode second = graph("root", 2);
+    first.setLabel("first");
+    second.setLabel("second");
+
+    DeepComparator excluding =
+        comparator.excludingFields("weight").excludingAnnotatedFields(Transient.class);
+
+    assertThat(comparator.diff(first, second), contains("weight", "label"));
+    assertThat(excluding.deepEquals(first, second), is(true));
+    assertThat(excluding.deepHashCode(first), is(excluding.deepHashCode(second)));
+  }
+
+  @Test
+  public void collectionsShouldBeComparedByContents() {
+    Map<String, Object> first = new HashMap<>();
+    first.put("list", Arrays.asList(new GraphNode("a"), null));
+    first.put("array", new Object[] {new int[] {1, 2}});
+    Map<String, Object> second = new HashMap<>();
+    second.put("list", Arrays.asList(new GraphNode("a"), null));
+    second.put("array", new Object[] {new int[] {1, 2}});
+
+    assertThat(comparator.deepEquals(first, second), is(true));
+    assertThat(comparator.deepHashCode(first), is(comparator.deepHashCode(second)));
+
+    second.put("list", Collections.singletonList(new GraphNode("a")));
+    second.remove("array");
+    second.put("other", null);
+    assertThat(comparator.diff(first, second), containsInAnyOrder("[list]", "[array]"));
+    assertThat(comparator.deepEquals(first, second), is(false));
+  }
+
+  @Test
+  public void deepGraphsShouldNotOverflowStack() {
+    GraphNode first = chain(100_000);
+    GraphNode second = chain(100_000);
+
+    assertThat(comparator.deepEquals(first, second), is(true));
+    assertThat(comparator.deepHashCode(first), is(comparator.deepHashCode(second)));
+  }
+
+  @Test(timeout = 10_000)
+  public void sharedValuesShouldBeHashedOnce() {
+    GraphNode first = ladder(64);
+    GraphNode second = ladder(64);
+
+    assertThat(comparator.deepEquals(first, second), is(true));
+    assertThat(comparator.deepHashCode(first), is(comparator.deepHashCode(second)));
+  }
+
+  private static GraphNode graph(String name, int weight) {
+    GraphNode root = new GraphNode(name);
+    root.setWeight(weight);
+    root.setSamples(new long[] {1, 2, 3});
+    root.addChild(new GraphNode("child"));
+    root.getNeighbours().add(new GraphNode("neighbour"));
+    return root;
+  }
+
+  private static GraphNode cycle() {
+    GraphNode first = new GraphNode("first");
+    GraphNode second = new GraphNode("second");
+    first.setNext(second);
+    second.setNext(first);
+    first.addChild(second);
+    return first;
+  }
+
+  /** Each node refers to the next node three times, so a tree walk visits 3^length nodes. */
+  private static GraphNode ladder(int length) {
+    GraphNode head = new GraphNode("0");
+    GraphNode current = head;
+    for (int i = 1; i < length; i++) {
+      GraphNode next = new GraphNode(String.valueOf(i));
+      current.setNext(next);
+      current.addChild(next);
+      current = next;
+    }
+    return head;
+  }
+
+  private static GraphNode chain(int length) {
+    GraphNode head = new GraphNode("0");
+    GraphNode current = head;
+    for (int i = 1; i < length; i++) {
+      GraphNode next = new GraphNode(String.valueOf(i));
+      current.setNext(next);
+      current = next;
+    }
+    return head;
+  }
+}
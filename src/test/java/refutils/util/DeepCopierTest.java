@@ -0,0 +1,347 @@
+package refutils.util;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.EnumMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.regex.Pattern;
+import org.junit.Test;
+import refutils.testclasses.EnumType;
+import refutils.testclasses.GraphNode;
+
+public class DeepCopierTest {
+
+  @Test
+  public void copyShouldHaveSameValuesInNewInstances() {
+    GraphNode source = new GraphNode("root");
+    source.setWeight(42);
+    source.setSamples(new long[] {1, 2, 3});
+    source.addChild(new GraphNode("child"));
+
+    GraphNode copy = DeepCopier.deepCopy(source);
+
+    assertThat(copy, not(sameInstance(source)));
+    assertThat(copy.getName(), sameInstance(source.getName()));
+    assertThat(copy.getWeight(), is(42));
+    assertThat(copy.getSamples(), is(new long[] {1, 2, 3}));
+    assertThat(copy.getSamples(), not(sameInstance(source.getSamples())));
+    assertThat(copy.getType(), sameInstance(EnumType.FIELD));
+    assertThat(copy.getChildren().get(0).getName(), is("child"));
+    assertThat(copy.getChildren().get(0), not(sameInstance(source.getChildren().get(0))));
+  }
+
+  @Test
+  public void sharedReferencesAndCyclesShouldBePreserved() {
+    GraphNode first = new GraphNode("first");
+    GraphNode second = new GraphNode("second");
+    first.setNext(second);
+    second.setNext(first);
+    first.addChild(second);
+
+    GraphNode copy = DeepCopier.deepCopy(first);
+
+    assertThat(copy.getNext().getNext(), sameInstance(copy));
+    assertThat(copy.getChildren().get(0), sameInstance(copy.getNext()));
+    assertThat(copy.getChildrenByName().get("second"), sameInstance(copy.getNext()));
+  }
+
+  @Test
+  public void hashedElementsShouldBeCompleteWhenAdded() {
+    GraphNode source = new GraphNode("root");
+    GraphNode neighbour = new GraphNode("neighbour");
+    source.getNeighbours().add(neighbour);
+    neighbour.getNeighbours().add(source);
+
+    GraphNode copy = DeepCopier.deepCopy(source);
+    GraphNode copiedNeighbour = copy.getNeighbours().iterator().next();
+
+    assertThat(copiedNeighbour, not(sameInstance(neighbour)));
+    assertThat(copy.getNeighbours().contains(copiedNeighbour), is(true));
+    assertThat(copiedNeighbour.getNeighbours().iterator().next(), sameInstance(copy));
+  }
+
+  @Test
+  public void deepGraphShouldNotOverflowStack() {
+    GraphNode source = new GraphNode("0");
+    GraphNode last = source;
+    for (int i = 1; i < 200_000; i++) {
+      GraphNode next = new GraphNode(Integer.toString(i));
+      last.setNext(next);
+      last = next;
+    }
+
+    GraphNode copy = DeepCopier.deepCopy(source);
+
+    int length = 0;
+    for (GraphNode node = copy; node != null; node = node.getNext()) {
+      length++;
+    }
+    assertThat(length, is(200_000));
+  }
+
+  @Test
+  public void sortedMapShouldKeepComparator() {
+    TreeMap<String, GraphNode> source = new TreeMap<>(Collections.reverseOrder());
+    source.put("a", new GraphNode("a"));
+    source.put("b", new GraphNode("b"));
+
+    TreeMap<String, GraphNode> copy = DeepCopier.deepCopy(source);
+
+    assertThat(copy.comparator(), sameInstance(source.comparator()));
+    assertThat(copy.firstKey(), is("b"));
+    assertThat(copy.get("a"), not(sameInstance(source.get("a"))));
+  }
+
+  @Test
+  public void enumMapShouldBeCopied() {
+    Map<EnumType, GraphNode> source = new EnumMap<>(EnumType.class);
+    source.put(EnumType.FIELD, new GraphNode("field"));
+
+    Map<EnumType, GraphNode> copy = DeepCopier.deepCopy(source);
+
+    assertThat(copy.get(EnumType.FIELD).getName(), is("field"));
+    assertThat(copy.get(EnumType.FIELD), not(sameInstance(source.get(EnumType.FIELD))));
+  }
+
+  @Test
+  public void priorityBlockingQueueShouldKeepComparator() {
+    PriorityBlockingQueue<String> source =
+        new PriorityBlockingQueue<>(1, Collections.reverseOrder());
+    source.add("a");
+    source.add("b");
+
+    PriorityBlockingQueue<String> copy = DeepCopier.deepCopy(source);
+
+    assertThat(copy, not(sameInstance(source)));
+    assertThat(copy.comparator(), sameInstance(source.comparator()));
+    assertThat(copy.poll(), is("b"));
+    assertThat(copy.poll(), is("a"));
+  }
+
+  @Test
+  public void immutableCollectionsShouldBeShared() {
+    List<String> singletonList = Collections.singletonList("a");
+    Set<String> emptySet = Collections.emptySet();
+
+    assertThat(DeepCopier.deepCopy(singletonList), sameInstance(singletonList));
+    assertThat(DeepCopier.deepCopy(emptySet), sameInstance(emptySet));
+  }
+
+  @Test
+  public void unmodifiableCollectionsShouldBeCopiedAsUnmodifiableCollections() {
+    GraphNode node = new GraphNode("node");
+    List<GraphNode> list = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(node)));
+    List<GraphNode> linkedList =
+        Collections.unmodifiableList(new LinkedList<>(Arrays.asList(node)));
+    Collection<GraphNode> collection = Collections.unmodifiableCollection(Arrays.asList(node));
+    Set<String> set = Collections.unmodifiableSet(new TreeSet<>(Arrays.asList("c", "a", "b")));
+    Map<String, GraphNode> map =
+        Collections.unmodifiableMap(Collections.singletonMap("node", node));
+
+    List<GraphNode> copiedList = DeepCopier.deepCopy(list);
+    List<GraphNode> copiedLinkedList = DeepCopier.deepCopy(linkedList);
+    Collection<GraphNode> copiedCollection = DeepCopier.deepCopy(collection);
+    Set<String> copiedSet = DeepCopier.deepCopy(set);
+    Map<String, GraphNode> copiedMap = DeepCopier.deepCopy(map);
+
+    assertCopiedNode(copiedList.get(0), node);
+    assertThat(copiedList.getClass(), sameInstance(list.getClass()));
+    assertCopiedNode(copiedLinkedList.get(0), node);
+    assertThat(copiedLinkedList, instanceOf(List.class));
+    assertCopiedNode(copiedCollection.iterator().next(), node);
+    assertThat(copiedCollection.getClass(), sameInstance(collection.getClass()));
+    assertThat(new ArrayList<>(copiedSet), is(Arrays.asList("a", "b", "c")));
+    assertThat(copiedSet.getClass(), sameInstance(set.getClass()));
+    assertCopiedNode(copiedMap.get("node"), node);
+    assertThat(copiedMap.getClass(), sameInstance(map.getClass()));
+    assertThrows(UnsupportedOperationException.class, () -> copiedList.add(node));
+    assertThrows(UnsupportedOperationException.class, () -> copiedSet.add("d"));
+    assertThrows(UnsupportedOperationException.class, () -> copiedMap.put("other", node));
+  }
+
+  @Test
+  public void unmodifiableSortedCollectionsShouldKeepComparator() {
+    TreeSet<String> sortedSet = new TreeSet<>(Collections.reverseOrder());
+    sortedSet.addAll(Arrays.asList("a", "b"));
+    TreeMap<String, GraphNode> sortedMap = new TreeMap<>(Collections.reverseOrder());
+    sortedMap.put("a", new GraphNode("a"));
+    sortedMap.put("b", new GraphNode("b"));
+    SortedSet<String> set = Collections.unmodifiableSortedSet(sortedSet);
+    NavigableMap<String, GraphNode> map = Collections.unmodifiableNavigableMap(sortedMap);
+
+    SortedSet<String> copiedSet = DeepCopier.deepCopy(set);
+    NavigableMap<String, GraphNode> copiedMap = DeepCopier.deepCopy(map);
+
+    assertThat(copiedSet.getClass(), sameInstance(set.getClass()));
+    assertThat(copiedSet.comparator(), sameInstance(sortedSet.comparator()));
+    assertThat(copiedSet.first(), is("b"));
+    assertThat(copiedMap.getClass(), sameInstance(map.getClass()));
+    assertThat(copiedMap.comparator(), sameInstance(sortedMap.comparator()));
+    assertThat(copiedMap.firstKey(), is("b"));
+    assertCopiedNode(copiedMap.get("a"), sortedMap.get("a"));
+    assertThrows(UnsupportedOperationException.class, () -> copiedSet.add("c"));
+  }
+
+  @Test
+  public void arraysAsListShouldBeCopiedAsFixedSizeList() {
+    GraphNode node = new GraphNode("node");
+    List<GraphNode> source = Arrays.asList(node, null, node);
+
+    List<GraphNode> copy = DeepCopier.deepCopy(source);
+
+    assertThat(copy.getClass(), sameInstance(source.getClass()));
+    assertThat(copy, instanceOf(RandomAccess.class));
+    assertCopiedNode(copy.get(0), node);
+    assertThat(copy.get(1), nullValue());
+    assertThat(copy.get(2), sameInstance(copy.get(0)));
+    copy.set(1, node);
+    assertThat(source.get(1), nullValue());
+    assertThrows(UnsupportedOperationException.class, () -> copy.add(node));
+  }
+
+  @Test
+  public void cyclesThroughViewsShouldBePreserved() {
+    List<Object> elements = new ArrayList<>();
+    List<Object> source = Collections.unmodifiableList(elements);
+    elements.add(source);
+    Object[] array = {null};
+    List<Object> arrayList = Arrays.asList(array);
+    array[0] = arrayList;
+
+    List<Object> copy = DeepCopier.deepCopy(source);
+    List<Object> copiedArrayList = DeepCopier.deepCopy(arrayList);
+
+    assertThat(copy, not(sameInstance(source)));
+    assertThat(copy.get(0), sameInstance(copy));
+    assertThat(copiedArrayList, not(sameInstance(arrayList)));
+    assertThat(copiedArrayList.get(0), sameInstance(copiedArrayList));
+  }
+
+  @Test
+  public void immutableValuesShouldBeShared() {
+    LocalDate date = LocalDate.of(2013, 10, 17);
+
+    assertThat(DeepCopier.deepCopy(date), sameInstance(date));
+    assertThat(DeepCopier.deepCopy("Gurka"), sameInstance("Gurka"));
+    assertThat(DeepCopier.deepCopy(null), nullValue());
+  }
+
+  @Test
+  public void plainObjectsShouldGetNewInstances() {
+    Locked source = new Locked();
+
+    Locked copy = DeepCopier.deepCopy(source);
+
+    assertThat(copy.lock, not(sameInstance(source.lock)));
+    assertThat(copy.lock.getClass(), sameInstance(Object.class));
+  }
+
+  @Test
+  public void optionalsShouldBeCopiedWithTheirValue() {
+    Locked source = new Locked();
+    source.node = Optional.of(new GraphNode("node"));
+
+    Locked copy = DeepCopier.deepCopy(source);
+
+    assertThat(copy.name, sameInstance(source.name));
+    assertThat(copy.empty, sameInstance(source.empty));
+    assertThat(copy.node, not(sameInstance(source.node)));
+    assertCopiedNode(copy.node.get(), source.node.get());
+  }
+
+  @Test
+  public void cyclesThroughOptionalsShouldBePreserved() {
+    Locked source = new Locked();
+    source.self = Optional.of(source);
+
+    Locked copy = DeepCopier.deepCopy(source);
+
+    assertThat(copy, not(sameInstance(source)));
+    assertThat(copy.self.get(), sameInstance(copy));
+  }
+
+  @Test
+  public void immutableJdkValuesShouldBeShared() {
+    Object[] values = {
+      OptionalInt.of(1),
+      OptionalLong.empty(),
+      OptionalDouble.of(2.0),
+      Currency.getInstance("SEK"),
+      Locale.CANADA_FRENCH,
+      Pattern.compile("gurka"),
+      Duration.ofSeconds(3),
+      ZoneId.of("Europe/Stockholm"),
+      ZoneOffset.UTC,
+      Instant.EPOCH
+    };
+
+    for (Object value : values) {
+      assertThat(DeepCopier.deepCopy(value), sameInstance(value));
+    }
+  }
+
+  @Test
+  public void unsupportedClassesShouldBeReported() {
+    UnsupportedOperationException exception =
+        assertThrows(UnsupportedOperationException.class, () -> DeepCopier.deepCopy(new Thread()));
+    assertThat(
+        exception.getMessage(),
+        is(
+            "Cannot deep copy java.lang.Thread, it is a JDK class that is neither immutable nor a"
+                + " collection"));
+
+    exception =
+        assertThrows(
+            UnsupportedOperationException.class, () -> DeepCopier.deepCopy(new NodeList()));
+    assertThat(
+        exception.getMessage(),
+        is(
+            "Cannot deep copy refutils.util.DeepCopierTest$NodeList, it extends"
+                + " java.util.ArrayList, whose fields cannot be copied"));
+  }
+
+  private static void assertCopiedNode(GraphNode copy, GraphNode source) {
+    assertThat(copy, not(sameInstance(source)));
+    assertThat(copy.getName(), is(source.getName()));
+  }
+
+  private static class Locked {
+    private final Object lock = new Object();
+    private final Optional<String> name = Optional.of("Gurka");
+    private final Optional<GraphNode> empty = Optional.empty();
+    private Optional<GraphNode> node;
+    private Optional<Locked> self = Optional.empty();
+  }
+
+  private static class NodeList extends ArrayList<GraphNode> {}
+}
@@ -0,0 +1,401 @@
+package refutils.util;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Test;
+import refutils.testclasses.CounterClass;
+import refutils.testclasses.SubClass;
+import refutils.testclasses.SuperClass;
+
+public class FieldAccessorTest {
+
+  @Test
+  public void accessorShouldBeCreatedOncePerField() throws Exception {
+    FieldAccessor<Object> accessor =
+        new FieldHelper(new SubClass(), SubClass.class).getAccessorByName("stringPrivate2");
+
+    assertThat(
+        new FieldHelper(new SubClass(), SubClass.class).getAccessorByName("stringPrivate2"),
+        sameInstance(accessor));
+    assertThat(accessor.getField(), is(SubClass.class.getDeclaredField("stringPrivate2")));
+  }
+
+  @Test
+  public void accessorShouldWorkOnManyInstances() throws Exception {
+    FieldAccessor<Object> accessor =
+        new FieldHelper(new SubClass(), SubClass.class).getAccessorByName("stringPrivate2");
+    SubClass first = new SubClass();
+    SubClass second = new SubClass();
+
+    accessor.set(first, "first");
+    accessor.set(second, "second");
+
+    assertThat(first.getStringPrivate2(), is("first"));
+    assertThat(accessor.get(second), is("second"));
+  }
+
+  @Test
+  public void primitiveFieldShouldBeWidenedAsInFieldSet() throws Exception {
+    SuperClass instance = new SuperClass((byte) 0);
+    FieldAccessor<Object> accessor =
+        new FieldHelper(instance, SuperClass.class).getAccessorByName("longPrivate");
+
+    accessor.set(instance, 42);
+
+    assertThat(instance.getLongPrivate(), is(42L));
+  }
+
+  @Test
+  public void staticFieldShouldIgnoreInstance() throws Exception {
+    FieldAccessor<File> accessor =
+        new FieldHelper(new SubClass(), SubClass.class).getAccessorByType(File.class);
+
+    accessor.set(null, new File("gurka.txt"));
+
+    assertThat(accessor.get(new SubClass()).toString(), is("gurka.txt"));
+  }
+
+  @Test
+  public void settingNullInPrimitiveFieldShouldThrowException() throws Exception {
+    SuperClass instance = new SuperClass((byte) 0);
+    FieldAccessor<Object> accessor =
+        new FieldHelper(instance, SuperClass.class).getAccessorByName("longPrivate");
+
+    IllegalArgumentException exception =
+        assertThrows(IllegalArgumentException.class, () -> accessor.set(instance, null));
+    assertThat(
+        exception.getMessage(),
+        is("Can not set long field refutils.testclasses.SuperClass.longPrivate to null value"));
+  }
+
+  @Test
+  public void wrongInstanceShouldThrowException() throws Exception {
+    FieldAccessor<Object> accessor =
+        new FieldHelper(new SubClass(), SubClass.class).getAccessorByName("stringPrivate2");
+
+    IllegalArgumentException exception =
+        assertThrows(IllegalArgumentException.class, () -> accessor.get("gurka"));
+    assertThat(
+        exception.getMessage(),
+        is(
+            "Can not set java.lang.String field refutils.testclasses.SubClass.stringPrivate2 to java.lang.String"));
+  }
+
+  @Test
+  public void cachedFieldShouldStayAccessible() throws Exception {
+    SubClass instance = new SubClass();
+    FieldAccessor<Object> accessor =
+        new FieldHelper(instance, SubClass.class).getAccessorByName("stringPrivate2");
+
+    accessor.set(instance, "Gurka");
+
+    assertThat(accessor.getField().isAccessible(), is(true));
+    assertThat(accessor.getField().get(instance), is("Gurka"));
+  }
+
+  @Test
+  public void concurrentAccessShouldNotAffectEachOther() throws Exception {
+    FieldAccessor<Object> accessor =
+        new FieldHelper(new SubClass(), SubClass.class).getAccessorByName("aShort");
+    Callable<Void> readAndWrite =
+        () -> {
+          SubClass instance = new SubClass();
+          for (int i = 0; i < 10_000; i++) {
+            accessor.set(instance, (short) i);
+            assertThat(accessor.get(instance), is((short) i));
+            // Force the reflective path as well
+            accessor.set(instance, (byte) 1);
+            assertThat(accessor.get(instance), is((short) 1));
+          }
+          return null;
+        };
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<Void> first = executor.submit(readAndWrite);
+      Future<Void> second = executor.submit(readAndWrite);
+
+      // Rethrows any failure in the threads, wrapped in an ExecutionException
+      first.get();
+      second.get();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void primitiveFieldsShouldBeAccessedWithoutBoxing() throws Exception {
+    SubClass instance = new SubClass();
+    FieldHelper fieldHelper = new FieldHelper(instance, SubClass.class);
+
+    fieldHelper.getAccessorByName("longPrivate").setLong(instance, 42L);
+    fieldHelper.getAccessorByName("intPackage").setInt(instance, 43);
+    fieldHelper.getAccessorByName("aDouble").setDouble(instance, 44.5);
+    fieldHelper.getAccessorByName("boolProtected").setBoolean(instance, true);
+
+    assertThat(instance.getLongPrivate(), is(42L));
+    assertThat(fieldHelper.getAccessorByName("longPrivate").getLong(instance), is(42L));
+    assertThat(fieldHelper.getAccessorByName("intPackage").getInt(instance), is(43));
+    assertThat(fieldHelper.getAccessorByName("aDouble").getDouble(instance), is(44.5));
+    assertThat(fieldHelper.getAccessorByName("boolProtected").getBoolean(instance), is(true));
+  }
+
+  @Test
+  public void smallPrimitiveFieldsShouldBeAccessedWithoutBoxing() throws Exception {
+    SubClass instance = new SubClass();
+    FieldHelper fieldHelper = new FieldHelper(instance, SubClass.class);
+
+    fieldHelper.getAccessorByName("aByte").setByte(instance, (byte) 42);
+    fieldHelper.getAccessorByName("aShort").setShort(instance, (short) 43);
+    fieldHelper.getAccessorByName("aFloat2").setFloat(instance, 44.5f);
+    fieldHelper.getAccessorByName("aChar").setChar(instance, 'x');
+
+    assertThat(fieldHelper.getAccessorByName("aByte").getByte(instance), is((byte) 42));
+    assertThat(fieldHelper.getAccessorByName("aShort").getShort(instance), is((short) 43));
+    assertThat(fieldHelper.getAccessorByName("aFloat2").getFloat(instance), is(44.5f));
+    assertThat(fieldHelper.getAccessorByName("aChar").getChar(instance), is('x'));
+  }
+
+  @Test
+  public void smallPrimitiveFieldsShouldBeWidenedThroughReflection() throws Exception {
+    SubClass instance = new SubClass();
+    FieldHelper fieldHelper = new FieldHelper(instance, SubClass.class);
+
+    fieldHelper.getAccessorByName("aFloat2").setShort(instance, (short) 42);
+    fieldHelper.getAccessorByName("aShort").setByte(instance, (byte) 43);
+
+    assertThat(fieldHelper.getAccessorByName("aFloat2").getFloat(instance), is(42.0f));
+    assertThat(fieldHelper.getAccessorByName("aShort").getFloat(instance), is(43.0f));
+    assertThat(fieldHelper.getAccessorByName("aByte").getShort(instance), is((short) 0));
+  }
+
+  @Test
+  public void mismatchedSmallPrimitiveFieldsShouldThrowException() throws Exception {
+    SubClass instance = new SubClass();
+    FieldAccessor<Object> shortAccessor =
+        new FieldHelper(instance, SubClass.class).getAccessorByName("aShort");
+    FieldAccessor<Object> floatAccessor =
+        new FieldHelper(instance, SubClass.class).getAccessorByName("aFloat2");
+
+    IllegalArgumentException getException =
+        assertThrows(IllegalArgumentException.class, () -> shortAccessor.getByte(instance));
+    IllegalArgumentException setException =
+        assertThrows(IllegalArgumentException.class, () -> floatAccessor.setDouble(instance, 1.5));
+    IllegalArgumentException instanceException =
+        assertThrows(IllegalArgumentException.class, () -> shortAccessor.getShort("gurka"));
+
+    assertThat(
+        getException.getMessage(),
+        is(
+            "Attempt to get short field \"refutils.testclasses.SubClass.aShort\" "
+                + "with illegal data type conversion to byte"));
+    assertThat(
+        setException.getMessage(),
+        is("Can not set float field refutils.testclasses.SuperClass.aFloat2 to (double)1.5"));
+    assertThat(
+        instanceException.getMessage(),
+        is("Can not set short field refutils.testclasses.SubClass.aShort to java.lang.String"));
+  }
+
+  @Test
+  public void primitiveFieldsShouldBeWidened() throws Exception {
+    SubClass instance = new SubClass();
+    FieldHelper fieldHelper = new FieldHelper(instance, SubClass.class);
+
+    fieldHelper.getAccessorByName("longPrivate").setInt(instance, 42);
+    fieldHelper.getAccessorByName("aShort").setByte(instance, (byte) 43);
+
+    assertThat(fieldHelper.getAccessorByName("longPrivate").getDouble(instance), is(42.0));
+    assertThat(fieldHelper.getAccessorByName("aShort").getInt(instance), is(43));
+  }
+
+  @Test
+  public void narrowingPrimitiveFieldShouldThrowException() throws Exception {
+    SubClass instance = new SubClass();
+    FieldAccessor<Object> accessor =
+        new FieldHelper(instance, SubClass.class).getAccessorByName("intPackage");
+
+    IllegalArgumentException exception =
+        assertThrows(IllegalArgumentException.class, () -> accessor.setLong(instance, 42L));
+    assertThat(
+        exception.getMessage(),
+        is("Can not set int field refutils.testclasses.SuperClass.intPackage to (long)42"));
+  }
+
+  @Test
+  public void compareAndSetShouldOnlySetExpectedValue() throws Exception {
+    assumeTrue(VarHandleSupport.isAvailable());
+    CounterClass instance = new CounterClass();
+    FieldAccessor<Object> accessor =
+        new FieldHelper(instance, CounterClass.class).getAccessorByName("count");
+
+    assertThat(accessor.compareAndSetInt(instance, 0, 5), is(true));
+    assertThat(accessor.compareAndSetInt(instance, 0, 6), is(false));
+    assertThat(accessor.compareAndSet(instance, 5, 7), is(true));
+
+    assertThat(instance.getCount(), is(7));
+  }
+
+  @Test
+  public void getAndSetShouldReturnPreviousValue() throws Exception {
+    assumeTrue(VarHandleSupport.isAvailable());
+    CounterClass instance = new CounterClass();
+    FieldAccessor<Object> accessor =
+        new FieldHelper(instance, CounterClass.class).getAccessorByName("name");
+
+    assertThat(accessor.getAndSet(instance, "second"), is("first"));
+    assertThat(accessor.compareAndSet(instance, "first", "third"), is(false));
+
+    assertThat(instance.getName(), is("second"));
+  }
+
+  @Test
+  public void getAndAddShouldAddToLongField() throws Exception {
+    assumeTrue(VarHandleSupport.isAvailable());
+    CounterClass instance = new CounterClass();
+    FieldAccessor<Object> accessor =
+        new FieldHelper(instance, CounterClass.class).getAccessorByName("total");
+
+    assertThat(accessor.getAndAddLong(instance, 40L), is(0L));
+    assertThat(accessor.incrementAndGetLong(instance), is(41L));
+    assertThat(accessor.compareAndSetLong(instance, 41L, 42L), is(true));
+
+    assertThat(instance.getTotal(), is(42L));
+  }
+
+  @Test
+  public void concurrentIncrementsShouldNotBeLost() throws Exception {
+    assumeTrue(VarHandleSupport.isAvailable());
+    CounterClass instance = new CounterClass();
+    FieldAccessor<Object> accessor =
+        new FieldHelper(instance, CounterClass.class).getAccessorByName("count");
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] =
+          new Thread(
+              () -> {
+                for (int j = 0; j < 10000; j++) {
+                  accessor.incrementAndGetInt(instance);
+                }
+              });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(instance.getCount(), is(40000));
+  }
+
+  @Test
+  public void atomicOperationWithWrongTypeShouldThrowException() throws Exception {
+    assumeTrue(VarHandleSupport.isAvailable());
+    CounterClass instance = new CounterClass();
+    FieldAccessor<Object> accessor =
+        new FieldHelper(instance, CounterClass.class).getAccessorByName("total");
+
+    IllegalArgumentException exception =
+        assertThrows(IllegalArgumentException.class, () -> accessor.getAndAddInt(instance, 1));
+    assertThat(
+        exception.getMessage(),
+        is("Field private long refutils.testclasses.CounterClass.total is not of type int"));
+  }
+
+  @Test
+  public void atomicOperationOnFinalFieldShouldThrowException() throws Exception {
+    CounterClass instance = new CounterClass();
+    FieldAccessor<Object> accessor =
+        new FieldHelper(instance, CounterClass.class).getAccessorByName("limit");
+
+    UnsupportedOperationException exception =
+        assertThrows(
+            UnsupportedOperationException.class, () -> accessor.compareAndSetInt(instance, 10, 11));
+    assertThat(
+        exception.getMessage(),
+        is(
+            "Cannot make atomic operations on final field "
+                + "private final int refutils.testclasses.CounterClass.limit"));
+  }
+
+  @Test
+  public void accessModesShouldReadAndWritePlainFields() throws Exception {
+    assumeTrue(VarHandleSupport.isAvailable());
+    CounterClass instance = new CounterClass();
+    FieldHelper fieldHelper = new FieldHelper(instance, CounterClass.class);
+    FieldAccessor<Object> name = fieldHelper.getAccessorByName("name");
+    FieldAccessor<Object> total = fieldHelper.getAccessorByName("total");
+
+    name.setRelease(instance, "released");
+    assertThat(name.getAcquire(instance), is("released"));
+    name.setOpaque(instance, "opaque");
+    assertThat(name.getVolatile(instance), is("opaque"));
+    total.setVolatile(instance, 42L);
+    assertThat(total.getOpaque(instance), is(42L));
+
+    assertThat(instance.getName(), is("opaque"));
+    assertThat(instance.getTotal(), is(42L));
+  }
+
+  @Test
+  public void releasedValueShouldBeVisibleToOtherThread() throws Exception {
+    assumeTrue(VarHandleSupport.isAvailable());
+    CounterClass instance = new CounterClass();
+    FieldHelper fieldHelper = new FieldHelper(instance, CounterClass.class);
+    FieldAccessor<Object> total = fieldHelper.getAccessorByName("total");
+    FieldAccessor<Object> name = fieldHelper.getAccessorByName("name");
+    Thread writer =
+        new Thread(
+            () -> {
+              total.set(instance, 42L);
+              name.setRelease(instance, "published");
+            });
+
+    writer.start();
+    while (!"published".equals(name.getAcquire(instance))) {
+      Thread.yield();
+    }
+    writer.join();
+
+    assertThat(total.get(instance), is(42L));
+  }
+
+  @Test
+  public void settingFinalFieldWithAccessModeShouldThrowException() throws Exception {
+    assumeTrue(VarHandleSupport.isAvailable());
+    CounterClass instance = new CounterClass();
+    FieldAccessor<Object> accessor =
+        new FieldHelper(instance, CounterClass.class).getAccessorByName("limit");
+
+    assertThat(accessor.getVolatile(instance), is(10));
+    UnsupportedOperationException exception =
+        assertThrows(UnsupportedOperationException.class, () -> accessor.setRelease(instance, 11));
+    assertThat(
+        exception.getMessage(),
+        is(
+            "Cannot set final field "
+                + "private final int refutils.testclasses.CounterClass.limit with an access mode"));
+  }
+
+  @Test
+  public void handlesShouldReadAndWriteWithExactTypes() throws Throwable {
+    CounterClass instance = new CounterClass();
+    FieldAccessor<Object> count =
+        new FieldHelper(instance, CounterClass.class).getAccessorByName("count");
+    FieldAccessor<Object> name =
+        new FieldHelper(instance, CounterClass.class).getAccessorByName("name");
+
+    count.setterHandle().invokeExact((Object) instance, 42);
+    name.setterHandle().invokeExact((Object) instance, "second");
+
+    assertThat((int) count.getterHandle().invokeExact((Object) instance), is(42));
+    assertThat((String) name.getterHandle().invokeExact((Object) instance), is("second"));
+  }
+}
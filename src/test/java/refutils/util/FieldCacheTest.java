@@ -0,0 +1,435 @@
+package refutils.util;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.io.FileNotFoundException;
+import java.lang.annotation.Annotation;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.Test;
+import refutils.ReflectionHelper;
+import refutils.ReflectionHelperException;
+import refutils.testclasses.CounterClass;
+import refutils.testclasses.EnumType;
+import refutils.testclasses.FieldClass;
+import refutils.testclasses.SubClass;
+import refutils.testclasses.SuperClass;
+import refutils.testclasses.SuperSuperClass;
+
+public class FieldCacheTest {
+
+  @Test
+  public void sameClassShouldReturnSameMetadata() {
+    assertThat(FieldCache.get(SubClass.class), sameInstance(FieldCache.get(SubClass.class)));
+  }
+
+  @Test
+  public void cachedFieldsShouldMatchExtractedFields() {
+    assertThat(
+        FieldCache.get(SubClass.class).getAllFields(),
+        is(new ArrayList<>(new FieldExtractor(SubClass.class).getAllFields())));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void cachedFieldsShouldNotBeModifiable() {
+    FieldCache.get(SubClass.class).getAllFields().clear();
+  }
+
+  @Test
+  public void repeatedLookupsShouldBeCountedAsHits() throws Exception {
+    FieldClass instance = new FieldClass();
+    new FieldHelper(instance, FieldClass.class).setValueByName("superClass", null);
+    CacheStatistics before = FieldHelper.getCacheStatistics();
+
+    new FieldHelper(instance, FieldClass.class).getValueByName("superClass");
+    new FieldHelper(instance, FieldClass.class).getValueByName("subClass");
+
+    CacheStatistics after = FieldHelper.getCacheStatistics();
+    assertThat(after.getHitCount() - before.getHitCount(), is(2L));
+    assertThat(after.getMissCount(), is(before.getMissCount()));
+  }
+
+  @Test
+  public void superclassLookupsShouldNotBeCountedAsHits() {
+    FieldCache.clear(SuperSuperClass.class);
+    CacheStatistics before = FieldCache.statistics();
+
+    FieldCache.get(SubClass.class).getAccessorByName("superSneakyField");
+    FieldCache.get(SuperClass.class);
+
+    CacheStatistics after = FieldCache.statistics();
+    assertThat(after.getHitCount(), is(before.getHitCount()));
+    assertThat(after.getMissCount() - before.getMissCount(), is(3L));
+
+    FieldCache.get(SuperClass.class);
+
+    assertThat(FieldCache.statistics().getHitCount() - before.getHitCount(), is(1L));
+  }
+
+  @Test
+  public void nameLookupShouldPreferVisibleFieldsInClass() throws Exception {
+    ClassFields classFields = FieldCache.get(SubClass.class);
+
+    assertThat(
+        classFields.getAccessorByName("override").getField(),
+        is(SubClass.class.getDeclaredField("override")));
+    assertThat(
+        classFields.getAccessorByName("intPackage").getField(),
+        is(SuperClass.class.getDeclaredField("intPackage")));
+  }
+
+  @Test
+  public void nameLookupShouldFindPrivateFieldsInSuperClasses() throws Exception {
+    ClassFields classFields = FieldCache.get(SubClass.class);
+
+    assertThat(
+        classFields.getAccessorByName("stringPrivate").getField(),
+        is(SuperClass.class.getDeclaredField("stringPrivate")));
+    assertThat(
+        classFields.getAccessorByName("superSneakyField").getField(),
+        is(SuperSuperClass.class.getDeclaredField("superSneakyField")));
+    assertThat(classFields.getAccessorByName("gurka"), nullValue());
+  }
+
+  @Test
+  public void inheritedFieldShouldShareAccessorWithDeclaringClass() {
+    assertThat(
+        FieldCache.get(SubClass.class).getAccessorByName("intPackage"),
+        sameInstance(FieldCache.get(SuperClass.class).getAccessorByName("intPackage")));
+  }
+
+  @Test
+  public void typeMatchShouldBeCachedPerValueType() throws Exception {
+    ClassFields classFields = FieldCache.get(SubClass.class);
+
+    TypeMatch typeMatch = classFields.getFieldByType(FileNotFoundException.class);
+
+    assertThat(classFields.getFieldByType(FileNotFoundException.class), sameInstance(typeMatch));
+    assertThat(typeMatch.getAccessor().getField(), is(SuperClass.class.getDeclaredField("fnfex")));
+  }
+
+  @Test
+  public void failedTypeMatchShouldBeCached() {
+    ClassFields classFields = FieldCache.get(FieldClass.class);
+
+    TypeMatch typeMatch = classFields.getFieldByType(SubClass.class);
+
+    assertThat(classFields.getFieldByType(SubClass.class), sameInstance(typeMatch));
+    IllegalArgumentException exception =
+        assertThrows(IllegalArgumentException.class, typeMatch::getAccessor);
+    assertThat(
+        exception.getMessage(),
+        is(
+            "Found too many (3) matches for field class refutils.testclasses.SubClass [anInterface, subClass, superClass], "
+                + "specify the field by name instead"));
+  }
+
+  @Test
+  public void clearingClassShouldAlsoClearSubclasses() {
+    ClassFields subClassFields = FieldCache.get(SubClass.class);
+    FieldCache.get(SuperClass.class);
+    FieldCache.get(FieldClass.class);
+
+    FieldCache.clear(SuperClass.class);
+
+    assertThat(FieldCache.contains(SuperClass.class), is(false));
+    assertThat(FieldCache.contains(SubClass.class), is(false));
+    assertThat(FieldCache.contains(FieldClass.class), is(true));
+    assertThat(FieldCache.get(SubClass.class), not(sameInstance(subClassFields)));
+  }
+
+  @Test
+  public void clearingClassShouldAlsoClearCopyAndComparePlans() {
+    ComparePlan.Exclusions exclusions =
+        new ComparePlan.Exclusions(
+            Collections.<String>emptySet(), Collections.<Class<? extends Annotation>>emptySet());
+    CopyPlan copyPlan = CopyPlan.of(SubClass.class);
+    ComparePlan comparePlan = ComparePlan.of(SubClass.class, exclusions);
+    assertThat(CopyPlan.of(SubClass.class), sameInstance(copyPlan));
+    assertThat(ComparePlan.of(SubClass.class, exclusions), sameInstance(comparePlan));
+
+    FieldCache.clear(SuperClass.class);
+
+    assertThat(CopyPlan.of(SubClass.class), not(sameInstance(copyPlan)));
+    assertThat(ComparePlan.of(SubClass.class, exclusions), not(sameInstance(comparePlan)));
+  }
+
+  @Test
+  public void clearingClassShouldAlsoClearPlansWithoutFields() {
+    ComparePlan.Exclusions exclusions =
+        new ComparePlan.Exclusions(
+            Collections.<String>emptySet(), Collections.<Class<? extends Annotation>>emptySet());
+    CopyPlan copyPlan = CopyPlan.of(EnumType.class);
+    ComparePlan comparePlan = ComparePlan.of(EnumType.class, exclusions);
+
+    FieldCache.clear(EnumType.class);
+
+    assertThat(CopyPlan.of(EnumType.class), not(sameInstance(copyPlan)));
+    assertThat(ComparePlan.of(EnumType.class, exclusions), not(sameInstance(comparePlan)));
+  }
+
+  @Test
+  public void clearingClassShouldClearPathsAndTypeMatchesOfOtherClasses() throws Exception {
+    ClassFields classFields = FieldCache.get(FieldClass.class);
+    FieldPath fieldPath = classFields.getPath("subClass.override");
+    TypeMatch typeMatch = classFields.getFieldByType(SubClass.class);
+
+    FieldCache.clear(SubClass.class);
+
+    assertThat(FieldCache.contains(FieldClass.class), is(true));
+    assertThat(classFields.getPath("subClass.override"), not(sameInstance(fieldPath)));
+    assertThat(classFields.getFieldByType(SubClass.class), not(sameInstance(typeMatch)));
+  }
+
+  @Test
+  public void comparatorsWithEqualExclusionsShouldSharePlans() {
+    ComparePlan.Exclusions exclusions =
+        new ComparePlan.Exclusions(
+            Collections.singleton("override"), Collections.<Class<? extends Annotation>>emptySet());
+    ComparePlan.Exclusions equalExclusions =
+        new ComparePlan.Exclusions(
+            new HashSet<>(Collections.singleton("override")),
+            Collections.<Class<? extends Annotation>>emptySet());
+    ComparePlan.Exclusions otherExclusions =
+        new ComparePlan.Exclusions(
+            Collections.<String>emptySet(), Collections.<Class<? extends Annotation>>emptySet());
+
+    ComparePlan comparePlan = ComparePlan.of(SubClass.class, exclusions);
+
+    assertThat(ComparePlan.of(SubClass.class, equalExclusions), sameInstance(comparePlan));
+    assertThat(ComparePlan.of(SubClass.class, otherExclusions), not(sameInstance(comparePlan)));
+  }
+
+  @Test
+  public void clearingClassLoaderShouldClearItsClasses() throws Exception {
+    ClassLoader classLoader = new URLClassLoader(new URL[] {testClassesUrl()}, null);
+    Class<?> reloadedClass = classLoader.loadClass(SubClass.class.getName());
+    FieldCache.get(reloadedClass);
+    FieldCache.get(SubClass.class);
+
+    FieldCache.clear(classLoader);
+
+    assertThat(FieldCache.contains(reloadedClass), is(false));
+    assertThat(FieldCache.contains(SubClass.class), is(true));
+  }
+
+  @Test
+  public void cacheShouldNotPinClassLoader() throws Exception {
+    ClassLoader classLoader = new URLClassLoader(new URL[] {testClassesUrl()}, null);
+    FieldCache.get(classLoader.loadClass(SubClass.class.getName()));
+    WeakReference<ClassLoader> reference = new WeakReference<>(classLoader);
+    classLoader = null;
+
+    for (int i = 0; i < 50 && reference.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+
+    assertThat(reference.get(), nullValue());
+  }
+
+  @Test
+  public void typeMatchShouldNotPinClassLoaderOfValueClass() throws Exception {
+    ClassLoader classLoader = new ChildFirstClassLoader();
+    Class<?> valueClass = classLoader.loadClass(FieldClass.class.getName());
+    TypeMatch typeMatch = FieldCache.get(SubClass.class).getFieldByType(valueClass);
+    assertThrows(NoSuchFieldException.class, typeMatch::getAccessor);
+    WeakReference<ClassLoader> reference = new WeakReference<>(classLoader);
+    classLoader = null;
+    valueClass = null;
+    typeMatch = null;
+
+    for (int i = 0; i < 50 && reference.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+
+    assertThat(reference.get(), nullValue());
+  }
+
+  @Test
+  public void valueFromChildClassLoaderShouldNotBePinnedByHelperLookup() throws Exception {
+    ClassLoader classLoader = new ChildFirstClassLoader();
+    lookUpValueInHelper(classLoader.loadClass(FieldClass.class.getName()));
+    WeakReference<ClassLoader> reference = new WeakReference<>(classLoader);
+    classLoader = null;
+
+    for (int i = 0; i < 50 && reference.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+
+    assertThat(reference.get(), nullValue());
+  }
+
+  @Test
+  public void pathThroughValueFromChildClassLoaderShouldNotPinIt() throws Exception {
+    ClassLoader classLoader = new ChildFirstClassLoader();
+    followPath(classLoader.loadClass(FieldClass.class.getName()));
+    WeakReference<ClassLoader> reference = new WeakReference<>(classLoader);
+    classLoader = null;
+
+    for (int i = 0; i < 50 && reference.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+
+    assertThat(reference.get(), nullValue());
+  }
+
+  @Test
+  public void compiledPathsShouldBeBoundedPerClass() throws Exception {
+    FieldCache.clear(SubClass.class);
+    ClassFields classFields = FieldCache.get(SubClass.class);
+    for (int i = 0; i < 100; i++) {
+      classFields.getPath("anObject.field" + i);
+    }
+
+    assertThat(
+        classFields.getPath("anObject.field0"),
+        sameInstance(classFields.getPath("anObject.field0")));
+    assertThat(
+        classFields.getPath("anObject.field99"),
+        not(sameInstance(classFields.getPath("anObject.field99"))));
+  }
+
+  @Test
+  public void leastRecentlyUsedClassShouldBeEvicted() throws Exception {
+    FieldCache.clear(Object.class);
+    long evictions = FieldCache.statistics().getEvictionCount();
+    try {
+      FieldCache.setMaximumSize(3);
+      FieldCache.get(FieldClass.class);
+      CopyPlan copyPlan = CopyPlan.of(SuperSuperClass.class);
+      FieldCache.get(EnumType.class);
+      FieldCache.get(FieldClass.class);
+
+      FieldCache.get(CounterClass.class);
+
+      assertThat(FieldCache.contains(FieldClass.class), is(true));
+      assertThat(FieldCache.contains(EnumType.class), is(true));
+      assertThat(FieldCache.contains(CounterClass.class), is(true));
+      assertThat(FieldCache.contains(SuperSuperClass.class), is(false));
+      assertThat(FieldCache.statistics().getEvictionCount(), is(evictions + 1));
+      assertThat(CopyPlan.of(SuperSuperClass.class), not(sameInstance(copyPlan)));
+    } finally {
+      FieldCache.setMaximumSize(0);
+    }
+  }
+
+  @Test
+  public void fullCacheShouldCountEachMissOnce() {
+    FieldCache.clear(Object.class);
+    CacheStatistics before = FieldCache.statistics();
+    try {
+      FieldCache.setMaximumSize(1);
+
+      FieldCache.get(SubClass.class).getAccessorByName("superSneakyField");
+      ClassFields classFields = FieldCache.get(SubClass.class);
+
+      CacheStatistics after = FieldCache.statistics();
+      assertThat(FieldCache.contains(SubClass.class), is(true));
+      assertThat(after.getClassCount(), is(1));
+      assertThat(
+          after.getMissCount() - before.getMissCount(),
+          is(after.getEvictionCount() - before.getEvictionCount() + 1));
+      assertThat(FieldCache.get(SubClass.class), sameInstance(classFields));
+    } finally {
+      FieldCache.setMaximumSize(0);
+    }
+  }
+
+  @Test
+  public void resolverUseShouldMarkClassAsRecentlyUsed() throws Exception {
+    FieldCache.clear(Object.class);
+    try {
+      FieldCache.setMaximumSize(2);
+      FieldResolver fieldResolver = new FieldResolver(FieldClass.class);
+      FieldCache.get(SuperSuperClass.class);
+      fieldResolver.findAccessorByName("subClass");
+
+      FieldCache.get(EnumType.class);
+
+      assertThat(FieldCache.contains(FieldClass.class), is(true));
+      assertThat(FieldCache.contains(SuperSuperClass.class), is(false));
+    } finally {
+      FieldCache.setMaximumSize(0);
+    }
+  }
+
+  @Test
+  public void statisticsShouldCountCachedClassesFieldsAndAccessors() {
+    FieldCache.get(SubClass.class).getAccessorByName("override");
+
+    CacheStatistics statistics = FieldCache.statistics();
+
+    assertThat(statistics.getClassCount() > 0, is(true));
+    assertThat(
+        statistics.getFieldCount() >= FieldCache.get(SubClass.class).getAllFields().size(),
+        is(true));
+    assertThat(statistics.getAccessorCount() > 0, is(true));
+  }
+
+  @Test
+  public void sizeEstimateShouldGrowWithClassesAndAccessors() {
+    FieldCache.clear(SubClass.class);
+    long before = FieldCache.statistics().getSizeEstimate();
+
+    FieldCache.get(SubClass.class).getAccessorByName("override");
+
+    long growth = FieldCache.statistics().getSizeEstimate() - before;
+    assertThat(
+        growth >= CacheStatistics.BYTES_PER_CLASS + CacheStatistics.BYTES_PER_ACCESSOR, is(true));
+  }
+
+  private static void lookUpValueInHelper(Class<?> valueClass) throws Exception {
+    Object value = valueClass.getConstructor().newInstance();
+    ReflectionHelper reflectionHelper = new ReflectionHelper(new SubClass());
+
+    assertThrows(ReflectionHelperException.class, () -> reflectionHelper.setField(value));
+    assertThrows(ReflectionHelperException.class, () -> reflectionHelper.getField(valueClass));
+  }
+
+  private static void followPath(Class<?> valueClass) throws Exception {
+    SubClass root = new SubClass();
+    root.anObject = valueClass.getConstructor().newInstance();
+    FieldPath fieldPath = FieldCache.get(SubClass.class).getPath("anObject.subClass");
+
+    assertThat(fieldPath.get(root), nullValue());
+    assertThat(fieldPath.get(root), nullValue());
+  }
+
+  private static URL testClassesUrl() {
+    return SubClass.class.getProtectionDomain().getCodeSource().getLocation();
+  }
+
+  /**
+   * Loads its own copies of the test classes, but delegates everything else to the class loader of
+   * the tests, like a plugin class loader.
+   */
+  static final class ChildFirstClassLoader extends URLClassLoader {
+    ChildFirstClassLoader() {
+      super(new URL[] {testClassesUrl()}, FieldCacheTest.class.getClassLoader());
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if (!name.startsWith("refutils.testclasses.")) {
+        return super.loadClass(name, resolve);
+      }
+      synchronized (getClassLoadingLock(name)) {
+        Class<?> loadedClass = findLoadedClass(name);
+        return loadedClass == null ? findClass(name) : loadedClass;
+      }
+    }
+  }
+}
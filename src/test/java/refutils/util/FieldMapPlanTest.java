@@ -0,0 +1,147 @@
+package refutils.util;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+import refutils.testclasses.SubClass;
+
+public class FieldMapPlanTest {
+
+  @Test
+  public void mapShouldHoldInstanceFieldsOfAllClassesInNameOrder() {
+    SubClass instance = new SubClass();
+
+    Map<String, Object> fieldValues = FieldHelper.toMap(instance);
+
+    assertThat(
+        fieldValues.keySet(),
+        contains(
+            "aByte",
+            "aChar",
+            "aDouble",
+            "aFloat",
+            "aFloat2",
+            "aShort",
+            "anObject",
+            "boolProtected",
+            "bytePrivateFinal",
+            "fnfex",
+            "intPackage",
+            "longPrivate",
+            "override",
+            "state",
+            "stringPrivate",
+            "stringPrivate2",
+            "superSneakyField"));
+    assertThat(fieldValues.get("state"), is(Thread.State.NEW));
+    assertThat(fieldValues.get("aDouble"), is(0.0));
+  }
+
+  @Test
+  public void keysShouldBeSharedBetweenMaps() {
+    String first = FieldHelper.toMap(new SubClass()).keySet().iterator().next();
+    String second = FieldHelper.toMap(new SubClass()).keySet().iterator().next();
+
+    assertThat(first, sameInstance(second));
+  }
+
+  @Test
+  public void visitorShouldGetSameFieldsAsMap() {
+    SubClass instance = new SubClass();
+    Map<String, Object> visited = new LinkedHashMap<>();
+
+    FieldHelper.visitFields(instance, visited::put);
+
+    assertThat(visited, is(FieldHelper.toMap(instance)));
+  }
+
+  @Test
+  public void populateShouldSetValuesFromMap() throws NoSuchFieldException {
+    SubClass source = new SubClass();
+    Map<String, Object> fieldValues = new HashMap<>();
+    fieldValues.put("stringPrivate", "Gurka");
+    fieldValues.put("stringPrivate2", "Tomat");
+    fieldValues.put("intPackage", 34);
+    FieldHelper.populate(source, fieldValues);
+
+    SubClass target = new SubClass();
+    FieldHelper.populate(target, FieldHelper.toMap(source));
+
+    assertThat(target.getStringPrivate(), is("Gurka"));
+    assertThat(target.getStringPrivate2(), is("Tomat"));
+    assertThat(target.getIntPackage(), is(34));
+  }
+
+  @Test
+  public void unknownKeysShouldFailBeforeAnyFieldIsSet() {
+    SubClass instance = new SubClass();
+    Map<String, Object> fieldValues = new LinkedHashMap<>();
+    fieldValues.put("stringPrivate", "Gurka");
+    fieldValues.put("gurka", 1);
+    fieldValues.put("FINAL_FIELD", null);
+
+    NoSuchFieldException exception =
+        assertThrows(NoSuchFieldException.class, () -> FieldHelper.populate(instance, fieldValues));
+
+    assertThat(
+        exception.getMessage(),
+        is(
+            "Cannot find instance fields named [gurka, FINAL_FIELD] in "
+                + "refutils.testclasses.SubClass"));
+    assertThat(instance.getStringPrivate(), is((String) null));
+  }
+
+  @Test
+  public void nullKeyShouldFailBeforeAnyFieldIsSet() {
+    SubClass instance = new SubClass();
+    Map<String, Object> fieldValues = new LinkedHashMap<>();
+    fieldValues.put("stringPrivate", "Gurka");
+    fieldValues.put(null, "Tomat");
+
+    NoSuchFieldException exception =
+        assertThrows(NoSuchFieldException.class, () -> FieldHelper.populate(instance, fieldValues));
+
+    assertThat(
+        exception.getMessage(),
+        is("Cannot find instance fields named [null] in refutils.testclasses.SubClass"));
+    assertThat(instance.getStringPrivate(), is((String) null));
+  }
+
+  @Test
+  public void valuesOfWrongTypeShouldNotStopOtherValues() {
+    SubClass instance = new SubClass();
+    Map<String, Object> fieldValues = new LinkedHashMap<>();
+    fieldValues.put("override", 42);
+    fieldValues.put("stringPrivate", "Gurka");
+    fieldValues.put("aDouble", "Tomat");
+
+    IllegalArgumentException exception =
+        assertThrows(
+            IllegalArgumentException.class, () -> FieldHelper.populate(instance, fieldValues));
+
+    assertThat(
+        exception.getMessage(),
+        is(
+            "Can not set java.lang.Runnable field refutils.testclasses.SubClass.override to "
+                + "java.lang.Integer"));
+    assertThat(exception.getSuppressed().length, is(1));
+    assertThat(instance.getStringPrivate(), is("Gurka"));
+  }
+
+  @Test
+  public void syntheticFieldsShouldBeLeftOut() {
+    // Inner has a synthetic field that references the test instance
+    assertThat(FieldHelper.toMap(new Inner()).keySet(), contains("value"));
+  }
+
+  private class Inner {
+    private int value;
+  }
+}
@@ -0,0 +1,186 @@
+package refutils.util;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import refutils.testclasses.FieldClass;
+import refutils.testclasses.SubClass;
+import refutils.testclasses.SuperClass;
+import refutils.testclasses.SuperSuperClass;
+
+public class MetadataIndexTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void indexedClassShouldBeReadFromIndex() throws Exception {
+    File root = writeIndex(SubClass.class, SuperClass.class, SuperSuperClass.class);
+
+    Class<?> indexedClass = loadClass(root, SubClass.class);
+    VisibleFields visibleFields = MetadataIndex.find(indexedClass);
+
+    assertThat(visibleFields, notNullValue());
+    assertSameAsExtracted(indexedClass, visibleFields);
+  }
+
+  @Test
+  public void superclassesNotInIndexShouldBeScanned() throws Exception {
+    File root = writeIndex(SubClass.class);
+
+    Class<?> indexedClass = loadClass(root, SubClass.class);
+    VisibleFields visibleFields = MetadataIndex.find(indexedClass);
+
+    assertThat(visibleFields, notNullValue());
+    assertSameAsExtracted(indexedClass, visibleFields);
+  }
+
+  @Test
+  public void classesNotInIndexShouldBeExtracted() throws Exception {
+    File root = writeIndex(SubClass.class);
+
+    assertThat(MetadataIndex.find(loadClass(root, FieldClass.class)), nullValue());
+  }
+
+  @Test
+  public void classFromOtherLocationShouldNotBeReadFromIndex() throws Exception {
+    File root = writeIndex(SubClass.class);
+    Files.delete(classFile(root, SubClass.class).toPath());
+
+    assertThat(MetadataIndex.find(loadClass(root, SubClass.class)), nullValue());
+  }
+
+  @Test
+  public void classFileWithOtherChecksumShouldNotBeReadFromIndex() throws Exception {
+    File root = writeIndex(true, SubClass.class);
+
+    assertThat(MetadataIndex.find(loadClass(root, SubClass.class)), nullValue());
+  }
+
+  @Test
+  public void indexOfOtherVersionShouldBeIgnored() throws Exception {
+    File root = writeIndex(SubClass.class);
+    try (DataOutputStream out = new DataOutputStream(openIndex(root))) {
+      out.writeInt(MetadataIndex.MAGIC);
+      out.writeShort(MetadataIndex.VERSION + 1);
+    }
+
+    assertThat(MetadataIndex.find(loadClass(root, SubClass.class)), nullValue());
+  }
+
+  @Test
+  public void brokenIndexShouldBeSkipped() throws Exception {
+    File notAnIndex = temporaryFolder.newFolder();
+    try (DataOutputStream out = new DataOutputStream(openIndex(notAnIndex))) {
+      out.writeInt(0xCAFEBABE);
+    }
+    File truncatedIndex = temporaryFolder.newFolder();
+    try (DataOutputStream out = new DataOutputStream(openIndex(truncatedIndex))) {
+      out.writeInt(MetadataIndex.MAGIC);
+      out.writeShort(MetadataIndex.VERSION);
+      out.writeInt(1);
+    }
+    File root = writeIndex(SubClass.class);
+
+    Class<?> indexedClass = loadClass(root, SubClass.class, notAnIndex, truncatedIndex);
+
+    assertThat(MetadataIndex.find(indexedClass), notNullValue());
+    assertThat(MetadataIndex.find(loadClass(notAnIndex, SubClass.class)), nullValue());
+  }
+
+  private static void assertSameAsExtracted(Class<?> type, VisibleFields visibleFields) {
+    VisibleFields extractedFields = VisibleFields.extract(type);
+    assertThat(visibleFields.names, is(extractedFields.names));
+    assertThat(visibleFields.types, is(extractedFields.types));
+    assertThat(visibleFields.declaringClasses, is(extractedFields.declaringClasses));
+    assertThat(
+        new ClassFields(type).getAllFields(),
+        is(new ArrayList<>(new FieldExtractor(type).getAllFields())));
+  }
+
+  private File writeIndex(Class<?>... types) throws Exception {
+    return writeIndex(false, types);
+  }
+
+  /**
+   * Writes the declared fields of the classes to an index in a new folder, as the Maven plugin
+   * does, and copies the classes next to it. The checksums of a stale index do not match the class
+   * files, as if the classes were recompiled after the index was written.
+   */
+  private File writeIndex(boolean stale, Class<?>... types) throws Exception {
+    File root = temporaryFolder.newFolder();
+    try (DataOutputStream out = new DataOutputStream(openIndex(root))) {
+      out.writeInt(MetadataIndex.MAGIC);
+      out.writeShort(MetadataIndex.VERSION);
+      out.writeInt(types.length);
+      for (Class<?> type : types) {
+        ByteArrayOutputStream entry = new ByteArrayOutputStream();
+        try (DataOutputStream entryOut = new DataOutputStream(entry)) {
+          Field[] fields = type.getDeclaredFields();
+          entryOut.writeShort(fields.length);
+          for (Field field : fields) {
+            entryOut.writeUTF(field.getName());
+            entryOut.writeUTF(field.getType().getName());
+            entryOut.writeInt(field.getModifiers());
+          }
+        }
+        File classFile = classFile(root, type);
+        classFile.getParentFile().mkdirs();
+        Files.copy(
+            classFile(new File(testClassesUrl().toURI()), type).toPath(), classFile.toPath());
+        byte[] classFileContent = Files.readAllBytes(classFile.toPath());
+        CRC32 checksum = new CRC32();
+        checksum.update(classFileContent, 0, classFileContent.length);
+
+        out.writeUTF(type.getName());
+        out.writeInt((int) checksum.getValue() + (stale ? 1 : 0));
+        out.writeInt(entry.size());
+        entry.writeTo(out);
+      }
+    }
+    return root;
+  }
+
+  private static OutputStream openIndex(File root) throws IOException {
+    File indexFile = new File(root, MetadataIndex.RESOURCE_NAME);
+    indexFile.getParentFile().mkdirs();
+    return new FileOutputStream(indexFile);
+  }
+
+  private static File classFile(File root, Class<?> type) {
+    return new File(root, type.getName().replace('.', '/') + ".class");
+  }
+
+  private static URL testClassesUrl() {
+    return SubClass.class.getProtectionDomain().getCodeSource().getLocation();
+  }
+
+  /**
+   * Loads the class in a new class loader, that sees the index in the root folder and then the test
+   * classes.
+   */
+  private static Class<?> loadClass(File root, Class<?> type, File... otherRoots) throws Exception {
+    URL[] urls = new URL[otherRoots.length + 2];
+    for (int i = 0; i < otherRoots.length; i++) {
+      urls[i] = otherRoots[i].toURI().toURL();
+    }
+    urls[otherRoots.length] = root.toURI().toURL();
+    urls[otherRoots.length + 1] = testClassesUrl();
+    return new URLClassLoader(urls, null).loadClass(type.getName());
+  }
+}
@@ -0,0 +1,66 @@
+package refutils.util;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+import org.junit.Before;
+import org.junit.Test;
+import refutils.testclasses.CounterClass;
+
+/**
+ * Runs against the classes directory, where the reflective version for Java 8 is used, and again
+ * against the multi-release jar, where the Java 9 version is used. Skipped on a Java 8 runtime,
+ * which has no VarHandles.
+ */
+public class VarHandleSupportTest {
+
+  @Before
+  public void requireVarHandles() {
+    assumeTrue(VarHandleSupport.isAvailable());
+  }
+
+  @Test
+  public void compareAndSetHandleShouldTakeInstanceAsObject() throws Throwable {
+    CounterClass instance = new CounterClass();
+    MethodHandle compareAndSet = accessModeHandle("count", "COMPARE_AND_SET");
+
+    assertThat((boolean) compareAndSet.invoke((Object) instance, 0, 5), is(true));
+    assertThat((boolean) compareAndSet.invoke((Object) instance, 0, 6), is(false));
+
+    assertThat(instance.getCount(), is(5));
+  }
+
+  @Test
+  public void getAndAddHandleShouldReturnPreviousValue() throws Throwable {
+    CounterClass instance = new CounterClass();
+    MethodHandle getAndAdd = accessModeHandle("total", "GET_AND_ADD");
+
+    assertThat((long) getAndAdd.invoke((Object) instance, 40L), is(0L));
+    assertThat((long) getAndAdd.invoke((Object) instance, 2L), is(40L));
+
+    assertThat(instance.getTotal(), is(42L));
+  }
+
+  @Test
+  public void handleOfStaticFieldShouldIgnoreInstance() throws Throwable {
+    Field field = Statics.class.getDeclaredField("counter");
+    MethodHandle getAndAdd = VarHandleSupport.accessModeHandle(field, "GET_AND_ADD");
+
+    assertThat((int) getAndAdd.invoke((Object) null, 3), is(0));
+
+    assertThat(Statics.counter, is(3));
+  }
+
+  private static MethodHandle accessModeHandle(String fieldName, String accessModeName)
+      throws Exception {
+    return VarHandleSupport.accessModeHandle(
+        CounterClass.class.getDeclaredField(fieldName), accessModeName);
+  }
+
+  static final class Statics {
+    static int counter;
+  }
+}
@@ -0,0 +1,66 @@
+package refutils;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+import refutils.testclasses.RecordClass;
+import refutils.util.FieldAccessor;
+
+/** Records, whose final fields can be read but never written. */
+public class RecordTest {
+
+  @Test
+  public void recordFieldsShouldBeReadable() {
+    RecordClass instance = new RecordClass("Gurka", 3);
+    ReflectionHelper reflectionHelper = new ReflectionHelper(instance);
+
+    assertThat(reflectionHelper.getField("name"), is("Gurka"));
+    assertThat(reflectionHelper.getInt("count"), is(3));
+    assertThat(ReflectionHelper.toMap(instance).get("name"), is("Gurka"));
+    assertThat(ReflectionHelper.deepEquals(instance, new RecordClass("Gurka", 3)), is(true));
+    assertThat(
+        ReflectionHelper.deepHashCode(instance),
+        is(ReflectionHelper.deepHashCode(new RecordClass("Gurka", 3))));
+
+    UnsupportedOperationException exception =
+        assertThrows(
+            UnsupportedOperationException.class, () -> reflectionHelper.setField("name", "Tomat"));
+    assertThat(
+        exception.getMessage(),
+        is(
+            "Cannot set final field private final java.lang.String refutils.testclasses.RecordClass.name"));
+    assertThat(exception.getCause(), is(instanceOf(IllegalAccessException.class)));
+    assertThat(instance.name(), is("Gurka"));
+  }
+
+  @Test
+  public void setterHandleOfRecordFieldShouldThrowException() {
+    FieldAccessor<Object> accessor = ReflectionHelper.forClass(RecordClass.class).field("name");
+
+    assertThrows(UnsupportedOperationException.class, accessor::setterHandle);
+  }
+
+  @Test
+  public void populatingRecordShouldReportAllFieldsThatCannotBeSet() {
+    RecordClass instance = new RecordClass("Gurka", 3);
+    Map<String, Object> fieldValues = new LinkedHashMap<>();
+    fieldValues.put("count", 4);
+    fieldValues.put("name", "Tomat");
+
+    UnsupportedOperationException exception =
+        assertThrows(
+            UnsupportedOperationException.class,
+            () -> ReflectionHelper.populate(instance, fieldValues));
+
+    assertThat(
+        exception.getMessage(),
+        is("Cannot set final field private final int refutils.testclasses.RecordClass.count"));
+    assertThat(exception.getSuppressed().length, is(1));
+    assertThat(instance.name(), is("Gurka"));
+  }
+}
@@ -0,0 +1,4 @@
+package refutils.testclasses;
+
+/** A record, whose final fields can be read but never written with reflection. */
+public record RecordClass(String name, int count) {}
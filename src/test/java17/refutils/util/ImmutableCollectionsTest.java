@@ -0,0 +1,25 @@
+package refutils.util;
+
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Test;
+import refutils.testclasses.GraphNode;
+
+/** The immutable collections of the collection factories, that were added in Java 9. */
+public class ImmutableCollectionsTest {
+
+  @Test
+  public void immutableCollectionsShouldBeSharedByDeepCopy() {
+    List<GraphNode> list = List.of(new GraphNode("list"));
+    Set<String> set = Set.of("a", "b", "c");
+    Map<String, String> map = Map.of("a", "b");
+
+    assertThat(DeepCopier.deepCopy(list), sameInstance(list));
+    assertThat(DeepCopier.deepCopy(set), sameInstance(set));
+    assertThat(DeepCopier.deepCopy(map), sameInstance(map));
+  }
+}